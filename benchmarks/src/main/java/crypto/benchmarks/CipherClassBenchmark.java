@@ -0,0 +1,78 @@
+package crypto.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import crypto.ciphers.Caesar;
+import crypto.ciphers.OneTimePad;
+import crypto.ciphers.Vigenere;
+
+/**
+ * Benchmarks the cipher classes the way the GUI uses them: a new instance per message, the text set with
+ * getPlainText/getCipherText and the result read with outputCipherText/outputPlainText.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CipherClassBenchmark {
+	private String cipherText;
+
+	@Setup
+	public void prepareCipherText(TextInput input) {
+		cipherText = new String(input.letters);
+	}
+
+	@Benchmark
+	public String encrypt(TextInput input) {
+		switch(input.cipher) {
+		case CAESAR:
+			Caesar caesar = new Caesar();
+			caesar.getPlainText(input.text);
+			caesar.getKey(TextInput.CAESAR_KEY);
+			return caesar.outputCipherText();
+		case VIGENERE:
+			Vigenere vigenere = new Vigenere();
+			vigenere.getPlainText(input.text);
+			vigenere.getKey(TextInput.VIGENERE_KEY);
+			return vigenere.outputCipherText();
+		default:
+			OneTimePad oneTimePad = new OneTimePad();
+			oneTimePad.getPlainText(input.text);
+			return oneTimePad.outputCipherText();
+		}
+	}
+
+	@Benchmark
+	public String decrypt(TextInput input) {
+		switch(input.cipher) {
+		case CAESAR:
+			Caesar caesar = new Caesar();
+			caesar.getCipherText(cipherText);
+			caesar.getKey(TextInput.CAESAR_KEY);
+			return caesar.outputPlainText();
+		case VIGENERE:
+			Vigenere vigenere = new Vigenere();
+			vigenere.getCipherText(cipherText);
+			vigenere.getKey(TextInput.VIGENERE_KEY);
+			return vigenere.outputPlainText();
+		default:
+			OneTimePad oneTimePad = new OneTimePad();
+			oneTimePad.getCipherText(cipherText);
+			oneTimePad.getKey(input.oneTimePadKey);
+			return oneTimePad.outputPlainText();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package crypto.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import crypto.engine.AdaptiveEngine;
+import crypto.engine.MappedFileEngine;
+import crypto.engine.ParallelEngine;
+import crypto.engine.StreamingEngine;
+import crypto.engine.VectorEngine;
+
+/**
+ * Benchmarks every engine over the same inputs as CipherClassBenchmark. The engines shift in place or stream to a
+ * discarding sink, so the numbers measure the cipher work and the engine overhead only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "--add-modules", "jdk.incubator.vector" })
+public class EngineBenchmark {
+	private byte[] asciiText;
+	private char[] buffer;
+	private byte[] asciiBuffer;
+	private Path inputFile;
+	private Path outputFile;
+	private StreamingEngine streaming;
+	private MappedFileEngine mapped;
+	private ParallelEngine parallel;
+	private VectorEngine vector;
+	private AdaptiveEngine adaptive;
+
+	@Setup(Level.Trial)
+	public void createEngines(TextInput input) throws IOException {
+		asciiText = input.text.getBytes(StandardCharsets.US_ASCII);
+		buffer = input.letters.clone();
+		asciiBuffer = new String(input.letters).getBytes(StandardCharsets.US_ASCII);
+		inputFile = Files.createTempFile("benchmark-input", ".txt");
+		outputFile = Files.createTempFile("benchmark-output", ".txt");
+		Files.write(inputFile, asciiText);
+		streaming = new StreamingEngine(input.key);
+		mapped = new MappedFileEngine(input.key);
+		parallel = new ParallelEngine(input.key);
+		vector = new VectorEngine(input.key);
+		adaptive = new AdaptiveEngine(input.key);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFiles() throws IOException {
+		Files.deleteIfExists(inputFile);
+		Files.deleteIfExists(outputFile);
+	}
+
+	@Benchmark
+	public long streamingChars(TextInput input) throws IOException {
+		return streaming.encrypt(new CharArrayReader(input.text.toCharArray()), Writer.nullWriter());
+	}
+
+	@Benchmark
+	public long streamingBytes() throws IOException {
+		return streaming.encrypt(new ByteArrayInputStream(asciiText), OutputStream.nullOutputStream());
+	}
+
+	@Benchmark
+	public long mappedFile() throws IOException {
+		return mapped.encrypt(inputFile, outputFile);
+	}
+
+	@Benchmark
+	public char[] parallelEncrypt() {
+		parallel.shift(buffer, 0, buffer.length, 0, false);
+		return buffer;
+	}
+
+	@Benchmark
+	public char[] parallelDecrypt() {
+		parallel.shift(buffer, 0, buffer.length, 0, true);
+		return buffer;
+	}
+
+	@Benchmark
+	public byte[] parallelBytes() {
+		parallel.shift(asciiBuffer, 0, asciiBuffer.length, 0, false);
+		return asciiBuffer;
+	}
+
+	@Benchmark
+	public byte[] vectorEncrypt() {
+		vector.encrypt(asciiBuffer, 0, asciiBuffer.length);
+		return asciiBuffer;
+	}
+
+	@Benchmark
+	public byte[] vectorDecrypt() {
+		vector.decrypt(asciiBuffer, 0, asciiBuffer.length);
+		return asciiBuffer;
+	}
+
+	@Benchmark
+	public char[] adaptiveChars() {
+		adaptive.shift(buffer, 0, buffer, 0, buffer.length, 0, false);
+		return buffer;
+	}
+
+	@Benchmark
+	public byte[] adaptiveBytes() {
+		adaptive.shift(asciiBuffer, 0, asciiBuffer, 0, asciiBuffer.length, 0, false);
+		return asciiBuffer;
+	}
+}
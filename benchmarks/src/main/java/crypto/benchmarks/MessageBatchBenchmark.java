@@ -0,0 +1,85 @@
+package crypto.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import crypto.ciphers.Caesar;
+import crypto.ciphers.Cipher;
+import crypto.ciphers.MessageBatch;
+import crypto.ciphers.Vigenere;
+import crypto.engine.CipherKind;
+
+/**
+ * Benchmarks many short messages sharing a key: one cipher class instance per message, as the GUI does, against
+ * one MessageBatch for all of them. The score is batches of MESSAGES messages per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageBatchBenchmark {
+	private static final int MESSAGES = 10_000;
+
+	@Param({ "CAESAR", "VIGENERE" })
+	public CipherKind cipher;
+
+	private List<String> messages;
+	private Cipher batchCipher;
+
+	@Setup
+	public void generate() {
+		SplittableRandom random = new SplittableRandom(42);
+		messages = new ArrayList<>(MESSAGES);
+		for(int m = 0; m < MESSAGES; m++) {
+			int length = 20 + random.nextInt(181); // 20 to 200 characters
+			StringBuilder message = new StringBuilder(length);
+			for(int i = 0; i < length; i++) {
+				int r = random.nextInt(32);
+				message.append(r < 26 ? (char) ('a' + r) : ' ');
+			}
+			messages.add(message.toString());
+		}
+		batchCipher = (cipher == CipherKind.CAESAR) ? Cipher.caesar(TextInput.CAESAR_KEY)
+				: Cipher.vigenere(TextInput.VIGENERE_KEY);
+	}
+
+	@Benchmark
+	public void perMessage(Blackhole blackhole) {
+		for(String message : messages) {
+			if(cipher == CipherKind.CAESAR) {
+				Caesar caesar = new Caesar();
+				caesar.getPlainText(message);
+				caesar.getKey(TextInput.CAESAR_KEY);
+				blackhole.consume(caesar.outputCipherText());
+			}
+			else {
+				Vigenere vigenere = new Vigenere();
+				vigenere.getPlainText(message);
+				vigenere.getKey(TextInput.VIGENERE_KEY);
+				blackhole.consume(vigenere.outputCipherText());
+			}
+		}
+	}
+
+	@Benchmark
+	public MessageBatch batch() {
+		return MessageBatch.of(messages).encrypt(batchCipher);
+	}
+}
@@ -0,0 +1,87 @@
+package crypto.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import crypto.ciphers.Cipher;
+import crypto.ciphers.ResultCache;
+import crypto.engine.InputPolicy;
+
+/**
+ * Benchmarks traffic made of a few repeated templates, encrypted with the same Vigenere key by several threads:
+ * running the cipher for every message against answering from a ResultCache. The score is passes over MESSAGES
+ * messages per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ResultCacheBenchmark {
+	private static final int MESSAGES = 10_000;
+
+	@Param({ "100", "10000" })
+	public int templates;
+
+	@Param({ "200" })
+	public int length;
+
+	private List<String> messages;
+	private Cipher cipher;
+	private ResultCache cache;
+
+	@Setup
+	public void generate() {
+		SplittableRandom random = new SplittableRandom(42);
+		List<String> distinct = new ArrayList<>(templates);
+		for(int t = 0; t < templates; t++) {
+			StringBuilder template = new StringBuilder(length);
+			for(int i = 0; i < length; i++) {
+				int r = random.nextInt(32);
+				template.append(r < 26 ? (char) ('a' + r) : ' ');
+			}
+			distinct.add(template.toString());
+		}
+		messages = new ArrayList<>(MESSAGES);
+		for(int m = 0; m < MESSAGES; m++) {
+			messages.add(distinct.get(random.nextInt(templates)));
+		}
+		cipher = Cipher.vigenere(TextInput.VIGENERE_KEY);
+		cache = new ResultCache(ResultCache.DEFAULT_MAX_BYTES);
+	}
+
+	@Benchmark
+	public void direct(Blackhole blackhole) {
+		for(String message : messages) {
+			char[] text = message.toCharArray();
+			int len = InputPolicy.STRIP.normalize(text, 0, text.length);
+			cipher.encrypt(text, 0, len, text, 0, 0);
+			blackhole.consume(new String(text, 0, len));
+		}
+	}
+
+	@Benchmark
+	public void cached(Blackhole blackhole) {
+		for(String message : messages) {
+			blackhole.consume(cache.encrypt(cipher, message));
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package crypto.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import crypto.engine.MappedFileEngine;
+import crypto.engine.SegmentEngine;
+
+/**
+ * Benchmarks SegmentEngine against MappedFileEngine over the same inputs as EngineBenchmark: the letters shifted in
+ * place in an off-heap segment, and a whole file encrypted into another, which is what the file command does with
+ * --engine segment or mapped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "--add-modules", "jdk.incubator.foreign" })
+public class SegmentEngineBenchmark {
+	private ResourceScope scope;
+	private MemorySegment letters;
+	private Path inputFile;
+	private Path outputFile;
+	private SegmentEngine segment;
+	private MappedFileEngine mapped;
+
+	@Setup(Level.Trial)
+	public void createEngines(TextInput input) throws IOException {
+		byte[] ascii = new String(input.letters).getBytes(StandardCharsets.US_ASCII);
+		scope = ResourceScope.newSharedScope();
+		letters = MemorySegment.allocateNative(Math.max(ascii.length, 1), scope).asSlice(0, ascii.length);
+		letters.copyFrom(MemorySegment.ofArray(ascii));
+		inputFile = Files.createTempFile("benchmark-input", ".txt");
+		outputFile = Files.createTempFile("benchmark-output", ".txt");
+		Files.write(inputFile, input.text.getBytes(StandardCharsets.US_ASCII));
+		segment = new SegmentEngine(input.key);
+		mapped = new MappedFileEngine(input.key);
+	}
+
+	@TearDown(Level.Trial)
+	public void release() throws IOException {
+		scope.close();
+		Files.deleteIfExists(inputFile);
+		Files.deleteIfExists(outputFile);
+	}
+
+	@Benchmark
+	public long segmentEncrypt() {
+		return segment.encrypt(letters);
+	}
+
+	@Benchmark
+	public long segmentDecrypt() {
+		return segment.decrypt(letters);
+	}
+
+	@Benchmark
+	public long segmentFile() throws IOException {
+		return segment.encrypt(inputFile, outputFile);
+	}
+
+	@Benchmark
+	public long mappedFile() throws IOException {
+		return mapped.encrypt(inputFile, outputFile);
+	}
+}
@@ -0,0 +1,87 @@
+package crypto.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the start of short-lived processes, which JMH cannot do: the text command is launched again and again,
+ * with and without the class data sharing archive built by the -Pcds profile, and the time from the launch to the
+ * first byte of its output and to its exit are summarized. For example
+ * {@code java -cp benchmarks/target/benchmarks.jar crypto.benchmarks.StartupBenchmark
+ * encryptor/target/multicipherencryptor-1.0-SNAPSHOT.jar encryptor/target/multicipherencryptor.jsa 50}.
+ */
+public final class StartupBenchmark {
+
+	private StartupBenchmark() {
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if(args.length == 0) {
+			System.err.println("Usage: StartupBenchmark JAR [ARCHIVE] [RUNS]");
+			System.exit(2);
+		}
+		Path jar = Paths.get(args[0]).toAbsolutePath();
+		Path archive = (args.length > 1) ? Paths.get(args[1]).toAbsolutePath() : null;
+		int runs = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+		System.out.println(run(jar, null, runs));
+		if(archive != null) {
+			System.out.println(run(jar, archive, runs));
+		}
+	}
+
+	/**
+	 * Launches the text command the given number of times, after one untimed launch warming the file cache, and
+	 * returns the summary line.
+	 */
+	static String run(Path jar, Path archive, int runs) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		if(archive != null) {
+			command.add("-XX:SharedArchiveFile=" + archive);
+		}
+		command.add("-XX:TieredStopAtLevel=1");
+		command.add("-jar");
+		command.add(jar.getFileName().toString()); // Run from the jar's directory, the class path the archive was built with
+		command.addAll(List.of("text", "encrypt", "--cipher", "vigenere", "--key", "lemon", "--text", "Attack at dawn"));
+		ProcessBuilder builder = new ProcessBuilder(command).directory(jar.getParent().toFile())
+				.redirectError(ProcessBuilder.Redirect.INHERIT);
+		long[] firstByte = new long[runs];
+		long[] exit = new long[runs];
+		for(int r = -1; r < runs; r++) {
+			long start = System.nanoTime();
+			Process process = builder.start();
+			long first;
+			try(InputStream out = process.getInputStream()) {
+				if(out.read() == -1) {
+					throw new IllegalStateException("The text command wrote nothing");
+				}
+				first = System.nanoTime();
+				out.transferTo(OutputStream.nullOutputStream());
+			}
+			if(process.waitFor() != 0) {
+				throw new IllegalStateException("The text command failed");
+			}
+			if(r >= 0) {
+				firstByte[r] = first - start;
+				exit[r] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(firstByte);
+		Arrays.sort(exit);
+		return String.format(Locale.ROOT, "%s: %d launches, first byte p50 %.1f ms, p90 %.1f ms, exit p50 %.1f ms, p90 %.1f ms",
+				archive == null ? "without archive" : "with archive", runs,
+				firstByte[percentile(runs, 0.50)] / 1e6, firstByte[percentile(runs, 0.90)] / 1e6,
+				exit[percentile(runs, 0.50)] / 1e6, exit[percentile(runs, 0.90)] / 1e6);
+	}
+
+	private static int percentile(int length, double p) {
+		return Math.max(0, Math.min(length - 1, (int) Math.ceil(p * length) - 1));
+	}
+}
@@ -0,0 +1,80 @@
+package crypto.benchmarks;
+
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+
+/**
+ * Shared benchmark input: a generated text of the requested size and the key for the requested cipher.
+ * Every benchmark class uses this state, so all cipher paths and engines run over the same inputs.
+ */
+@State(Scope.Benchmark)
+public class TextInput {
+	public static final char[] VIGENERE_KEY = "lemon".toCharArray();
+	public static final int CAESAR_KEY = 3;
+
+	@Param({ "64", "4096", "1048576", "16777216", "268435456" })
+	public int size;
+
+	@Param({ "CAESAR", "VIGENERE", "ONE_TIME_PAD" })
+	public CipherKind cipher;
+
+	public String text; // Mixed case letters with spaces and newlines, as typed into the GUI
+	public char[] letters; // The same text, already prepared: lower case letters only
+	public char[] oneTimePadKey; // A key as long as the prepared text
+	public KeySchedule key;
+
+	@Setup
+	public void generate() {
+		SplittableRandom random = new SplittableRandom(42);
+		StringBuilder builder = new StringBuilder(size);
+		int letterCount = 0;
+		for(int i = 0; i < size; i++) {
+			int r = random.nextInt(64);
+			if(r < 26) {
+				builder.append((char) ('a' + r));
+				letterCount++;
+			}
+			else if(r < 52) {
+				builder.append((char) ('A' + r - 26));
+				letterCount++;
+			}
+			else {
+				builder.append(r == 63 ? '\n' : ' ');
+			}
+		}
+		text = builder.toString();
+		letters = new char[letterCount];
+		oneTimePadKey = new char[Math.max(letterCount, 1)];
+		for(int i = 0, j = 0; i < size; i++) {
+			char ch = text.charAt(i);
+			if(ch != ' ' && ch != '\n') {
+				letters[j++] = Character.toLowerCase(ch);
+			}
+		}
+		for(int i = 0; i < oneTimePadKey.length; i++) {
+			oneTimePadKey[i] = (char) ('a' + random.nextInt(26));
+		}
+		key = schedule();
+	}
+
+	/**
+	 * Returns the key schedule matching the cipher parameter.
+	 */
+	private KeySchedule schedule() {
+		switch(cipher) {
+		case CAESAR:
+			return KeySchedule.caesar(CAESAR_KEY);
+		case VIGENERE:
+			return KeySchedule.vigenere(VIGENERE_KEY);
+		default:
+			return KeySchedule.oneTimePad(oneTimePadKey);
+		}
+	}
+}
@@ -1,21 +1,65 @@
 package crypto;
 
+import java.io.IOException;
+import java.util.Arrays;
+
+import crypto.cli.BatchCommand;
+import crypto.cli.CalibrateCommand;
+import crypto.cli.CrackCommand;
+import crypto.cli.FileCommand;
+import crypto.cli.TextCommand;
 import crypto.gui.MainWindow;
+import crypto.service.CipherService;
 
 /**
  * The MultiCipherEncryptor class serves as the entry point for the cryptography application.
- * It initializes the main GUI window for cipher encryption and decryption operations.
- * This class launches the graphical user interface (GUI) for the user to interact with the application.
+ * Without arguments it initializes the main GUI window for cipher encryption and decryption operations.
+ * With an "encrypt" or "decrypt" command it runs headless in batch mode over a directory tree instead, and with
+ * "serve" it runs the local HTTP cipher service, and with "crack" it recovers a Caesar or Vigenere key from a cipher
+ * text file, with "text" it encrypts or decrypts a single text for scripts, with "file" it encrypts or decrypts one
+ * large file through a mapped-file or memory-segment engine, and with "calibrate" it measures the engine crossovers
+ * of the machine, in all cases without loading any AWT or Swing classes. The GUI classes are only referenced from
+ * launchWindow(), so they are loaded on demand.
  */
 public class MultiCipherEncryptor {
 
 	/**
      * The main method is the entry point of the application.
-     * It creates an instance of the MainWindow class, which contains the GUI for cipher operations.
+     * It runs the batch command given on the command line, or creates an instance of the MainWindow class,
+     * which contains the GUI for cipher operations.
      * 
-     * @param args Command-line arguments (not used in this case).
+     * @param args Command-line arguments: empty to open the GUI, a batch command (see BatchCommand),
+     * "serve [port]" to run the cipher service, a crack command (see CrackCommand), a text command (see TextCommand),
+     * a file command (see FileCommand) or "calibrate" (see CalibrateCommand).
+     * @throws IOException If the cipher service cannot bind its port.
      */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
+		if(TextCommand.accepts(args)) {
+			System.exit(TextCommand.run(args, System.in, System.out, System.err)); // Checked first: it is started most often
+		}
+		if(BatchCommand.accepts(args)) {
+			System.exit(BatchCommand.run(args, System.out, System.err)); // Headless batch mode
+		}
+		if(FileCommand.accepts(args)) {
+			System.exit(FileCommand.run(args, System.out, System.err)); // Headless large-file mode
+		}
+		if(CrackCommand.accepts(args)) {
+			System.exit(CrackCommand.run(args, System.out, System.err)); // Headless key recovery
+		}
+		if(CalibrateCommand.accepts(args)) {
+			System.exit(CalibrateCommand.run(args, System.out, System.err)); // Measures the engine crossovers
+		}
+		if(args.length > 0 && args[0].equals("serve")) {
+			CipherService.main(Arrays.copyOfRange(args, 1, args.length)); // Headless HTTP service
+			return;
+		}
+		launchWindow();
+	}
+	
+	/**
+	 * Opens the main window. Kept in its own method so that the Swing classes are only loaded when the GUI is used.
+	 */
+	private static void launchWindow() {
 		// Creates and displays the main window of the application
         // The MainWindow constructor takes the title of the window as a parameter
 		@SuppressWarnings("unused")
@@ -0,0 +1,341 @@
+package crypto.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import crypto.engine.KeySchedule;
+import crypto.engine.ShiftKernel;
+
+/**
+ * The Cryptanalyzer class recovers Caesar and Vigenere keys from cipher text alone.
+ * 
+ * Caesar: the letters are counted once into an int[26], and all 26 shifts are scored from those counts against
+ * English letter frequencies (chi-squared), so the text is never decrypted 26 times.
+ * 
+ * Vigenere: for every candidate key length the letters are counted per key column, and the length whose columns
+ * have the index of coincidence of English is chosen, with repeated trigrams (Kasiski examination) favouring the
+ * true length over its multiples. Each column is then a Caesar cipher and is solved from its counts.
+ * 
+ * Candidate key lengths, ranges of long texts and key columns all run as tasks on a ForkJoinPool.
+ * The text must be prepared the same way as in the cipher classes; characters other than 'a' to 'z' still take
+ * a key position, as they do when encrypting, but are not counted.
+ */
+public final class Cryptanalyzer {
+	public static final int DEFAULT_MAX_KEY_LENGTH = 40; // Longest Vigenere key tried by default
+	public static final int DEFAULT_THRESHOLD = 256 * 1024; // Letters below which a range is counted by one task
+	private static final int MIN_COLUMN_LETTERS = 16; // Fewest letters per column for a key length to be tried
+	private static final int KASISKI_WINDOW = 64 * 1024; // Letters searched for repeated trigrams
+	private static final double KASISKI_WEIGHT = 0.25; // Weight of the trigram votes against the index of coincidence
+	private static final double LENGTH_TOLERANCE = 0.9; // Shortest key length scoring this close to the best wins
+	private final ForkJoinPool pool; // The pool running the counting and solving tasks
+	private final int maxKeyLength; // The longest Vigenere key tried
+	private final int threshold; // The largest range counted without splitting
+	
+	/**
+	 * Creates an analyzer running on the common pool.
+	 */
+	public Cryptanalyzer() {
+		this(ForkJoinPool.commonPool(), DEFAULT_MAX_KEY_LENGTH, DEFAULT_THRESHOLD);
+	}
+	
+	/**
+	 * Creates an analyzer.
+	 * 
+	 * @param pool The pool running the counting and solving tasks.
+	 * @param maxKeyLength The longest Vigenere key tried.
+	 * @param threshold The largest range counted without splitting.
+	 */
+	public Cryptanalyzer(ForkJoinPool pool, int maxKeyLength, int threshold) {
+		if(maxKeyLength <= 0 || threshold <= 0) {
+			throw new IllegalArgumentException("The key length and split threshold must be positive");
+		}
+		this.pool = pool;
+		this.maxKeyLength = maxKeyLength;
+		this.threshold = threshold;
+	}
+	
+	/**
+	 * Recovers the key of a Caesar cipher text, prepared the same way as in the cipher classes.
+	 * 
+	 * @param cipherText The cipher text.
+	 * @return The most likely key.
+	 */
+	public RecoveredKey crackCaesar(String cipherText) {
+		char[] text = cipherText.toCharArray();
+		return crackCaesar(text, 0, ShiftKernel.prepare(text, 0, text.length));
+	}
+	
+	/**
+	 * Recovers the key of a range of Caesar cipher letters.
+	 * 
+	 * @param text The buffer holding the prepared cipher letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @return The most likely key.
+	 */
+	public RecoveredKey crackCaesar(char[] text, int off, int len) {
+		return caesar(pool.invoke(new CountTask(text, null, off, len, 1)));
+	}
+	
+	/**
+	 * Recovers the key of a range of Caesar cipher ASCII letters.
+	 * 
+	 * @param text The buffer holding the prepared cipher letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @return The most likely key.
+	 */
+	public RecoveredKey crackCaesar(byte[] text, int off, int len) {
+		return caesar(pool.invoke(new CountTask(null, text, off, len, 1)));
+	}
+	
+	/**
+	 * Recovers the key of a Vigenere cipher text, prepared the same way as in the cipher classes.
+	 * 
+	 * @param cipherText The cipher text.
+	 * @return The most likely key.
+	 */
+	public RecoveredKey crackVigenere(String cipherText) {
+		char[] text = cipherText.toCharArray();
+		return crackVigenere(text, 0, ShiftKernel.prepare(text, 0, text.length));
+	}
+	
+	/**
+	 * Recovers the key of a range of Vigenere cipher letters.
+	 * 
+	 * @param text The buffer holding the prepared cipher letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @return The most likely key.
+	 */
+	public RecoveredKey crackVigenere(char[] text, int off, int len) {
+		return pool.invoke(new VigenereTask(text, null, off, len));
+	}
+	
+	/**
+	 * Recovers the key of a range of Vigenere cipher ASCII letters.
+	 * 
+	 * @param text The buffer holding the prepared cipher letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @return The most likely key.
+	 */
+	public RecoveredKey crackVigenere(byte[] text, int off, int len) {
+		return pool.invoke(new VigenereTask(null, text, off, len));
+	}
+	
+	private static RecoveredKey caesar(int[] counts) {
+		int shift = LetterStatistics.bestShift(counts, 0);
+		return new RecoveredKey(KeySchedule.caesar(shift), Integer.toString(shift),
+				LetterStatistics.chiSquared(counts, 0, shift), LetterStatistics.indexOfCoincidence(counts, 1));
+	}
+	
+	/**
+	 * Estimates the key length, then solves every column of that length.
+	 */
+	@SuppressWarnings("serial")
+	private final class VigenereTask extends RecursiveTask<RecoveredKey> {
+		private final char[] chars; // The cipher letters, if given as chars
+		private final byte[] bytes; // The cipher letters, if given as bytes
+		private final int off;
+		private final int len;
+		
+		VigenereTask(char[] chars, byte[] bytes, int off, int len) {
+			this.chars = chars;
+			this.bytes = bytes;
+			this.off = off;
+			this.len = len;
+		}
+		
+		@Override
+		protected RecoveredKey compute() {
+			int lengths = Math.max(1, Math.min(maxKeyLength, len / MIN_COLUMN_LETTERS));
+			List<CountTask> candidates = new ArrayList<>(lengths);
+			for(int keyLength = 1; keyLength <= lengths; keyLength++) {
+				candidates.add(new CountTask(chars, bytes, off, len, keyLength));
+			}
+			KasiskiTask kasiski = new KasiskiTask(chars, bytes, off, Math.min(len, KASISKI_WINDOW), lengths);
+			kasiski.fork();
+			invokeAll(candidates); // Counts every candidate key length in parallel
+			int[] votes = kasiski.join();
+			
+			double[] ioc = new double[lengths + 1];
+			double bestIoc = 0;
+			for(int keyLength = 1; keyLength <= lengths; keyLength++) {
+				ioc[keyLength] = LetterStatistics.indexOfCoincidence(candidates.get(keyLength - 1).join(), keyLength);
+				bestIoc = Math.max(bestIoc, ioc[keyLength]);
+			}
+			int maxVotes = 0;
+			for(int vote : votes) {
+				maxVotes = Math.max(maxVotes, vote);
+			}
+			double[] score = new double[lengths + 1];
+			double bestScore = 0;
+			for(int keyLength = 1; keyLength <= lengths; keyLength++) {
+				score[keyLength] = (bestIoc == 0 ? 0 : ioc[keyLength] / bestIoc)
+						+ (maxVotes == 0 ? 0 : KASISKI_WEIGHT * votes[keyLength] / maxVotes);
+				bestScore = Math.max(bestScore, score[keyLength]);
+			}
+			int keyLength = 1;
+			while(score[keyLength] < LENGTH_TOLERANCE * bestScore) {
+				keyLength++; // Multiples of the key length score as well as the key length itself
+			}
+			
+			int[] counts = candidates.get(keyLength - 1).join();
+			byte[] shifts = new byte[keyLength];
+			new ColumnTask(counts, shifts, 0, keyLength).invoke(); // Solves every column in parallel
+			char[] letters = new char[keyLength];
+			double chi = 0;
+			for(int column = 0; column < keyLength; column++) {
+				letters[column] = (char) ('a' + shifts[column]);
+				chi += LetterStatistics.chiSquared(counts, column, shifts[column]);
+			}
+			return new RecoveredKey(KeySchedule.vigenere(letters), new String(letters), chi / keyLength,
+					ioc[keyLength]);
+		}
+	}
+	
+	/**
+	 * Counts the letters of a range per key column, splitting the range in halves until it is small enough to
+	 * count directly. The result holds 26 counts per column.
+	 */
+	@SuppressWarnings("serial")
+	private final class CountTask extends RecursiveTask<int[]> {
+		private final char[] chars; // The cipher letters, if given as chars
+		private final byte[] bytes; // The cipher letters, if given as bytes
+		private final int off;
+		private final int len;
+		private final int keyLength;
+		private final int column; // The key column of the first letter of the range
+		
+		CountTask(char[] chars, byte[] bytes, int off, int len, int keyLength) {
+			this(chars, bytes, off, len, keyLength, 0);
+		}
+		
+		private CountTask(char[] chars, byte[] bytes, int off, int len, int keyLength, int column) {
+			this.chars = chars;
+			this.bytes = bytes;
+			this.off = off;
+			this.len = len;
+			this.keyLength = keyLength;
+			this.column = column;
+		}
+		
+		@Override
+		protected int[] compute() {
+			if(len <= threshold) {
+				return count();
+			}
+			int half = len >>> 1;
+			CountTask right = new CountTask(chars, bytes, off + half, len - half, keyLength,
+					(int) ((column + (long) half) % keyLength));
+			right.fork();
+			int[] counts = new CountTask(chars, bytes, off, half, keyLength, column).compute();
+			int[] rightCounts = right.join();
+			for(int i = 0; i < counts.length; i++) {
+				counts[i] += rightCounts[i];
+			}
+			return counts;
+		}
+		
+		private int[] count() {
+			int[] counts = new int[keyLength * 26];
+			int base = column * 26; // Offset of the current column's counts
+			int last = counts.length - 26;
+			for(int i = off; i < off + len; i++) {
+				int letter = (chars != null ? chars[i] : bytes[i]) - 'a';
+				if(letter >= 0 && letter < 26) {
+					counts[base + letter]++;
+				}
+				base = (base == last) ? 0 : base + 26;
+			}
+			return counts;
+		}
+	}
+	
+	/**
+	 * Finds repeated trigrams and votes, for every candidate key length, for the distances between repeats that
+	 * it divides. Repeats in Vigenere text mostly come from the same plain trigram under the same key letters,
+	 * so their distances are multiples of the key length.
+	 */
+	@SuppressWarnings("serial")
+	private static final class KasiskiTask extends RecursiveTask<int[]> {
+		private final char[] chars; // The cipher letters, if given as chars
+		private final byte[] bytes; // The cipher letters, if given as bytes
+		private final int off;
+		private final int len;
+		private final int lengths;
+		
+		KasiskiTask(char[] chars, byte[] bytes, int off, int len, int lengths) {
+			this.chars = chars;
+			this.bytes = bytes;
+			this.off = off;
+			this.len = len;
+			this.lengths = lengths;
+		}
+		
+		@Override
+		protected int[] compute() {
+			int[] votes = new int[lengths + 1];
+			int[] lastSeen = new int[26 * 26 * 26]; // Last position + 1 of every trigram
+			int trigram = 0;
+			int run = 0; // Letters in a row ending at the current position
+			for(int i = 0; i < len; i++) {
+				int letter = (chars != null ? chars[off + i] : bytes[off + i]) - 'a';
+				if(letter < 0 || letter >= 26) {
+					run = 0;
+					continue;
+				}
+				trigram = (trigram * 26 + letter) % (26 * 26 * 26);
+				if(++run < 3) {
+					continue;
+				}
+				int previous = lastSeen[trigram];
+				lastSeen[trigram] = i + 1;
+				if(previous == 0) {
+					continue;
+				}
+				int distance = i + 1 - previous;
+				for(int keyLength = 1; keyLength <= lengths; keyLength++) {
+					if(distance % keyLength == 0) {
+						votes[keyLength]++;
+					}
+				}
+			}
+			return votes;
+		}
+	}
+	
+	/**
+	 * Solves a range of key columns, each as its own Caesar cipher, splitting the range in halves.
+	 */
+	@SuppressWarnings("serial")
+	private static final class ColumnTask extends RecursiveAction {
+		private final int[] counts;
+		private final byte[] shifts;
+		private final int from;
+		private final int to;
+		
+		ColumnTask(int[] counts, byte[] shifts, int from, int to) {
+			this.counts = counts;
+			this.shifts = shifts;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from <= 1) {
+				for(int column = from; column < to; column++) {
+					shifts[column] = (byte) LetterStatistics.bestShift(counts, column);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ColumnTask(counts, shifts, from, middle), new ColumnTask(counts, shifts, middle, to));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package crypto.analysis;
+
+/**
+ * The LetterStatistics class scores letter counts against English text. All methods work on primitive count
+ * arrays laid out as 26 counts per key column, so a whole key length is scored without boxing or copying.
+ */
+final class LetterStatistics {
+	// Relative frequencies of the letters 'a' to 'z' in English text
+	private static final double[] ENGLISH = {
+			0.08167, 0.01492, 0.02782, 0.04253, 0.12702, 0.02228, 0.02015, 0.06094, 0.06966, 0.00153,
+			0.00772, 0.04025, 0.02406, 0.06749, 0.07507, 0.01929, 0.00095, 0.05987, 0.06327, 0.09056,
+			0.02758, 0.00978, 0.02360, 0.00150, 0.01974, 0.00074 };
+	
+	private LetterStatistics() {
+	}
+	
+	/**
+	 * Returns the number of letters counted in one column.
+	 * 
+	 * @param counts The letter counts, 26 per column.
+	 * @param column The column.
+	 * @return The number of letters in the column.
+	 */
+	static int total(int[] counts, int column) {
+		int total = 0;
+		for(int i = column * 26; i < column * 26 + 26; i++) {
+			total += counts[i];
+		}
+		return total;
+	}
+	
+	/**
+	 * Returns the chi-squared distance between English text and one column decrypted with a shift.
+	 * The lower the distance, the more the decrypted column looks like English.
+	 * 
+	 * @param counts The letter counts of the cipher text, 26 per column.
+	 * @param column The column.
+	 * @param shift The shift to undo, from 0 to 25.
+	 * @return The chi-squared distance, or 0 for an empty column.
+	 */
+	static double chiSquared(int[] counts, int column, int shift) {
+		int total = total(counts, column);
+		double chi = 0;
+		for(int plain = 0; plain < 26 && total > 0; plain++) {
+			double expected = ENGLISH[plain] * total;
+			double diff = counts[column * 26 + (plain + shift) % 26] - expected; // Cipher letter of this plain letter
+			chi += diff * diff / expected;
+		}
+		return chi;
+	}
+	
+	/**
+	 * Finds the shift that makes one column look most like English. Every shift is scored from the same counts,
+	 * so the text itself is only read once, when counting.
+	 * 
+	 * @param counts The letter counts of the cipher text, 26 per column.
+	 * @param column The column.
+	 * @return The best shift, from 0 to 25.
+	 */
+	static int bestShift(int[] counts, int column) {
+		int best = 0;
+		double bestChi = Double.MAX_VALUE;
+		for(int shift = 0; shift < 26; shift++) {
+			double chi = chiSquared(counts, column, shift);
+			if(chi < bestChi) {
+				bestChi = chi;
+				best = shift;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Returns the average index of coincidence of the columns: the chance that two letters taken from the same
+	 * column are equal. English text scores about 0.066 and uniformly random letters about 0.038, so the right
+	 * key length is the one whose columns look like English.
+	 * 
+	 * @param counts The letter counts, 26 per column.
+	 * @param columns The number of columns.
+	 * @return The average index of coincidence, ignoring columns with fewer than two letters.
+	 */
+	static double indexOfCoincidence(int[] counts, int columns) {
+		double sum = 0;
+		int scored = 0;
+		for(int column = 0; column < columns; column++) {
+			long total = total(counts, column);
+			if(total < 2) {
+				continue;
+			}
+			long pairs = 0;
+			for(int i = column * 26; i < column * 26 + 26; i++) {
+				pairs += (long) counts[i] * (counts[i] - 1);
+			}
+			sum += (double) pairs / (total * (total - 1));
+			scored++;
+		}
+		return (scored == 0) ? 0 : sum / scored;
+	}
+}
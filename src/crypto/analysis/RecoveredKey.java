@@ -0,0 +1,75 @@
+package crypto.analysis;
+
+import java.util.Locale;
+
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+
+/**
+ * The RecoveredKey class is the result of a key recovery: the most likely key, with the statistics it was chosen on.
+ */
+public final class RecoveredKey {
+	private final KeySchedule key; // The recovered key
+	private final String keyText; // The key as typed in the GUI: a number for Caesar, letters for Vigenere
+	private final double chiSquared; // The average chi-squared distance of the key columns from English
+	private final double indexOfCoincidence; // The average index of coincidence of the key columns
+	
+	RecoveredKey(KeySchedule key, String keyText, double chiSquared, double indexOfCoincidence) {
+		this.key = key;
+		this.keyText = keyText;
+		this.chiSquared = chiSquared;
+		this.indexOfCoincidence = indexOfCoincidence;
+	}
+	
+	/**
+	 * Returns the recovered key, ready to decrypt the cipher text.
+	 * 
+	 * @return The key schedule.
+	 */
+	public KeySchedule key() {
+		return key;
+	}
+	
+	/**
+	 * Returns the cipher the key was recovered for.
+	 * 
+	 * @return The cipher kind.
+	 */
+	public CipherKind kind() {
+		return key.kind();
+	}
+	
+	/**
+	 * Returns the key as it is typed in the GUI.
+	 * 
+	 * @return The shift for Caesar, or the key letters for Vigenere.
+	 */
+	public String keyText() {
+		return keyText;
+	}
+	
+	/**
+	 * Returns how far the decrypted text is from English letter frequencies. Lower is better: English text
+	 * usually scores well below 100 per column, while a wrong key scores in the hundreds or more.
+	 * 
+	 * @return The average chi-squared distance of the key columns.
+	 */
+	public double chiSquared() {
+		return chiSquared;
+	}
+	
+	/**
+	 * Returns the average index of coincidence of the key columns, about 0.066 for English.
+	 * 
+	 * @return The index of coincidence.
+	 */
+	public double indexOfCoincidence() {
+		return indexOfCoincidence;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%s key %s (chi-squared %.1f, index of coincidence %.4f)",
+				key.kind(), keyText, chiSquared, indexOfCoincidence);
+	}
+}
@@ -1,49 +1,57 @@
 package crypto.ciphers;
 
+import crypto.engine.InputPolicy;
+
 /* 
  * Caesar Cipher Implementation for Encryption and Decryption. 
  * This class provides methods for performing Caesar cipher encryption and decryption on a given text using a specified key.
- * It handles both lowercase and uppercase letters by converting all inputs to lowercase and ignores whitespaces and newlines.
+ * By default it handles both lowercase and uppercase letters by converting all inputs to lowercase and ignores every other character;
+ * an InputPolicy can instead keep the text as typed or reject invalid input.
+ * It is a thin adapter over the thread-safe Cipher API: use Cipher.caesar directly to share one instance between threads.
  */
 
 public final class Caesar {
-	private int key; // The encryption key (shift value for Caesar cipher)
-	private String userInputText; // The input text to be encrypted or decrypted
+	private final InputPolicy policy; // How the input text is normalized
+	private Cipher cipher = Cipher.caesar(0); // The cipher for the encryption key (shift value for Caesar cipher)
 	private char[] plainTextChar; // Array of characters representing the plain text
 	private char[] cipherTextChar; // Array of characters representing the cipher text
-	private StringBuffer cipherText; // StringBuffer to hold the cipher text
-	private StringBuffer plainText; // StringBuffer to hold the decrypted plain text
+	
+	/**
+	 * Creates a Caesar cipher that lower cases its input and strips every character that is not a letter.
+	 */
+	public Caesar() {
+		this(InputPolicy.STRIP);
+	}
+	
+	/**
+	 * Creates a Caesar cipher that normalizes its input according to a given policy.
+	 * 
+	 * @param policy The input policy.
+	 */
+	public Caesar(InputPolicy policy) {
+		this.policy = policy;
+	}
 	
 	/**
 	 * 
-	 * Sets the input plain text, sanitizes it by removing whitespace and newlines, and prepares it for encryption.
+	 * Sets the input plain text and normalizes it according to the input policy for encryption.
 	 * 
 	 * @param inputText The text to be encrypted, should be a string of letters.
 	 */
 	public void getPlainText(String inputText) {
-		// Processes input text: converts to lowercase, removes spaces and newlines
-		userInputText = inputText;
-		userInputText = userInputText.toLowerCase();
-		userInputText = userInputText.replace(" ", "");
-		userInputText = userInputText.replace("\n", "");
-		cipherText = new StringBuffer(userInputText.length());
-		plainTextChar = userInputText.toCharArray();
+		// Processes input text in a single pass: lower cases and strips non-letters unless the policy says otherwise
+		plainTextChar = CipherTexts.prepare(inputText, policy);
 	}
 	
 	/**
 	 * 
-	 * Sets the input plain text, sanitizes it by removing whitespace and newlines, and prepares it for decryption.
+	 * Sets the input cipher text and normalizes it according to the input policy for decryption.
 	 * 
 	 * @param inputText The text to be decrypted, should be a string of letters.
 	 */
 	public void getCipherText(String inputText) {
-		// Processes input text: converts to lowercase, removes spaces and newlines
-		userInputText = inputText;
-		userInputText = userInputText.toLowerCase();
-		userInputText = userInputText.replace(" ", "");
-		userInputText = userInputText.replace("\n", "");
-		plainText = new StringBuffer(userInputText.length());
-		cipherTextChar = userInputText.toCharArray();
+		// Processes input text in a single pass: lower cases and strips non-letters unless the policy says otherwise
+		cipherTextChar = CipherTexts.prepare(inputText, policy);
 	}
 	
     /**
@@ -52,36 +60,8 @@ public final class Caesar {
      * @param inputKey The key (shift value) for encryption. It will be reduced to the range 0-25.
      */
 	public void getKey(int inputKey) {
-		// Ensure the key is within 0-25
-		key = (inputKey % 26);
-	}
-	
-	 /**
-     * Encrypts the plain text using the Caesar cipher.
-     */
-	private void encryption() {
-		// Iterates through each character of the plain text and applies Caesar cipher encryption
-		for(int i = 0; i < userInputText.length(); i++) {
-			char ch = plainTextChar[i];
-			ch = (char) ('a' + (ch - 'a' + key) % 26); // Applies the Caesar shift
-			cipherText.append(ch); // Appends the encrypted character to the cipher text
-		}
-	}
-	
-	/**
-     * Decrypts the cipher text using the Caesar cipher.
-     */
-	private void decryption() {
-		// Iterates through each character of the plain text and applies Caesar cipher decryption
-		for(int i = 0; i < userInputText.length(); i++) {
-			char ch = cipherTextChar[i];
-			ch = (char) ('a' + (ch - 'a' - key + 26) % 26); // Applies the reverse Caesar shift
-			plainText.append(ch); // Appends the decrypted character to the plain text
-			if((i % 35) == 0 && i > 0) {
-				plainText.append('\n');  /* Adds a newline after each 35 characters
-										 	to ensure text readability */
-			}
-		}
+		// Reuses the compiled substitution table for this key, the key is reduced to 0-25
+		cipher = Cipher.caesar(inputKey);
 	}
 	
 	/**
@@ -90,8 +70,14 @@ public final class Caesar {
      * @return The resulting encrypted cipher text as a string.
      */
 	public String outputCipherText() {
-		encryption(); // Performs encryption
-		return cipherText.toString(); // Returns the cipher text as a string
+		char[] cipherText = new char[plainTextChar.length];
+		if(policy == InputPolicy.PRESERVE) {
+			cipher.encryptPreserving(plainTextChar, 0, plainTextChar.length, cipherText, 0, 0);
+		}
+		else {
+			cipher.encrypt(plainTextChar, 0, plainTextChar.length, cipherText, 0); // Applies the Caesar shift
+		}
+		return new String(cipherText); // Returns the cipher text as a string
 	}
 	
 	/**
@@ -100,7 +86,13 @@ public final class Caesar {
      * @return The resulting decrypted plain text as a string.
      */
 	public String outputPlainText() {
-		decryption(); // Performs decryption
-		return plainText.toString(); // Returns the plain text as a string
+		char[] plainText = new char[cipherTextChar.length];
+		if(policy == InputPolicy.PRESERVE) {
+			cipher.decryptPreserving(cipherTextChar, 0, cipherTextChar.length, plainText, 0, 0);
+		}
+		else {
+			cipher.decrypt(cipherTextChar, 0, cipherTextChar.length, plainText, 0); // Applies the reverse Caesar shift
+		}
+		return new String(plainText); // Returns the plain text as a string
 	}
 }
@@ -0,0 +1,117 @@
+package crypto.ciphers;
+
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+
+/**
+ * The ChainedCipher class applies the passes of a CipherPipeline whose stages could not all be fused into one key.
+ * The first pass writes into the destination and the following passes shift the destination in place.
+ */
+final class ChainedCipher implements Cipher {
+	private final Cipher[] passes; // The fused cipher of each pass, in encryption order
+	
+	ChainedCipher(Cipher[] passes) {
+		this.passes = passes;
+	}
+	
+	/**
+	 * Returns the cipher of the last pass, which determines how the cipher text looks.
+	 */
+	@Override
+	public CipherKind kind() {
+		return passes[passes.length - 1].kind();
+	}
+	
+	/**
+	 * A chain of several passes has no single key, which the Cipher contract allows.
+	 * 
+	 * @throws UnsupportedOperationException Always; CipherPipeline reads the keys of the passes instead.
+	 */
+	@Override
+	public KeySchedule key() {
+		throw new UnsupportedOperationException("The pipeline has " + passes.length + " passes and no single key");
+	}
+	
+	/**
+	 * Returns the key of each pass, in encryption order.
+	 */
+	KeySchedule[] keys() {
+		KeySchedule[] keys = new KeySchedule[passes.length];
+		for(int i = 0; i < keys.length; i++) {
+			keys[i] = passes[i].key();
+		}
+		return keys;
+	}
+	
+	@Override
+	public int encrypt(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+		passes[0].encrypt(src, off, len, dst, dstOff, position);
+		for(int i = 1; i < passes.length; i++) {
+			passes[i].encrypt(dst, dstOff, len, dst, dstOff, position);
+		}
+		return len;
+	}
+	
+	@Override
+	public int decrypt(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+		passes[passes.length - 1].decrypt(src, off, len, dst, dstOff, position);
+		for(int i = passes.length - 2; i >= 0; i--) {
+			passes[i].decrypt(dst, dstOff, len, dst, dstOff, position);
+		}
+		return len;
+	}
+	
+	@Override
+	public int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+		passes[0].encrypt(src, off, len, dst, dstOff, position);
+		for(int i = 1; i < passes.length; i++) {
+			passes[i].encrypt(dst, dstOff, len, dst, dstOff, position);
+		}
+		return len;
+	}
+	
+	@Override
+	public int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+		passes[passes.length - 1].decrypt(src, off, len, dst, dstOff, position);
+		for(int i = passes.length - 2; i >= 0; i--) {
+			passes[i].decrypt(dst, dstOff, len, dst, dstOff, position);
+		}
+		return len;
+	}
+	
+	@Override
+	public int encryptPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+		int letters = passes[0].encryptPreserving(src, off, len, dst, dstOff, position);
+		for(int i = 1; i < passes.length; i++) {
+			passes[i].encryptPreserving(dst, dstOff, len, dst, dstOff, position);
+		}
+		return letters;
+	}
+	
+	@Override
+	public int decryptPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+		int letters = passes[passes.length - 1].decryptPreserving(src, off, len, dst, dstOff, position);
+		for(int i = passes.length - 2; i >= 0; i--) {
+			passes[i].decryptPreserving(dst, dstOff, len, dst, dstOff, position);
+		}
+		return letters;
+	}
+	
+	@Override
+	public int encryptPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+		int letters = passes[0].encryptPreserving(src, off, len, dst, dstOff, position);
+		for(int i = 1; i < passes.length; i++) {
+			passes[i].encryptPreserving(dst, dstOff, len, dst, dstOff, position);
+		}
+		return letters;
+	}
+	
+	@Override
+	public int decryptPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+		int letters = passes[passes.length - 1].decryptPreserving(src, off, len, dst, dstOff, position);
+		for(int i = passes.length - 2; i >= 0; i--) {
+			passes[i].decryptPreserving(dst, dstOff, len, dst, dstOff, position);
+		}
+		return letters;
+	}
+}
@@ -0,0 +1,288 @@
+package crypto.ciphers;
+
+import crypto.engine.CipherKind;
+import crypto.engine.CompiledKey;
+import crypto.engine.CompiledKeyCache;
+import crypto.engine.KeySchedule;
+
+/**
+ * The Cipher interface is the common, thread-safe API of the three ciphers.
+ * A Cipher is an immutable key bound to its algorithm: one instance can be shared by any number of threads and
+ * reused for any number of messages. Every method writes into buffers supplied by the caller and allocates nothing,
+ * apart from the fork/join tasks of a text long enough to be split across threads and a Flight Recorder event per
+ * call while a recording captures them.
+ * 
+ * The text must already be prepared: lower case letters only, as produced by InputPolicy.STRIP or REJECT.
+ * The position selects the key letter used for the first letter, so a long text can be processed in pieces.
+ * Text normalized with InputPolicy.PRESERVE goes through the preserving methods instead, where the position counts
+ * letters only.
+ */
+public interface Cipher {
+	
+	/**
+	 * Returns the cipher algorithm.
+	 * 
+	 * @return The cipher kind.
+	 */
+	CipherKind kind();
+	
+	/**
+	 * Returns the key this cipher applies (optional operation). The ciphers of Cipher.caesar, vigenere, oneTimePad
+	 * and of always have one; a cipher built by CipherPipeline from stages that could not be fused into one pass
+	 * has no single key and throws.
+	 * 
+	 * @return The key schedule.
+	 * @throws UnsupportedOperationException If the cipher applies several keys in turn.
+	 */
+	KeySchedule key();
+	
+	/**
+	 * Encrypts prepared letters into a caller-supplied buffer.
+	 * 
+	 * @param src The plain letters.
+	 * @param off The index of the first plain letter.
+	 * @param len The number of letters.
+	 * @param dst The buffer receiving the cipher letters; it may be src itself.
+	 * @param dstOff The index receiving the first cipher letter.
+	 * @param position The position of the first letter in the whole text.
+	 * @return The number of letters written.
+	 */
+	int encrypt(char[] src, int off, int len, char[] dst, int dstOff, long position);
+	
+	/**
+	 * Decrypts prepared letters into a caller-supplied buffer.
+	 * 
+	 * @param src The cipher letters.
+	 * @param off The index of the first cipher letter.
+	 * @param len The number of letters.
+	 * @param dst The buffer receiving the plain letters; it may be src itself.
+	 * @param dstOff The index receiving the first plain letter.
+	 * @param position The position of the first letter in the whole text.
+	 * @return The number of letters written.
+	 */
+	int decrypt(char[] src, int off, int len, char[] dst, int dstOff, long position);
+	
+	/**
+	 * Encrypts prepared ASCII letters into a caller-supplied buffer.
+	 * 
+	 * @param src The plain letters.
+	 * @param off The index of the first plain letter.
+	 * @param len The number of letters.
+	 * @param dst The buffer receiving the cipher letters; it may be src itself.
+	 * @param dstOff The index receiving the first cipher letter.
+	 * @param position The position of the first letter in the whole text.
+	 * @return The number of letters written.
+	 */
+	int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff, long position);
+	
+	/**
+	 * Decrypts prepared ASCII letters into a caller-supplied buffer.
+	 * 
+	 * @param src The cipher letters.
+	 * @param off The index of the first cipher letter.
+	 * @param len The number of letters.
+	 * @param dst The buffer receiving the plain letters; it may be src itself.
+	 * @param dstOff The index receiving the first plain letter.
+	 * @param position The position of the first letter in the whole text.
+	 * @return The number of letters written.
+	 */
+	int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff, long position);
+	
+	/**
+	 * Encrypts a text whose case and non-letters are preserved. Letters are shifted in their own case; every other
+	 * character is copied unchanged and does not use a key letter.
+	 * 
+	 * @param src The plain text.
+	 * @param off The index of the first plain character.
+	 * @param len The number of characters.
+	 * @param dst The buffer receiving the cipher text; it may be src itself.
+	 * @param dstOff The index receiving the first cipher character.
+	 * @param position The position of the first letter among the letters of the whole text.
+	 * @return The number of letters shifted, by which the position of the following text advances.
+	 */
+	int encryptPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position);
+	
+	/**
+	 * Decrypts a text whose case and non-letters are preserved.
+	 * 
+	 * @param src The cipher text.
+	 * @param off The index of the first cipher character.
+	 * @param len The number of characters.
+	 * @param dst The buffer receiving the plain text; it may be src itself.
+	 * @param dstOff The index receiving the first plain character.
+	 * @param position The position of the first letter among the letters of the whole text.
+	 * @return The number of letters shifted, by which the position of the following text advances.
+	 */
+	int decryptPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position);
+	
+	/**
+	 * Encrypts an ASCII text whose case and non-letters are preserved.
+	 * 
+	 * @param src The plain text.
+	 * @param off The index of the first plain byte.
+	 * @param len The number of bytes.
+	 * @param dst The buffer receiving the cipher text; it may be src itself.
+	 * @param dstOff The index receiving the first cipher byte.
+	 * @param position The position of the first letter among the letters of the whole text.
+	 * @return The number of letters shifted, by which the position of the following text advances.
+	 */
+	int encryptPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position);
+	
+	/**
+	 * Decrypts an ASCII text whose case and non-letters are preserved.
+	 * 
+	 * @param src The cipher text.
+	 * @param off The index of the first cipher byte.
+	 * @param len The number of bytes.
+	 * @param dst The buffer receiving the plain text; it may be src itself.
+	 * @param dstOff The index receiving the first plain byte.
+	 * @param position The position of the first letter among the letters of the whole text.
+	 * @return The number of letters shifted, by which the position of the following text advances.
+	 */
+	int decryptPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position);
+	
+	/**
+	 * Encrypts a batch of messages packed one after another in a buffer, in place. Every message starts at the
+	 * beginning of the key, as if it were encrypted on its own, but the call is checked and recorded once for the
+	 * whole batch. One-Time Pad keys cannot be shared by several messages.
+	 * 
+	 * @param buf The buffer holding the prepared letters of every message.
+	 * @param offsets The index of the first letter of each message, followed by the index after the last message.
+	 * @param count The number of messages.
+	 * @return The number of letters encrypted.
+	 */
+	default int encryptMessages(char[] buf, int[] offsets, int count) {
+		for(int i = 0; i < count; i++) {
+			encrypt(buf, offsets[i], offsets[i + 1] - offsets[i], buf, offsets[i]);
+		}
+		return offsets[count] - offsets[0];
+	}
+	
+	/**
+	 * Decrypts a batch of messages packed one after another in a buffer, in place.
+	 * 
+	 * @param buf The buffer holding the cipher letters of every message.
+	 * @param offsets The index of the first letter of each message, followed by the index after the last message.
+	 * @param count The number of messages.
+	 * @return The number of letters decrypted.
+	 */
+	default int decryptMessages(char[] buf, int[] offsets, int count) {
+		for(int i = 0; i < count; i++) {
+			decrypt(buf, offsets[i], offsets[i + 1] - offsets[i], buf, offsets[i]);
+		}
+		return offsets[count] - offsets[0];
+	}
+	
+	/**
+	 * Encrypts prepared letters from the start of the text.
+	 * 
+	 * @param src The plain letters.
+	 * @param off The index of the first plain letter.
+	 * @param len The number of letters.
+	 * @param dst The buffer receiving the cipher letters.
+	 * @param dstOff The index receiving the first cipher letter.
+	 * @return The number of letters written.
+	 */
+	default int encrypt(char[] src, int off, int len, char[] dst, int dstOff) {
+		return encrypt(src, off, len, dst, dstOff, 0);
+	}
+	
+	/**
+	 * Decrypts prepared letters from the start of the text.
+	 * 
+	 * @param src The cipher letters.
+	 * @param off The index of the first cipher letter.
+	 * @param len The number of letters.
+	 * @param dst The buffer receiving the plain letters.
+	 * @param dstOff The index receiving the first plain letter.
+	 * @return The number of letters written.
+	 */
+	default int decrypt(char[] src, int off, int len, char[] dst, int dstOff) {
+		return decrypt(src, off, len, dst, dstOff, 0);
+	}
+	
+	/**
+	 * Encrypts prepared ASCII letters from the start of the text.
+	 * 
+	 * @param src The plain letters.
+	 * @param off The index of the first plain letter.
+	 * @param len The number of letters.
+	 * @param dst The buffer receiving the cipher letters.
+	 * @param dstOff The index receiving the first cipher letter.
+	 * @return The number of letters written.
+	 */
+	default int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff) {
+		return encrypt(src, off, len, dst, dstOff, 0);
+	}
+	
+	/**
+	 * Decrypts prepared ASCII letters from the start of the text.
+	 * 
+	 * @param src The cipher letters.
+	 * @param off The index of the first cipher letter.
+	 * @param len The number of letters.
+	 * @param dst The buffer receiving the plain letters.
+	 * @param dstOff The index receiving the first plain letter.
+	 * @return The number of letters written.
+	 */
+	default int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff) {
+		return decrypt(src, off, len, dst, dstOff, 0);
+	}
+	
+	/**
+	 * Returns this cipher answering its char calls from a result cache (optional, opt-in): a prepared text encrypted
+	 * or decrypted again at the same key position is copied from the cache instead of being shifted. Each call then
+	 * copies its text into a cache key, so this only pays off for short texts that repeat, such as templates and
+	 * status strings. A One-Time Pad cipher, or a chain of passes, is returned unchanged, since its results must
+	 * never be reused.
+	 * 
+	 * @param cache The cache holding the results, such as ResultCache.shared().
+	 * @return The caching cipher, or this cipher when it cannot be cached.
+	 */
+	default Cipher cached(ResultCache cache) {
+		return cache.wrap(this);
+	}
+	
+	/**
+	 * Returns the Caesar cipher for a shift value.
+	 * 
+	 * @param key The shift value; it will be reduced to the range 0-25.
+	 * @return The cipher.
+	 */
+	static Cipher caesar(int key) {
+		return of(KeySchedule.caesar(key));
+	}
+	
+	/**
+	 * Returns the Vigenere cipher for some key letters.
+	 * 
+	 * @param key The key letters.
+	 * @return The cipher.
+	 */
+	static Cipher vigenere(char[] key) {
+		return of(KeySchedule.vigenere(key));
+	}
+	
+	/**
+	 * Returns the One-Time Pad cipher for a key as long as the message.
+	 * 
+	 * @param key The key letters.
+	 * @return The cipher.
+	 */
+	static Cipher oneTimePad(char[] key) {
+		return of(KeySchedule.oneTimePad(key));
+	}
+	
+	/**
+	 * Returns the cipher for a key schedule. Caesar and Vigenere keys of up to CompiledKey.MAX_COMPILED_LENGTH
+	 * letters use the compiled substitution tables of the shared key cache; longer keys, such as the fused keys of a
+	 * CipherPipeline, use the shift kernel so that the cache never holds megabytes of tables.
+	 * 
+	 * @param key The key schedule.
+	 * @return The cipher.
+	 */
+	static Cipher of(KeySchedule key) {
+		boolean compile = key.kind() != CipherKind.ONE_TIME_PAD && key.length() <= CompiledKey.MAX_COMPILED_LENGTH;
+		return new ShiftCipher(key, compile ? CompiledKeyCache.shared().get(key) : null);
+	}
+}
@@ -0,0 +1,136 @@
+package crypto.ciphers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+
+/**
+ * The CipherPipeline class builds a chain of cipher stages, such as Caesar followed by Vigenere, as a single Cipher.
+ * Every stage is a shift, so consecutive stages fuse algebraically into one key: Caesar and Caesar become one Caesar,
+ * and Vigenere keys of lengths m and n become one Vigenere key of length lcm(m, n). A chain of any number of stages
+ * then costs one pass over the text. Only when a fused key would grow beyond MAX_FUSED_LENGTH does the chain start
+ * a new pass.
+ * 
+ * Encrypting with the built cipher applies the stages in order; decrypting undoes them in reverse order.
+ * The pipeline itself is a builder and is not thread-safe, but the cipher it builds is.
+ */
+public final class CipherPipeline {
+	public static final int MAX_FUSED_LENGTH = 64 * 1024; // Longest fused periodic key before a new pass is started
+	private final List<KeySchedule> passes = new ArrayList<>(); // Fused key of each pass, in order
+	private int stages; // Number of stages added
+	
+	/**
+	 * Appends a stage that encrypts with a key.
+	 * 
+	 * @param key The key of the stage.
+	 * @return This pipeline.
+	 */
+	public CipherPipeline encrypt(KeySchedule key) {
+		stages++;
+		int last = passes.size() - 1;
+		if(last >= 0 && fits(passes.get(last), key)) {
+			passes.set(last, passes.get(last).then(key)); // Fuses with the previous stages
+		}
+		else {
+			passes.add(key);
+		}
+		return this;
+	}
+	
+	/**
+	 * Appends a stage that decrypts with a key.
+	 * 
+	 * @param key The key of the stage.
+	 * @return This pipeline.
+	 */
+	public CipherPipeline decrypt(KeySchedule key) {
+		return encrypt(key.inverse());
+	}
+	
+	/**
+	 * Appends a stage that encrypts with a cipher. A cipher built by another pipeline appends the keys of its
+	 * passes in order.
+	 * 
+	 * @param cipher The cipher of the stage.
+	 * @return This pipeline.
+	 */
+	public CipherPipeline encrypt(Cipher cipher) {
+		if(cipher instanceof ChainedCipher) {
+			KeySchedule[] keys = ((ChainedCipher) cipher).keys();
+			for(KeySchedule key : keys) {
+				encrypt(key);
+			}
+			stages -= keys.length - 1; // The chain counts as one stage
+			return this;
+		}
+		return encrypt(cipher.key());
+	}
+	
+	/**
+	 * Appends a stage that decrypts with a cipher. A cipher built by another pipeline appends the inverse keys of
+	 * its passes in reverse order.
+	 * 
+	 * @param cipher The cipher of the stage.
+	 * @return This pipeline.
+	 */
+	public CipherPipeline decrypt(Cipher cipher) {
+		if(cipher instanceof ChainedCipher) {
+			KeySchedule[] keys = ((ChainedCipher) cipher).keys();
+			for(int i = keys.length - 1; i >= 0; i--) {
+				decrypt(keys[i]);
+			}
+			stages -= keys.length - 1; // The chain counts as one stage
+			return this;
+		}
+		return decrypt(cipher.key());
+	}
+	
+	/**
+	 * Returns the number of stages added so far.
+	 * 
+	 * @return The stage count.
+	 */
+	public int stages() {
+		return stages;
+	}
+	
+	/**
+	 * Returns the number of passes over the text the built cipher makes, normally one.
+	 * 
+	 * @return The pass count.
+	 */
+	public int passes() {
+		return Math.max(1, passes.size());
+	}
+	
+	/**
+	 * Builds the cipher applying all stages added so far. A pipeline of one pass returns a plain Cipher of the
+	 * fused key, with no overhead over a single stage.
+	 * 
+	 * @return The cipher.
+	 */
+	public Cipher build() {
+		if(passes.isEmpty()) {
+			return Cipher.caesar(0); // No stage: the text is left unchanged
+		}
+		if(passes.size() == 1) {
+			return Cipher.of(passes.get(0));
+		}
+		Cipher[] ciphers = new Cipher[passes.size()];
+		for(int i = 0; i < ciphers.length; i++) {
+			ciphers[i] = Cipher.of(passes.get(i));
+		}
+		return new ChainedCipher(ciphers);
+	}
+	
+	/**
+	 * Returns whether two keys fuse into a key no longer than MAX_FUSED_LENGTH. One-Time Pad keys always fuse,
+	 * since the result is never longer than the pad.
+	 */
+	private static boolean fits(KeySchedule first, KeySchedule second) {
+		return first.kind() == CipherKind.ONE_TIME_PAD || second.kind() == CipherKind.ONE_TIME_PAD
+				|| KeySchedule.fusedLength(first, second) <= MAX_FUSED_LENGTH;
+	}
+}
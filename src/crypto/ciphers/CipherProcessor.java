@@ -0,0 +1,331 @@
+package crypto.ciphers;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import crypto.engine.InputPolicy;
+
+/**
+ * The CipherProcessor class is a Flow.Processor that encrypts or decrypts a stream of ByteBuffer or CharBuffer
+ * chunks, for use in reactive pipelines. Each chunk is prepared the same way as in the cipher classes (lower cased,
+ * every non-letter removed) and shifted at the key position reached by the chunks before it, so a message of any
+ * length gives the same result as in one piece, for Caesar, Vigenere and One-Time Pad alike.
+ * 
+ * The processor has a single subscriber and honors its demand: a chunk is only requested from upstream when the
+ * subscriber has requested one, so the memory used is bounded by the number of chunks requested, not by the size
+ * of the message. Chunks are processed one at a time, in order, on the given executor; Runnable::run processes them
+ * on the thread delivering them. Input chunks are read but never modified, and each output chunk is a new buffer.
+ * 
+ * @param <T> ByteBuffer of ASCII text, or CharBuffer.
+ */
+public abstract class CipherProcessor<T extends Buffer> implements Flow.Processor<T, T> {
+	private final Cipher cipher; // The cipher applied to the chunks
+	private final boolean decrypt; // True to decrypt
+	private final Executor executor; // Runs the chunks through the cipher
+	private final Queue<T> received = new ConcurrentLinkedQueue<>(); // Chunks received and not processed yet
+	private final AtomicInteger pendingDrains = new AtomicInteger(); // Drain requests not handled yet
+	private Flow.Subscription upstream; // The subscription to the source of chunks, once subscribed
+	private Flow.Subscriber<? super T> downstream; // The single subscriber, once subscribed
+	private long pendingDemand; // Chunks requested by the subscriber before the upstream subscription arrived
+	private volatile long position; // Letters processed so far, which select the key letter of the next chunk
+	private volatile boolean upstreamDone; // True once upstream has completed or failed
+	private volatile Throwable failure; // The upstream or cipher failure, if any
+	private boolean terminated; // True once the subscriber has been told the stream has ended
+	private volatile boolean cancelled; // True once the subscriber has cancelled
+	
+	private CipherProcessor(Cipher cipher, boolean decrypt, Executor executor) {
+		this.cipher = cipher;
+		this.decrypt = decrypt;
+		this.executor = executor;
+	}
+	
+	/**
+	 * Returns a processor encrypting ASCII text chunks.
+	 * 
+	 * @param cipher The cipher.
+	 * @param executor The executor processing the chunks.
+	 * @return The processor.
+	 */
+	public static CipherProcessor<ByteBuffer> encryptBytes(Cipher cipher, Executor executor) {
+		return new ByteProcessor(cipher, false, executor);
+	}
+	
+	/**
+	 * Returns a processor decrypting ASCII text chunks.
+	 * 
+	 * @param cipher The cipher.
+	 * @param executor The executor processing the chunks.
+	 * @return The processor.
+	 */
+	public static CipherProcessor<ByteBuffer> decryptBytes(Cipher cipher, Executor executor) {
+		return new ByteProcessor(cipher, true, executor);
+	}
+	
+	/**
+	 * Returns a processor encrypting character chunks.
+	 * 
+	 * @param cipher The cipher.
+	 * @param executor The executor processing the chunks.
+	 * @return The processor.
+	 */
+	public static CipherProcessor<CharBuffer> encryptChars(Cipher cipher, Executor executor) {
+		return new CharProcessor(cipher, false, executor);
+	}
+	
+	/**
+	 * Returns a processor decrypting character chunks.
+	 * 
+	 * @param cipher The cipher.
+	 * @param executor The executor processing the chunks.
+	 * @return The processor.
+	 */
+	public static CipherProcessor<CharBuffer> decryptChars(Cipher cipher, Executor executor) {
+		return new CharProcessor(cipher, true, executor);
+	}
+	
+	/**
+	 * Prepares a chunk into a new buffer and shifts it.
+	 * 
+	 * @param chunk The received chunk; its content is left unchanged.
+	 * @param cipher The cipher.
+	 * @param position The position of the first letter of the chunk in the whole text.
+	 * @param decrypt True to decrypt.
+	 * @return The processed chunk, holding only letters.
+	 */
+	abstract T process(T chunk, Cipher cipher, long position, boolean decrypt);
+	
+	/**
+	 * Returns the number of letters processed so far.
+	 * 
+	 * @return The letter count.
+	 */
+	public long position() {
+		return position;
+	}
+	
+	@Override
+	public synchronized void subscribe(Flow.Subscriber<? super T> subscriber) {
+		if(downstream != null) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+				}
+				
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("A cipher processor has a single subscriber"));
+			return;
+		}
+		downstream = subscriber;
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				if(n <= 0) {
+					Flow.Subscription subscription = upstream();
+					if(subscription != null) {
+						subscription.cancel();
+					}
+					fail(new IllegalArgumentException("The demand must be positive"));
+					return;
+				}
+				demand(n);
+			}
+			
+			@Override
+			public void cancel() {
+				cancelled = true;
+				Flow.Subscription subscription = upstream();
+				if(subscription != null) {
+					subscription.cancel();
+				}
+			}
+		});
+		drain(); // Upstream may have ended before the subscriber arrived
+	}
+	
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		long demand;
+		synchronized(this) {
+			if(upstream != null) {
+				subscription.cancel(); // Already subscribed to a source
+				return;
+			}
+			upstream = subscription;
+			demand = pendingDemand;
+			pendingDemand = 0;
+		}
+		if(cancelled) {
+			subscription.cancel();
+		}
+		else if(demand > 0) {
+			subscription.request(demand);
+		}
+	}
+	
+	/**
+	 * Forwards the subscriber's demand upstream, or keeps it until the upstream subscription arrives.
+	 */
+	private void demand(long n) {
+		Flow.Subscription subscription;
+		synchronized(this) {
+			subscription = upstream;
+			if(subscription == null) {
+				pendingDemand = (pendingDemand + n < 0) ? Long.MAX_VALUE : pendingDemand + n;
+				return;
+			}
+		}
+		subscription.request(n);
+	}
+	
+	private synchronized Flow.Subscription upstream() {
+		return upstream;
+	}
+	
+	@Override
+	public void onNext(T chunk) {
+		received.add(chunk);
+		drain();
+	}
+	
+	@Override
+	public void onError(Throwable throwable) {
+		fail(throwable);
+	}
+	
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+	
+	private void fail(Throwable throwable) {
+		if(failure == null) {
+			failure = throwable;
+		}
+		upstreamDone = true;
+		drain();
+	}
+	
+	/**
+	 * Schedules a drain on the executor unless one is already scheduled or running, in which case that one drains
+	 * again. Chunks are therefore processed by one task at a time, in the order they were received.
+	 */
+	private void drain() {
+		if(pendingDrains.getAndIncrement() == 0) {
+			executor.execute(this::drainLoop);
+		}
+	}
+	
+	private void drainLoop() {
+		int missed = 1;
+		do {
+			drainReceived();
+			missed = pendingDrains.addAndGet(-missed);
+		}
+		while(missed != 0);
+	}
+	
+	/**
+	 * Processes the received chunks and passes them on, then ends the stream once upstream has ended.
+	 */
+	private void drainReceived() {
+		Flow.Subscriber<? super T> subscriber;
+		synchronized(this) {
+			subscriber = downstream;
+		}
+		if(subscriber == null || terminated) {
+			return;
+		}
+		T chunk;
+		while(!cancelled && failure == null && (chunk = received.poll()) != null) {
+			T out;
+			try {
+				out = process(chunk, cipher, position, decrypt);
+			}
+			catch(RuntimeException ex) {
+				upstream().cancel();
+				failure = ex; // For example, a One-Time Pad key shorter than the text
+				upstreamDone = true;
+				break;
+			}
+			position += out.remaining();
+			if(out.hasRemaining()) {
+				subscriber.onNext(out);
+			}
+			else {
+				upstream().request(1); // Nothing left to pass on: the demand is still open
+			}
+		}
+		if(cancelled) {
+			received.clear();
+			return;
+		}
+		if(upstreamDone && (failure != null || received.isEmpty())) {
+			terminated = true;
+			received.clear();
+			if(failure != null) {
+				subscriber.onError(failure);
+			}
+			else {
+				subscriber.onComplete();
+			}
+		}
+	}
+	
+	/**
+	 * Processes chunks of ASCII text.
+	 */
+	private static final class ByteProcessor extends CipherProcessor<ByteBuffer> {
+		
+		ByteProcessor(Cipher cipher, boolean decrypt, Executor executor) {
+			super(cipher, decrypt, executor);
+		}
+		
+		@Override
+		ByteBuffer process(ByteBuffer chunk, Cipher cipher, long position, boolean decrypt) {
+			byte[] text = new byte[chunk.remaining()];
+			chunk.duplicate().get(text); // Copies heap, direct and read-only buffers alike
+			int count = InputPolicy.STRIP.normalize(text, 0, text.length);
+			if(decrypt) {
+				cipher.decrypt(text, 0, count, text, 0, position);
+			}
+			else {
+				cipher.encrypt(text, 0, count, text, 0, position);
+			}
+			return ByteBuffer.wrap(text, 0, count);
+		}
+	}
+	
+	/**
+	 * Processes chunks of characters.
+	 */
+	private static final class CharProcessor extends CipherProcessor<CharBuffer> {
+		
+		CharProcessor(Cipher cipher, boolean decrypt, Executor executor) {
+			super(cipher, decrypt, executor);
+		}
+		
+		@Override
+		CharBuffer process(CharBuffer chunk, Cipher cipher, long position, boolean decrypt) {
+			char[] text = new char[chunk.remaining()];
+			chunk.duplicate().get(text);
+			int count = InputPolicy.STRIP.normalize(text, 0, text.length);
+			if(decrypt) {
+				cipher.decrypt(text, 0, count, text, 0, position);
+			}
+			else {
+				cipher.encrypt(text, 0, count, text, 0, position);
+			}
+			return CharBuffer.wrap(text, 0, count);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package crypto.ciphers;
+
+import java.util.Arrays;
+
+import crypto.engine.InputPolicy;
+
+/**
+ * The CipherTexts class holds the text handling shared by the Caesar, Vigenere and OneTimePad adapters:
+ * preparing the user's input for a Cipher. Decrypted text is returned raw; LineWrappingWriter formats it for display.
+ */
+final class CipherTexts {
+	
+	private CipherTexts() {
+	}
+	
+	/**
+	 * Normalizes the input according to a policy in a single pass over a copy of the text.
+	 * 
+	 * @param inputText The text typed by the user.
+	 * @param policy The input policy of the cipher class.
+	 * @return The prepared text.
+	 */
+	static char[] prepare(String inputText, InputPolicy policy) {
+		char[] text = inputText.toCharArray();
+		int length = policy.normalize(text, 0, text.length);
+		return (length == text.length) ? text : Arrays.copyOf(text, length);
+	}
+}
@@ -0,0 +1,65 @@
+package crypto.ciphers;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The LineWrappingWriter class is a Writer decorator that breaks the text written through it into lines of a fixed
+ * length, for display. The column is kept between writes, so text written in chunks is wrapped the same way as
+ * text written at once. Text is passed on one line segment at a time, not character by character. There is no
+ * line break after the last line.
+ */
+public final class LineWrappingWriter extends Writer {
+	public static final int DEFAULT_LINE_LENGTH = 35; // Characters per line in the GUI
+	private final Writer out; // The writer receiving the wrapped text
+	private final int lineLength; // Characters per line, line break excluded
+	private int column; // Characters written on the current line
+	
+	/**
+	 * Creates a writer with lines of the default length.
+	 * 
+	 * @param out The writer receiving the wrapped text.
+	 */
+	public LineWrappingWriter(Writer out) {
+		this(out, DEFAULT_LINE_LENGTH);
+	}
+	
+	/**
+	 * Creates a writer.
+	 * 
+	 * @param out The writer receiving the wrapped text.
+	 * @param lineLength The number of characters per line.
+	 */
+	public LineWrappingWriter(Writer out, int lineLength) {
+		if(lineLength <= 0) {
+			throw new IllegalArgumentException("The line length must be positive");
+		}
+		this.out = out;
+		this.lineLength = lineLength;
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		int end = off + len;
+		while(off < end) {
+			if(column == lineLength) {
+				out.write('\n'); // Written before the next line only, so the text never ends with a line break
+				column = 0;
+			}
+			int n = Math.min(end - off, lineLength - column);
+			out.write(cbuf, off, n);
+			off += n;
+			column += n;
+		}
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,188 @@
+package crypto.ciphers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.List;
+
+import crypto.engine.InputPolicy;
+
+/**
+ * The MessageBatch class packs many short messages that share a key into one contiguous buffer, so that they are
+ * prepared in one pass and encrypted or decrypted with a single Cipher call. The per-message cost is reduced to
+ * copying the message into the buffer: there is no cipher object, key walk or result string per message.
+ * Results are read back through offsets into the shared buffer, or as CharSequence views of it.
+ * 
+ * A batch is not thread-safe. The Cipher it is used with can be shared.
+ */
+public final class MessageBatch {
+	private final char[] buffer; // Prepared letters of every message, one after another
+	private final int[] offsets; // Start of each message in the buffer, followed by the end of the last one
+	private final int size; // Number of messages
+	
+	private MessageBatch(char[] buffer, int[] offsets, int size) {
+		this.buffer = buffer;
+		this.offsets = offsets;
+		this.size = size;
+	}
+	
+	/**
+	 * Packs messages into a batch, lower casing them and removing every non-letter.
+	 * 
+	 * @param messages The messages.
+	 * @return The batch.
+	 */
+	public static MessageBatch of(List<? extends CharSequence> messages) {
+		return of(messages, InputPolicy.STRIP);
+	}
+	
+	/**
+	 * Packs messages given one by one, such as a few literals, into a batch in argument order. They are prepared
+	 * the same way as by of(List).
+	 * 
+	 * @param messages The messages, none of them null.
+	 * @return The batch; an empty batch when no message is given.
+	 */
+	public static MessageBatch of(CharSequence... messages) {
+		return of(List.of(messages), InputPolicy.STRIP);
+	}
+	
+	/**
+	 * Packs messages into a batch, normalizing each one in place in the shared buffer.
+	 * 
+	 * @param messages The messages.
+	 * @param policy STRIP or REJECT; preserved text cannot be packed, since the batch only holds letters.
+	 * @return The batch.
+	 * @throws IllegalArgumentException If the policy is PRESERVE, or REJECT and a message holds an invalid character.
+	 */
+	public static MessageBatch of(List<? extends CharSequence> messages, InputPolicy policy) {
+		if(policy == InputPolicy.PRESERVE) {
+			throw new IllegalArgumentException("A message batch only holds letters");
+		}
+		long total = 0;
+		for(CharSequence message : messages) {
+			total += message.length();
+		}
+		if(total > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("The messages are too long for one batch");
+		}
+		char[] buffer = new char[(int) total];
+		int[] offsets = new int[messages.size() + 1];
+		int end = 0;
+		int i = 0;
+		for(CharSequence message : messages) {
+			int len = message.length();
+			if(message instanceof String) {
+				((String) message).getChars(0, len, buffer, end);
+			}
+			else {
+				for(int c = 0; c < len; c++) {
+					buffer[end + c] = message.charAt(c);
+				}
+			}
+			offsets[i++] = end;
+			end += policy.normalize(buffer, end, len); // The next message overwrites what was removed
+		}
+		offsets[i] = end;
+		return new MessageBatch(buffer, offsets, i);
+	}
+	
+	/**
+	 * Encrypts every message of the batch in place, each from the start of the key.
+	 * 
+	 * @param cipher The cipher shared by the messages; it cannot be a One-Time Pad unless the batch holds one message.
+	 * @return This batch.
+	 */
+	public MessageBatch encrypt(Cipher cipher) {
+		cipher.encryptMessages(buffer, offsets, size);
+		return this;
+	}
+	
+	/**
+	 * Decrypts every message of the batch in place, each from the start of the key.
+	 * 
+	 * @param cipher The cipher shared by the messages.
+	 * @return This batch.
+	 */
+	public MessageBatch decrypt(Cipher cipher) {
+		cipher.decryptMessages(buffer, offsets, size);
+		return this;
+	}
+	
+	/**
+	 * Returns the number of messages.
+	 * 
+	 * @return The message count.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the buffer holding the letters of every message. It is shared with the batch, not copied.
+	 * 
+	 * @return The buffer.
+	 */
+	public char[] buffer() {
+		return buffer;
+	}
+	
+	/**
+	 * Returns the index of the first letter of a message in the buffer.
+	 * 
+	 * @param index The index of the message.
+	 * @return The offset of the message.
+	 */
+	public int offset(int index) {
+		checkIndex(index);
+		return offsets[index];
+	}
+	
+	/**
+	 * Returns the number of letters of a message.
+	 * 
+	 * @param index The index of the message.
+	 * @return The length of the message.
+	 */
+	public int length(int index) {
+		checkIndex(index);
+		return offsets[index + 1] - offsets[index];
+	}
+	
+	/**
+	 * Returns a message as a read-only view of the buffer, without copying it.
+	 * 
+	 * @param index The index of the message.
+	 * @return The view of the message.
+	 */
+	public CharSequence view(int index) {
+		return CharBuffer.wrap(buffer, offset(index), length(index)).asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Returns a message as a new string.
+	 * 
+	 * @param index The index of the message.
+	 * @return The message.
+	 */
+	public String get(int index) {
+		return new String(buffer, offset(index), length(index));
+	}
+	
+	/**
+	 * Writes a message to a writer, without copying it.
+	 * 
+	 * @param index The index of the message.
+	 * @param out The writer.
+	 * @throws IOException If the writer fails.
+	 */
+	public void writeTo(int index, Writer out) throws IOException {
+		out.write(buffer, offset(index), length(index));
+	}
+	
+	private void checkIndex(int index) {
+		if(index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Message " + index + " of a batch of " + size);
+		}
+	}
+}
@@ -1,48 +1,76 @@
 package crypto.ciphers;
 
-import java.util.Random;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import crypto.engine.InputPolicy;
+import crypto.keys.KeySource;
+import crypto.keys.PackedKeyFile;
+import crypto.keys.PooledKeySource;
 
 /**
  * The OneTimePad class provides encryption and decryption functionality using the One-Time Pad cipher.
  * This cipher generates a random key equal in length to the plaintext and uses it for encryption and decryption.
  * The encryption and decryption processes are based on generating a random key for shifting the letters of the alphabet.
+ * The input is lower cased and stripped of non-letters by default; with InputPolicy.PRESERVE the key covers the letters only.
+ * It is a thin adapter over the thread-safe Cipher API: use Cipher.oneTimePad directly to share one instance between threads.
  */
 public final class OneTimePad {
+	private static final int KEY_BLOCK_SIZE = 4096; // Key letters decoded at a time from a packed key file
+	private final KeySource keySource; // The source of random key letters for encryption
+	private final InputPolicy policy; // How the input text is normalized
 	private char[] key; // The key used for encryption and decryption.
-	private String userInputText; // The input text to be encrypted or decrypted
+	private PackedKeyFile packedKey; // Mapped packed key file used for decryption instead of key, if set
 	private char[] plainTextChar; // Array of characters representing the plain text
 	private char[] cipherTextChar; // Array of characters representing the cipher text
-	private StringBuffer cipherText; // StringBuffer to hold the cipher text
-	private StringBuffer plainText; // StringBuffer to hold the decrypted plain text
 	
 	/**
+	 * Creates a One-Time Pad cipher that takes its keys from the shared pool of secure random key letters.
+	 */
+	public OneTimePad() {
+		this(PooledKeySource.shared());
+	}
+	
+	/**
+	 * Creates a One-Time Pad cipher that takes its keys from a given key source.
+	 * 
+	 * @param keySource The source of random key letters used for encryption.
+	 */
+	public OneTimePad(KeySource keySource) {
+		this(keySource, InputPolicy.STRIP);
+	}
+	
+	/**
+	 * Creates a One-Time Pad cipher that takes its keys from a given key source and normalizes its input according
+	 * to a given policy.
 	 * 
-	 * Sets the input plain text, sanitizes it by removing whitespace and newlines, and prepares it for encryption.
+	 * @param keySource The source of random key letters used for encryption.
+	 * @param policy The input policy.
+	 */
+	public OneTimePad(KeySource keySource, InputPolicy policy) {
+		this.keySource = keySource;
+		this.policy = policy;
+	}
+	
+	/**
+	 * 
+	 * Sets the input plain text and normalizes it according to the input policy for encryption.
 	 * 
 	 * @param inputText The text to be encrypted, should be a string of letters.
 	 */
 	public void getPlainText(String inputText) {
-		userInputText = inputText;
-		userInputText = userInputText.toLowerCase();
-		userInputText = userInputText.replace(" ", "");
-		userInputText = userInputText.replace("\n", "");
-		cipherText = new StringBuffer(userInputText.length());
-		plainTextChar = userInputText.toCharArray();
+		plainTextChar = CipherTexts.prepare(inputText, policy);
 	}
 	
 	/**
 	 * 
-	 * Sets the input plain text, sanitizes it by removing whitespace and newlines, and prepares it for decryption.
+	 * Sets the input cipher text and normalizes it according to the input policy for decryption.
 	 * 
 	 * @param inputText The text to be decrypted, should be a string of letters.
 	 */
 	public void getCipherText(String inputText) {
-		userInputText = inputText;
-		userInputText = userInputText.toLowerCase();
-		userInputText = userInputText.replace(" ", "");
-		userInputText = userInputText.replace("\n", "");
-		plainText = new StringBuffer(userInputText.length());
-		cipherTextChar = userInputText.toCharArray();
+		cipherTextChar = CipherTexts.prepare(inputText, policy);
 	}
 	
     /**
@@ -53,69 +81,119 @@ public final class OneTimePad {
      */
 	public void getKey(char[] inputKey) {
 		key = inputKey;
+		packedKey = null;
 	}
 	
 	/**
-     * Generates a new random key of the same length as the plain text.
-     * The key is randomly generated using letters from 'a' to 'z'.
+	 * Sets the key for the One-Time Pad cipher from a packed key file. The file is mapped and read during
+	 * decryption, without loading the key into a char array. The file is closed once decryption is done.
+	 * 
+	 * @param keyFile The packed key file, as written by outputKey(Path).
+	 * @throws IOException If the key file cannot be opened.
+	 */
+	public void getKey(Path keyFile) throws IOException {
+		packedKey = PackedKeyFile.open(keyFile);
+		key = null;
+	}
+	
+	/**
+     * Generates a new random key with one letter for each letter of the plain text.
+     * The key letters from 'a' to 'z' are taken from the key source in one bulk call.
      */
 	private void generateKey() {
-		Random randChar = new Random();
-		key = new char[userInputText.length()];
-		for(int i = 0; i < userInputText.length(); i++) {
-		key[i] = (char)(randChar.nextInt(26) + 'a');
-		}
+		key = new char[letters(plainTextChar)];
+		keySource.nextKey(key, 0, key.length);
 	}
 	
 	/**
-     * Performs the encryption of the input text using the One-Time Pad cipher.
-     * Each character in the plain text is shifted by the corresponding character in the key.
+     * Returns the encrypted cipher text.
+     * 
+     * @return The resulting encrypted cipher text as a string.
      */
-	private void encryption() {
-		// Iterates through each character of the cipher text and applies One-Time Pad cipher encryption
+	public String outputCipherText() {
 		generateKey();
-		for(int i = 0; i < userInputText.length(); i++) {
-			char ch = plainTextChar[i];
-			ch = (char) ('a' + (ch - 'a' + (key[i] - 'a')) % 26); // Applies the One-Time Pad shift
-			cipherText.append(ch); // Appends the encrypted character to the cipher text
+		if(key.length == 0) {
+			return new String(plainTextChar); // Nothing to encrypt, and an empty key is not a valid Cipher key
+		}
+		char[] cipherText = new char[plainTextChar.length];
+		if(policy == InputPolicy.PRESERVE) {
+			Cipher.oneTimePad(key).encryptPreserving(plainTextChar, 0, plainTextChar.length, cipherText, 0, 0);
+		}
+		else {
+			Cipher.oneTimePad(key).encrypt(plainTextChar, 0, plainTextChar.length, cipherText, 0); // Applies the One-Time Pad shift
 		}
+		return new String(cipherText); // Returns the cipher text as a string
 	}
 	
 	/**
-     * Performs the decryption of the cipher text using the One-Time Pad cipher.
-     * Each character in the cipher text is shifted back by the corresponding character in the key.
+     * Returns the decrypted plain text.
+     * 
+     * @return The resulting decrypted plain text as a string.
      */
-	private void decryption() {
-		// Iterates through each character of the cipher text and applies One-Time Pad cipher decryption
-		for(int i = 0; i < userInputText.length(); i++) {
-			char ch = cipherTextChar[i];
-			ch = (char) ('a' + (ch - 'a' - (key[i] - 'a') + 26) % 26); // Applies the reverse One-Time Pad shift
-			plainText.append(ch); // Appends the decrypted character to the plain text
-			if((i % 35) == 0 && i > 0) {
-				plainText.append('\n'); /* Adds a newline after each 35 characters
-				   						   to ensure text readability */
-			}
+	public String outputPlainText() {
+		char[] plainText = new char[cipherTextChar.length];
+		if(packedKey != null) {
+			decryptWithPackedKey(plainText);
+		}
+		else if(letters(cipherTextChar) == 0) {
+			System.arraycopy(cipherTextChar, 0, plainText, 0, plainText.length);
+		}
+		else if(policy == InputPolicy.PRESERVE) {
+			Cipher.oneTimePad(key).decryptPreserving(cipherTextChar, 0, cipherTextChar.length, plainText, 0, 0);
 		}
+		else {
+			Cipher.oneTimePad(key).decrypt(cipherTextChar, 0, cipherTextChar.length, plainText, 0); // Applies the reverse One-Time Pad shift
+		}
+		return new String(plainText); // Returns the plain text as a string
 	}
 	
 	/**
-     * Returns the encrypted cipher text.
+     * Decrypts the cipher text block by block, decoding the key letters of each block from the mapped packed key file,
+     * then closes the key file. A preserved block only uses as many key letters as it holds letters.
      * 
-     * @return The resulting encrypted cipher text as a string.
+     * @param plainText The buffer receiving the plain letters.
      */
-	public String outputCipherText() {
-		encryption(); // Performs encryption
-		return cipherText.toString(); // Returns the cipher text as a string
+	private void decryptWithPackedKey(char[] plainText) {
+		char[] keyBlock = new char[Math.min(KEY_BLOCK_SIZE, plainText.length)];
+		long keyPosition = 0;
+		try(PackedKeyFile keyFile = packedKey) {
+			for(int off = 0; off < plainText.length; off += KEY_BLOCK_SIZE) {
+				int len = Math.min(KEY_BLOCK_SIZE, plainText.length - off);
+				if(policy != InputPolicy.PRESERVE) {
+					if(len < keyBlock.length) {
+						keyBlock = new char[len]; // The last block is shorter, and every key letter must be valid
+					}
+					keyFile.read(keyPosition, keyBlock, 0, len);
+					Cipher.oneTimePad(keyBlock).decrypt(cipherTextChar, off, len, plainText, off);
+					keyPosition += len;
+					continue;
+				}
+				int letters = InputPolicy.countLetters(cipherTextChar, off, len);
+				if(letters == 0) {
+					System.arraycopy(cipherTextChar, off, plainText, off, len);
+					continue;
+				}
+				if(letters != keyBlock.length) {
+					keyBlock = new char[letters];
+				}
+				keyFile.read(keyPosition, keyBlock, 0, letters);
+				Cipher.oneTimePad(keyBlock).decryptPreserving(cipherTextChar, off, len, plainText, off, 0);
+				keyPosition += letters;
+			}
+		}
+		catch(IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		finally {
+			packedKey = null;
+		}
 	}
 	
 	/**
-     * Returns the decrypted plain text.
-     * 
-     * @return The resulting decrypted plain text as a string.
-     */
-	public String outputPlainText() {
-		decryption(); // Performs decryption
-		return plainText.toString(); // Returns the plain text as a string
+	 * Returns the number of key letters a prepared text needs.
+	 */
+	private int letters(char[] text) {
+		return (policy == InputPolicy.PRESERVE) ? InputPolicy.countLetters(text, 0, text.length) : text.length;
 	}
 	
 	/**
@@ -126,4 +204,14 @@ public final class OneTimePad {
 	public String outputKey() {
 		return (new String(key));
 	}
+	
+	/**
+     * Writes the generated key to a packed key file, 5 bits per letter.
+     * 
+     * @param keyFile The key file; it is created or replaced.
+     * @throws IOException If the key file cannot be written.
+     */
+	public void outputKey(Path keyFile) throws IOException {
+		PackedKeyFile.write(keyFile, key);
+	}
 }
@@ -0,0 +1,430 @@
+package crypto.ciphers;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import crypto.engine.CipherKind;
+import crypto.engine.InputPolicy;
+import crypto.engine.KeySchedule;
+import crypto.metrics.CipherMetrics;
+import crypto.metrics.ResultCacheMXBean;
+
+/**
+ * The ResultCache class remembers the results of Caesar and Vigenere calls, which are deterministic: a text
+ * encrypted again with the same key, such as a template or a status string, is answered from the cache without
+ * running the cipher. Results are keyed by the key schedule (cipher and key letters), the direction, the key
+ * position the text starts at and the text itself. The hash of the text only selects the stripe and bucket; the text
+ * is compared in full, so a hash collision never returns a wrong result. The cache is reached through encrypt and
+ * decrypt below, or through a cipher wrapped with Cipher.cached.
+ * 
+ * The cache is bounded by the estimated memory of its entries rather than their number, since messages range from a
+ * few letters to megabytes. It is split into stripes, each with its own lock, byte budget and least recently used
+ * order, so concurrent callers rarely wait for each other; the cipher itself runs outside any lock. One-Time Pad
+ * calls, and chains of passes, always bypass the cache: a One-Time Pad key must never be reused.
+ * 
+ * Texts are prepared the same way as in the cipher classes (lower cased, every non-letter removed). Hit rate,
+ * evictions and size are exposed through JMX when metrics are enabled.
+ */
+public final class ResultCache implements ResultCacheMXBean {
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024; // Default size bound of the shared cache
+	public static final int DEFAULT_STRIPES = 16; // Default number of independently locked stripes
+	private static final int ENTRY_OVERHEAD = 96; // Estimated bytes of the map entry, key and string headers
+	private final Stripe[] stripes; // The stripes, selected by the hash of the key
+	private final long maxBytes; // Size bound of the whole cache
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder bypasses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * Creates a cache with the default number of stripes.
+	 * 
+	 * @param maxBytes The largest estimated memory of the cached results.
+	 */
+	public ResultCache(long maxBytes) {
+		this(maxBytes, DEFAULT_STRIPES);
+	}
+	
+	/**
+	 * Creates a cache.
+	 * 
+	 * @param maxBytes The largest estimated memory of the cached results, shared evenly by the stripes.
+	 * @param stripes The number of stripes; it is rounded up to a power of two.
+	 */
+	public ResultCache(long maxBytes, int stripes) {
+		if(maxBytes <= 0) {
+			throw new IllegalArgumentException("The cache size must be positive");
+		}
+		if(stripes <= 0 || stripes > 1 << 16) {
+			throw new IllegalArgumentException("The number of stripes must be from 1 to 65536");
+		}
+		int count = 1;
+		while(count < stripes) {
+			count <<= 1;
+		}
+		this.stripes = new Stripe[count];
+		for(int i = 0; i < count; i++) {
+			this.stripes[i] = new Stripe(Math.max(1, maxBytes / count));
+		}
+		this.maxBytes = maxBytes;
+	}
+	
+	/**
+	 * Returns the cache shared by the application, created on first use. Its size bound is read from the system
+	 * property crypto.resultCache.bytes, and it is exposed through JMX as "crypto:type=ResultCache,name=shared".
+	 * 
+	 * @return The shared cache.
+	 */
+	public static ResultCache shared() {
+		return Shared.CACHE;
+	}
+	
+	/**
+	 * Returns the encryption of a text, from the cache when it was encrypted with the same key before.
+	 * 
+	 * @param cipher The cipher; One-Time Pad ciphers and chains are run without the cache.
+	 * @param text The plain text, as typed.
+	 * @return The cipher letters.
+	 */
+	public String encrypt(Cipher cipher, CharSequence text) {
+		return apply(cipher, text, false);
+	}
+	
+	/**
+	 * Returns the decryption of a text, from the cache when it was decrypted with the same key before.
+	 * 
+	 * @param cipher The cipher; One-Time Pad ciphers and chains are run without the cache.
+	 * @param text The cipher text.
+	 * @return The plain letters.
+	 */
+	public String decrypt(Cipher cipher, CharSequence text) {
+		return apply(cipher, text, true);
+	}
+	
+	/**
+	 * Returns a cipher that answers its char calls from this cache; see Cipher.cached.
+	 */
+	Cipher wrap(Cipher cipher) {
+		return cacheable(cipher) ? new CachedCipher(cipher) : cipher;
+	}
+	
+	/**
+	 * Returns whether the results of a cipher may be cached. A chain may hold a One-Time Pad pass, and its passes
+	 * have no single key.
+	 */
+	private static boolean cacheable(Cipher cipher) {
+		return cipher instanceof ShiftCipher && cipher.kind() != CipherKind.ONE_TIME_PAD;
+	}
+	
+	private String apply(Cipher cipher, CharSequence text, boolean decrypt) {
+		if(!cacheable(cipher)) {
+			bypasses.increment();
+			return run(cipher, text, decrypt);
+		}
+		String input = text.toString();
+		Key key = new Key(cipher.key(), decrypt, 0, input);
+		String result = get(key);
+		if(result == null) {
+			result = run(cipher, input, decrypt);
+			put(key, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Looks a result up and counts the hit or miss.
+	 */
+	private String get(Key key) {
+		String result = stripes[key.hash & (stripes.length - 1)].get(key);
+		if(result != null) {
+			hits.increment();
+		}
+		else {
+			misses.increment();
+		}
+		return result;
+	}
+	
+	/**
+	 * Caches a result, weighted by the text kept in its key and the result itself, and counts the evictions.
+	 */
+	private void put(Key key, String result) {
+		Stripe stripe = stripes[key.hash & (stripes.length - 1)];
+		evictions.add(stripe.put(key, result, ENTRY_OVERHEAD + 2L * (key.text.length() + result.length())));
+	}
+	
+	/**
+	 * Prepares a copy of the text and runs the cipher over it.
+	 */
+	private static String run(Cipher cipher, CharSequence text, boolean decrypt) {
+		char[] buf = text.toString().toCharArray();
+		int len = InputPolicy.STRIP.normalize(buf, 0, buf.length);
+		if(decrypt) {
+			cipher.decrypt(buf, 0, len, buf, 0, 0);
+		}
+		else {
+			cipher.encrypt(buf, 0, len, buf, 0, 0);
+		}
+		return new String(buf, 0, len);
+	}
+	
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	@Override
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	@Override
+	public double getHitRate() {
+		long h = hits.sum();
+		long lookups = h + misses.sum();
+		return (lookups == 0) ? 0 : (double) h / lookups;
+	}
+	
+	@Override
+	public long getBypasses() {
+		return bypasses.sum();
+	}
+	
+	@Override
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	@Override
+	public long getBytes() {
+		long bytes = 0;
+		for(Stripe stripe : stripes) {
+			bytes += stripe.bytes();
+		}
+		return bytes;
+	}
+	
+	@Override
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+	
+	@Override
+	public int getEntries() {
+		int entries = 0;
+		for(Stripe stripe : stripes) {
+			entries += stripe.size();
+		}
+		return entries;
+	}
+	
+	@Override
+	public void clear() {
+		for(Stripe stripe : stripes) {
+			stripe.clear();
+		}
+	}
+	
+	/**
+	 * Identifies a result: the key schedule, the direction, the starting key index and the text. The hash is
+	 * computed once.
+	 */
+	private static final class Key {
+		final KeySchedule schedule; // The cipher and key letters
+		final boolean decrypt; // True for a decryption
+		final int keyIndex; // The key letter applied to the first letter of the text
+		final String text; // The text as given
+		final int hash; // Combined hash of the four, spread so that its low bits select the stripe
+		
+		Key(KeySchedule schedule, boolean decrypt, int keyIndex, String text) {
+			this.schedule = schedule;
+			this.decrypt = decrypt;
+			this.keyIndex = keyIndex;
+			this.text = text;
+			int h = ((schedule.hashCode() * 31 + keyIndex) * 31 + text.hashCode()) * 2 + (decrypt ? 1 : 0);
+			this.hash = h ^ (h >>> 16);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && decrypt == other.decrypt && keyIndex == other.keyIndex
+					&& text.equals(other.text) && schedule.equals(other.schedule);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+	
+	/**
+	 * One independently locked part of the cache, evicting its least recently used results beyond its byte budget.
+	 */
+	private static final class Stripe {
+		private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Least recently used first
+		private final long maxBytes; // Byte budget of the stripe
+		private long bytes; // Estimated memory of the cached results
+		
+		Stripe(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+		
+		synchronized String get(Key key) {
+			Entry entry = entries.get(key);
+			return (entry == null) ? null : entry.result;
+		}
+		
+		/**
+		 * Caches a result unless it alone exceeds the budget, and evicts the oldest results until the stripe fits.
+		 * 
+		 * @return The number of results evicted.
+		 */
+		synchronized int put(Key key, String result, long weight) {
+			if(weight > maxBytes) {
+				return 0;
+			}
+			Entry previous = entries.put(key, new Entry(result, weight));
+			if(previous != null) {
+				bytes -= previous.weight; // Another thread computed the same result meanwhile
+			}
+			bytes += weight;
+			int evicted = 0;
+			Iterator<Entry> eldest = entries.values().iterator();
+			while(bytes > maxBytes) {
+				Entry entry = eldest.next();
+				eldest.remove();
+				bytes -= entry.weight;
+				evicted++;
+			}
+			return evicted;
+		}
+		
+		synchronized long bytes() {
+			return bytes;
+		}
+		
+		synchronized int size() {
+			return entries.size();
+		}
+		
+		synchronized void clear() {
+			entries.clear();
+			bytes = 0;
+		}
+	}
+	
+	/**
+	 * A cached result and its estimated memory.
+	 */
+	private static final class Entry {
+		final String result; // The cipher or plain letters
+		final long weight; // Estimated bytes of the entry
+		
+		Entry(String result, long weight) {
+			this.result = result;
+			this.weight = weight;
+		}
+	}
+	
+	/**
+	 * A Caesar or Vigenere cipher whose char calls are answered from the cache. The text is copied into the key of
+	 * each call, and a hit copies the cached result into the destination. Byte and preserving calls, which come from
+	 * files, streams and texts shown as typed, are passed on to the cipher unchanged.
+	 */
+	private final class CachedCipher implements Cipher {
+		private final Cipher cipher; // The cipher run on a miss
+		
+		CachedCipher(Cipher cipher) {
+			this.cipher = cipher;
+		}
+		
+		@Override
+		public CipherKind kind() {
+			return cipher.kind();
+		}
+		
+		@Override
+		public KeySchedule key() {
+			return cipher.key();
+		}
+		
+		@Override
+		public int encrypt(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+			return apply(src, off, len, dst, dstOff, position, false);
+		}
+		
+		@Override
+		public int decrypt(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+			return apply(src, off, len, dst, dstOff, position, true);
+		}
+		
+		@Override
+		public int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+			return cipher.encrypt(src, off, len, dst, dstOff, position);
+		}
+		
+		@Override
+		public int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+			return cipher.decrypt(src, off, len, dst, dstOff, position);
+		}
+		
+		@Override
+		public int encryptPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+			return cipher.encryptPreserving(src, off, len, dst, dstOff, position);
+		}
+		
+		@Override
+		public int decryptPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+			return cipher.decryptPreserving(src, off, len, dst, dstOff, position);
+		}
+		
+		@Override
+		public int encryptPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+			return cipher.encryptPreserving(src, off, len, dst, dstOff, position);
+		}
+		
+		@Override
+		public int decryptPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+			return cipher.decryptPreserving(src, off, len, dst, dstOff, position);
+		}
+		
+		/**
+		 * Copies a cached result into the destination, or runs the cipher and caches what it wrote. The key is built
+		 * before the cipher runs, since the destination may be the source.
+		 */
+		private int apply(char[] src, int off, int len, char[] dst, int dstOff, long position, boolean decrypt) {
+			KeySchedule schedule = cipher.key();
+			Key key = new Key(schedule, decrypt, schedule.keyIndex(position), new String(src, off, len));
+			String result = get(key);
+			if(result != null) {
+				result.getChars(0, len, dst, dstOff);
+				return len;
+			}
+			if(decrypt) {
+				cipher.decrypt(src, off, len, dst, dstOff, position);
+			}
+			else {
+				cipher.encrypt(src, off, len, dst, dstOff, position);
+			}
+			put(key, new String(dst, dstOff, len));
+			return len;
+		}
+	}
+	
+	/**
+	 * Holds the shared cache, so that it is only created, and registered as a metric, on first use.
+	 */
+	private static final class Shared {
+		static final ResultCache CACHE = new ResultCache(Long.getLong("crypto.resultCache.bytes", DEFAULT_MAX_BYTES));
+		
+		static {
+			CipherMetrics.registerResultCache("shared", CACHE);
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package crypto.ciphers;
+
+import crypto.engine.AdaptiveEngine;
+import crypto.engine.CipherKind;
+import crypto.engine.CompiledKey;
+import crypto.engine.InputPolicy;
+import crypto.engine.KeySchedule;
+import crypto.metrics.CipherMetrics;
+import crypto.metrics.CipherOperationEvent;
+
+/**
+ * The ShiftCipher class implements Cipher for all three ciphers, which only differ in their key schedule.
+ * Char text goes through the compiled substitution tables when the key has them; everything else goes through the
+ * shift kernel. Texts of AdaptiveEngine.MIN_ROUTED_LENGTH letters or more are routed by an AdaptiveEngine to the
+ * fastest engine for their size instead. Instances are immutable. Every call is recorded by CipherMetrics.
+ */
+final class ShiftCipher implements Cipher {
+	private final KeySchedule key; // The key applied by this cipher
+	private final CompiledKey compiled; // The compiled tables of a Caesar or Vigenere key, or null
+	private volatile AdaptiveEngine adaptive; // Routes long texts, created on the first one
+	
+	ShiftCipher(KeySchedule key, CompiledKey compiled) {
+		this.key = key;
+		this.compiled = compiled;
+	}
+	
+	/**
+	 * Returns the engine routing long texts. The field is volatile so that another thread never sees a partly built
+	 * engine; two threads racing here each create one, which is harmless.
+	 */
+	private AdaptiveEngine adaptive() {
+		AdaptiveEngine engine = adaptive;
+		if(engine == null) {
+			engine = new AdaptiveEngine(key, compiled);
+			adaptive = engine;
+		}
+		return engine;
+	}
+	
+	@Override
+	public CipherKind kind() {
+		return key.kind();
+	}
+	
+	@Override
+	public KeySchedule key() {
+		return key;
+	}
+	
+	@Override
+	public int encrypt(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+		key.checkRange(position, len);
+		CipherOperationEvent event = CipherMetrics.begin();
+		long start = CipherMetrics.start();
+		if(len >= AdaptiveEngine.MIN_ROUTED_LENGTH) {
+			adaptive().shift(src, off, dst, dstOff, len, position, false);
+		}
+		else if(len > 0) {
+			if(compiled != null) {
+				compiled.encrypt(src, off, dst, dstOff, len, key.keyIndex(position));
+			}
+			else {
+				key.shift(src, off, dst, dstOff, len, key.keyIndex(position), false);
+			}
+		}
+		CipherMetrics.record(event, key.kind(), false, len, start);
+		return len;
+	}
+	
+	@Override
+	public int decrypt(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+		key.checkRange(position, len);
+		CipherOperationEvent event = CipherMetrics.begin();
+		long start = CipherMetrics.start();
+		if(len >= AdaptiveEngine.MIN_ROUTED_LENGTH) {
+			adaptive().shift(src, off, dst, dstOff, len, position, true);
+		}
+		else if(len > 0) {
+			if(compiled != null) {
+				compiled.decrypt(src, off, dst, dstOff, len, key.keyIndex(position));
+			}
+			else {
+				key.shift(src, off, dst, dstOff, len, key.keyIndex(position), true);
+			}
+		}
+		CipherMetrics.record(event, key.kind(), true, len, start);
+		return len;
+	}
+	
+	@Override
+	public int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+		key.checkRange(position, len);
+		CipherOperationEvent event = CipherMetrics.begin();
+		long start = CipherMetrics.start();
+		if(len >= AdaptiveEngine.MIN_ROUTED_LENGTH) {
+			adaptive().shift(src, off, dst, dstOff, len, position, false);
+		}
+		else if(len > 0) {
+			key.shift(src, off, dst, dstOff, len, key.keyIndex(position), false);
+		}
+		CipherMetrics.record(event, key.kind(), false, len, start);
+		return len;
+	}
+	
+	@Override
+	public int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+		key.checkRange(position, len);
+		CipherOperationEvent event = CipherMetrics.begin();
+		long start = CipherMetrics.start();
+		if(len >= AdaptiveEngine.MIN_ROUTED_LENGTH) {
+			adaptive().shift(src, off, dst, dstOff, len, position, true);
+		}
+		else if(len > 0) {
+			key.shift(src, off, dst, dstOff, len, key.keyIndex(position), true);
+		}
+		CipherMetrics.record(event, key.kind(), true, len, start);
+		return len;
+	}
+	
+	@Override
+	public int encryptMessages(char[] buf, int[] offsets, int count) {
+		return shiftMessages(buf, offsets, count, false);
+	}
+	
+	@Override
+	public int decryptMessages(char[] buf, int[] offsets, int count) {
+		return shiftMessages(buf, offsets, count, true);
+	}
+	
+	/**
+	 * Shifts every message of a batch from the start of the key. A Caesar key does not depend on the position, so
+	 * the whole batch is a single kernel call; a Vigenere key restarts at each message.
+	 */
+	private int shiftMessages(char[] buf, int[] offsets, int count, boolean decrypt) {
+		if(key.kind() == CipherKind.ONE_TIME_PAD && count > 1) {
+			throw new IllegalArgumentException("A One-Time Pad key cannot be shared by several messages");
+		}
+		int letters = offsets[count] - offsets[0];
+		if(key.kind() == CipherKind.ONE_TIME_PAD) {
+			key.checkRange(0, letters);
+		}
+		CipherOperationEvent event = CipherMetrics.begin();
+		long start = CipherMetrics.start();
+		if(key.kind() == CipherKind.CAESAR) {
+			shiftRange(buf, offsets[0], letters, decrypt); // The messages are contiguous, so they are one range
+		}
+		else {
+			for(int i = 0; i < count; i++) {
+				shiftRange(buf, offsets[i], offsets[i + 1] - offsets[i], decrypt);
+			}
+		}
+		CipherMetrics.record(event, key.kind(), decrypt, letters, start);
+		return letters;
+	}
+	
+	/**
+	 * Shifts a range of letters in place from the start of the key, through the compiled tables when there are some.
+	 */
+	private void shiftRange(char[] buf, int off, int len, boolean decrypt) {
+		if(len == 0) {
+			return;
+		}
+		if(compiled == null) {
+			key.shift(buf, off, len, 0, decrypt);
+		}
+		else if(decrypt) {
+			compiled.decrypt(buf, off, len, 0);
+		}
+		else {
+			compiled.encrypt(buf, off, len, 0);
+		}
+	}
+	
+	@Override
+	public int encryptPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+		return shiftPreserving(src, off, len, dst, dstOff, position, false);
+	}
+	
+	@Override
+	public int decryptPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position) {
+		return shiftPreserving(src, off, len, dst, dstOff, position, true);
+	}
+	
+	@Override
+	public int encryptPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+		return shiftPreserving(src, off, len, dst, dstOff, position, false);
+	}
+	
+	@Override
+	public int decryptPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position) {
+		return shiftPreserving(src, off, len, dst, dstOff, position, true);
+	}
+	
+	/**
+	 * Runs the preserving kernel. The letters are counted first so that a One-Time Pad key is checked before any
+	 * character is written, and so that the number of letters can be recorded and returned.
+	 */
+	private int shiftPreserving(char[] src, int off, int len, char[] dst, int dstOff, long position,
+			boolean decrypt) {
+		int letters = InputPolicy.countLetters(src, off, len);
+		key.checkRange(position, letters);
+		CipherOperationEvent event = CipherMetrics.begin();
+		long start = CipherMetrics.start();
+		if(letters > 0) {
+			key.shiftPreserving(src, off, dst, dstOff, len, key.keyIndex(position), decrypt);
+		}
+		else if(src != dst || off != dstOff) {
+			System.arraycopy(src, off, dst, dstOff, len); // No letter: the text is copied unchanged
+		}
+		CipherMetrics.record(event, key.kind(), decrypt, letters, start);
+		return letters;
+	}
+	
+	private int shiftPreserving(byte[] src, int off, int len, byte[] dst, int dstOff, long position,
+			boolean decrypt) {
+		int letters = InputPolicy.countLetters(src, off, len);
+		key.checkRange(position, letters);
+		CipherOperationEvent event = CipherMetrics.begin();
+		long start = CipherMetrics.start();
+		if(letters > 0) {
+			key.shiftPreserving(src, off, dst, dstOff, len, key.keyIndex(position), decrypt);
+		}
+		else if(src != dst || off != dstOff) {
+			System.arraycopy(src, off, dst, dstOff, len);
+		}
+		CipherMetrics.record(event, key.kind(), decrypt, letters, start);
+		return letters;
+	}
+}
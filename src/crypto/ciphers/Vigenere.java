@@ -1,103 +1,65 @@
 package crypto.ciphers;
 
+import crypto.engine.InputPolicy;
+
 /**
  * This class provides encryption and decryption functionality using the Vigenre cipher algorithm.
  * It allows users to input plain text and a cipher key, then generates encrypted text (ciphertext) or decrypted text (plain text).
+ * The input is lower cased and stripped of non-letters by default, or normalized according to a given InputPolicy.
  * The encryption and decryption processes rely on the Vigenre cipher, which uses a repeating key for shifting the letters of the alphabet.
+ * It is a thin adapter over the thread-safe Cipher API: use Cipher.vigenere directly to share one instance between threads.
  */
 public final class Vigenere {
-	private char[] key; // The key used for encryption and decryption.
-	private int keyLength; // The length of the key.
-	private String userInputText; // The input text to be encrypted or decrypted
+	private final InputPolicy policy; // How the input text is normalized
+	private Cipher cipher; // The cipher for the key used for encryption and decryption.
 	private char[] plainTextChar; // Array of characters representing the plain text
 	private char[] cipherTextChar; // Array of characters representing the cipher text
-	private StringBuffer cipherText; // StringBuffer to hold the cipher text
-	private StringBuffer plainText; // StringBuffer to hold the decrypted plain text
 	
 	/**
+	 * Creates a Vigenre cipher that lower cases its input and strips every character that is not a letter.
+	 */
+	public Vigenere() {
+		this(InputPolicy.STRIP);
+	}
+	
+	/**
+	 * Creates a Vigenre cipher that normalizes its input according to a given policy.
 	 * 
-	 * Sets the input plain text, sanitizes it by removing whitespace and newlines, and prepares it for encryption.
+	 * @param policy The input policy.
+	 */
+	public Vigenere(InputPolicy policy) {
+		this.policy = policy;
+	}
+	
+	/**
+	 * 
+	 * Sets the input plain text and normalizes it according to the input policy for encryption.
 	 * 
 	 * @param inputText The text to be encrypted, should be a string of letters.
 	 */
 	public void getPlainText(String inputText) {
-		// Processes input text: converts to lowercase, removes spaces and newlines
-		userInputText = inputText;
-		userInputText = userInputText.toLowerCase();
-		userInputText = userInputText.replace(" ", "");
-		userInputText = userInputText.replace("\n", "");
-		cipherText = new StringBuffer(userInputText.length());
-		plainTextChar = userInputText.toCharArray();
+		// Processes input text in a single pass: lower cases and strips non-letters unless the policy says otherwise
+		plainTextChar = CipherTexts.prepare(inputText, policy);
 	}
 	
 	/**
 	 * 
-	 * Sets the input plain text, sanitizes it by removing whitespace and newlines, and prepares it for decryption.
+	 * Sets the input cipher text and normalizes it according to the input policy for decryption.
 	 * 
 	 * @param inputText The text to be decrypted, should be a string of letters.
 	 */
 	public void getCipherText(String inputText) {
-		// Processes input text: converts to lowercase, removes spaces and newlines
-		userInputText = inputText;
-		userInputText = userInputText.toLowerCase();
-		userInputText = userInputText.replace(" ", "");
-		userInputText = userInputText.replace("\n", "");
-		plainText = new StringBuffer(userInputText.length());
-		cipherTextChar = userInputText.toCharArray();
+		// Processes input text in a single pass: lower cases and strips non-letters unless the policy says otherwise
+		cipherTextChar = CipherTexts.prepare(inputText, policy);
 	}
 	
 	/**
-     * Sets the key for the Vigenre cipher and calculates the key's length.
+     * Sets the key for the Vigenre cipher, reusing its compiled substitution tables when the key was used before.
      * 
      * @param inputKey The key to be used for encryption/decryption, passed as a character array.
      */
 	public void getKey(char[] inputKey) {
-		key = inputKey;
-		keyLength = computeKeyLength(); // Computes the length of the key
-	}
-	
-	/**
-     * Computes the length of the cipher key.
-     * 
-     * @return The length of the key.
-     */
-	@SuppressWarnings("unused")
-	private int computeKeyLength() {
-		int length = 0;
-		for(char i : key) {
-			length += 1;
-		}
-		return length;
-	}
-	
-	/**
-     * Performs the encryption of the input text using the Vigenre cipher.
-     * It loops through the plain text and shifts each character by the corresponding character in the key.
-     */
-	private void encryption() {
-		// Iterates through each character of the plain text and applies Vigenre cipher encryption
-		for(int i = 0; i < userInputText.length(); i++) {
-			char ch = plainTextChar[i];
-			ch = (char) ('a' + (ch - 'a' + (key[i % keyLength] - 'a')) % 26); // Applies the Vigenre shift
-			cipherText.append(ch); // Appends the encrypted character to the cipher text
-		}
-	}
-	
-	/**
-     * Performs the decryption of the cipher text using the Vigenre cipher.
-     * It loops through the cipher text and shifts each character back by the corresponding character in the key.
-     */
-	private void decryption() {
-		// Iterates through each character of the plain text and applies Vigenre cipher encryption
-		for(int i = 0; i < userInputText.length(); i++) {
-			char ch = cipherTextChar[i];
-			ch = (char) ('a' + (ch - 'a' - (key[i % keyLength] - 'a') + 26) % 26); // Applies the reverse Vigenre shift
-			plainText.append(ch); // Appends the decrypted character to the plain text
-			if((i % 35) == 0 && i > 0) {
-				plainText.append('\n'); /* Adds a newline after each 35 characters
-			 							   to ensure text readability */
-			}
-		}
+		cipher = Cipher.vigenere(inputKey);
 	}
 	
 	/**
@@ -106,8 +68,14 @@ public final class Vigenere {
      * @return The resulting encrypted cipher text as a string.
      */
 	public String outputCipherText() {
-		encryption(); // Performs encryption
-		return cipherText.toString(); // Returns the cipher text as a string
+		char[] cipherText = new char[plainTextChar.length];
+		if(policy == InputPolicy.PRESERVE) {
+			cipher.encryptPreserving(plainTextChar, 0, plainTextChar.length, cipherText, 0, 0);
+		}
+		else {
+			cipher.encrypt(plainTextChar, 0, plainTextChar.length, cipherText, 0); // Applies the Vigenre shift
+		}
+		return new String(cipherText); // Returns the cipher text as a string
 	}
 	
 	/**
@@ -116,7 +84,13 @@ public final class Vigenere {
      * @return The resulting decrypted plain text as a string.
      */
 	public String outputPlainText() {
-		decryption(); // Performs decryption
-		return plainText.toString(); // Returns the plain text as a string
+		char[] plainText = new char[cipherTextChar.length];
+		if(policy == InputPolicy.PRESERVE) {
+			cipher.decryptPreserving(cipherTextChar, 0, cipherTextChar.length, plainText, 0, 0);
+		}
+		else {
+			cipher.decrypt(cipherTextChar, 0, cipherTextChar.length, plainText, 0); // Applies the reverse Vigenre shift
+		}
+		return new String(plainText); // Returns the plain text as a string
 	}
 }
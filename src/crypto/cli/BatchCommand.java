@@ -0,0 +1,208 @@
+package crypto.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+
+/**
+ * The BatchCommand class is the headless command line mode of the application. It encrypts or decrypts a whole
+ * directory tree with the chosen cipher and key, and prints a throughput summary at the end. It only uses the
+ * cipher core and never touches AWT or Swing, so it starts quickly in containers.
+ * 
+ * Usage: encrypt|decrypt --cipher caesar|vigenere|otp [--key KEY] --in DIR --out DIR [--threads N] [--queue N]
+ */
+public final class BatchCommand {
+	static final String USAGE = "Usage: MultiCipherEncryptor encrypt|decrypt --cipher caesar|vigenere|otp [--key KEY]"
+			+ " --in DIR --out DIR [--threads N] [--queue N] [--chunk BYTES]";
+	private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024; // Bytes per pipeline chunk
+	
+	private BatchCommand() {
+	}
+	
+	/**
+	 * Runs a batch command.
+	 * 
+	 * @param args The command line arguments, starting with "encrypt" or "decrypt".
+	 * @param out The stream receiving the summary.
+	 * @param err The stream receiving usage and error messages.
+	 * @return The process exit status: 0 on success, 1 on failure, 2 on invalid arguments.
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		boolean decrypt;
+		CipherKind cipher = null;
+		String keyText = null;
+		Path in = null;
+		Path outDir = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queueSize = -1;
+		int chunkSize = DEFAULT_CHUNK_SIZE;
+		try {
+			if(args[0].equals("encrypt") || args[0].equals("decrypt")) {
+				decrypt = args[0].equals("decrypt");
+			}
+			else {
+				throw new IllegalArgumentException("Unknown command: " + args[0]);
+			}
+			for(int i = 1; i < args.length; i += 2) {
+				if(i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + args[i]);
+				}
+				String value = args[i + 1];
+				switch(args[i]) {
+				case "--cipher":
+					cipher = parseCipher(value);
+					break;
+				case "--key":
+					keyText = value;
+					break;
+				case "--in":
+					in = Paths.get(value);
+					break;
+				case "--out":
+					outDir = Paths.get(value);
+					break;
+				case "--threads":
+					threads = positive(args[i], value);
+					break;
+				case "--queue":
+					queueSize = positive(args[i], value);
+					break;
+				case "--chunk":
+					chunkSize = positive(args[i], value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+			}
+			if(cipher == null || in == null || outDir == null) {
+				throw new IllegalArgumentException("--cipher, --in and --out are required");
+			}
+			if(!Files.exists(in)) {
+				throw new IllegalArgumentException("Input not found: " + in);
+			}
+		}
+		catch(IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+			err.println(ex.getMessage() == null ? "Missing command" : ex.getMessage());
+			err.println(USAGE);
+			return 2;
+		}
+		
+		KeySchedule key;
+		try {
+			key = parseKey(cipher, keyText);
+		}
+		catch(IllegalArgumentException ex) {
+			err.println(ex.getMessage());
+			return 2;
+		}
+		
+		BatchPipeline pipeline = new BatchPipeline(cipher, key, decrypt, threads,
+				queueSize > 0 ? queueSize : 2 * threads, chunkSize);
+		long start = System.nanoTime();
+		try {
+			Files.createDirectories(outDir);
+			pipeline.run(in, outDir);
+		}
+		catch(IOException ex) {
+			err.println("Batch failed: " + ex.getMessage());
+			return 1;
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			err.println("Batch interrupted");
+			return 1;
+		}
+		double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+		out.println(String.format(Locale.ROOT,
+				"%s %d files, %d bytes read, %d letters written in %.3f s (%.1f MB/s, %d threads)",
+				decrypt ? "Decrypted" : "Encrypted", pipeline.files(), pipeline.bytesRead(), pipeline.letters(),
+				seconds, pipeline.bytesRead() / seconds / 1e6, threads));
+		return 0;
+	}
+	
+	/**
+	 * Returns whether the arguments ask for a batch command rather than the GUI.
+	 * 
+	 * @param args The command line arguments.
+	 * @return True for "encrypt" and "decrypt".
+	 */
+	public static boolean accepts(String[] args) {
+		return args.length > 0 && (args[0].equals("encrypt") || args[0].equals("decrypt"));
+	}
+	
+	static CipherKind parseCipher(String value) {
+		switch(value.toLowerCase(Locale.ROOT)) {
+		case "caesar":
+			return CipherKind.CAESAR;
+		case "vigenere":
+			return CipherKind.VIGENERE;
+		case "otp":
+		case "onetimepad":
+			return CipherKind.ONE_TIME_PAD;
+		default:
+			throw new IllegalArgumentException("Unknown cipher: " + value);
+		}
+	}
+	
+	/**
+	 * Validates the key the same way as the GUI: a non-negative number for Caesar, letters for Vigenere. One-Time
+	 * Pad keys come from key files, so no key is expected.
+	 */
+	static KeySchedule parseKey(CipherKind cipher, String keyText) {
+		if(cipher == CipherKind.ONE_TIME_PAD) {
+			return null;
+		}
+		if(keyText == null) {
+			throw new IllegalArgumentException("--key is required for " + cipher.name().toLowerCase(Locale.ROOT));
+		}
+		if(cipher == CipherKind.CAESAR) {
+			try {
+				int key = Integer.parseInt(keyText);
+				if(key >= 0) {
+					return KeySchedule.caesar(key);
+				}
+			}
+			catch(NumberFormatException ex) {
+				// Reported below
+			}
+			throw new IllegalArgumentException("The Caesar key must be a positive number");
+		}
+		if(keyText.isEmpty() || !isLetters(keyText)) {
+			throw new IllegalArgumentException("The Vigenere key must contain only letters");
+		}
+		return KeySchedule.vigenere(keyText.toCharArray());
+	}
+	
+	/**
+	 * Checks the key letters with a plain loop: a regular expression would load the regex and lambda classes, which
+	 * costs more than the whole text command.
+	 */
+	private static boolean isLetters(String keyText) {
+		for(int i = 0; i < keyText.length(); i++) {
+			int c = keyText.charAt(i) | 0x20;
+			if(c < 'a' || c > 'z') {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	static int positive(String option, String value) {
+		try {
+			int n = Integer.parseInt(value);
+			if(n > 0) {
+				return n;
+			}
+		}
+		catch(NumberFormatException ex) {
+			// Reported below
+		}
+		throw new IllegalArgumentException(option + " must be a positive number");
+	}
+}
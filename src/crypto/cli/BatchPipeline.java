@@ -0,0 +1,285 @@
+package crypto.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+import crypto.engine.ShiftKernel;
+import crypto.engine.VectorEngine;
+import crypto.keys.PooledKeySource;
+
+/**
+ * The BatchPipeline class encrypts or decrypts every file of a directory tree into a mirrored output tree.
+ * It runs as three stages connected by bounded queues: one reader thread walking the tree and cutting files into
+ * prepared chunks, a pool of worker threads shifting the chunks, and one writer thread writing each chunk at its
+ * position in the output file. The queues bound the memory used, whatever the size of the tree.
+ * 
+ * With the One-Time Pad a key file named after the text file with a ".key" suffix is written next to each output
+ * file when encrypting, and read next to each input file when decrypting.
+ */
+final class BatchPipeline {
+	static final String KEY_SUFFIX = ".key"; // Suffix of One-Time Pad key files
+	private final CipherKind cipher; // The cipher to apply
+	private final KeySchedule key; // The key, or null for the One-Time Pad
+	private final boolean decrypt; // True to decrypt
+	private final int threads; // Number of worker threads
+	private final int chunkSize; // Bytes read per chunk
+	private final BlockingQueue<Chunk> work; // Chunks waiting for a worker
+	private final BlockingQueue<Chunk> done; // Chunks waiting for the writer
+	private final AtomicReference<Throwable> failure = new AtomicReference<>(); // First error of any stage
+	private final AtomicLong files = new AtomicLong(); // Files read
+	private final AtomicLong bytesRead = new AtomicLong(); // Bytes read from the input files
+	private final AtomicLong letters = new AtomicLong(); // Letters written to the output files
+	
+	/**
+	 * Creates a pipeline.
+	 * 
+	 * @param cipher The cipher to apply.
+	 * @param key The key, or null for the One-Time Pad.
+	 * @param decrypt True to decrypt.
+	 * @param threads The number of worker threads.
+	 * @param queueSize The capacity of each queue, in chunks.
+	 * @param chunkSize The number of bytes read per chunk.
+	 */
+	BatchPipeline(CipherKind cipher, KeySchedule key, boolean decrypt, int threads, int queueSize, int chunkSize) {
+		this.cipher = cipher;
+		this.key = key;
+		this.decrypt = decrypt;
+		this.threads = threads;
+		this.chunkSize = chunkSize;
+		work = new ArrayBlockingQueue<>(queueSize);
+		done = new ArrayBlockingQueue<>(queueSize);
+	}
+	
+	/**
+	 * Processes the whole tree and waits for every stage to finish.
+	 * 
+	 * @param inputRoot The directory (or single file) to read.
+	 * @param outputRoot The directory to write the results into.
+	 * @throws IOException If any file cannot be read or written.
+	 * @throws InterruptedException If the calling thread is interrupted while waiting.
+	 */
+	void run(Path inputRoot, Path outputRoot) throws IOException, InterruptedException {
+		List<Thread> stages = new ArrayList<>();
+		stages.add(new Thread(() -> read(inputRoot, outputRoot), "batch-reader"));
+		VectorEngine engine = (key == null) ? null : new VectorEngine(key);
+		for(int i = 0; i < threads; i++) {
+			stages.add(new Thread(() -> shift(engine), "batch-worker-" + (i + 1)));
+		}
+		stages.add(new Thread(this::write, "batch-writer"));
+		for(Thread stage : stages) {
+			stage.start();
+		}
+		for(Thread stage : stages) {
+			stage.join();
+		}
+		Throwable error = failure.get();
+		if(error instanceof IOException) {
+			throw (IOException) error;
+		}
+		if(error != null) {
+			throw new IOException(error.getMessage(), error);
+		}
+	}
+	
+	/**
+	 * Reader stage: walks the tree and queues every file as prepared chunks, then one END marker per worker.
+	 */
+	private void read(Path inputRoot, Path outputRoot) {
+		try(Stream<Path> tree = Files.walk(inputRoot)) {
+			Path base = Files.isDirectory(inputRoot) ? inputRoot : inputRoot.getParent();
+			for(Path input : (Iterable<Path>) tree.filter(Files::isRegularFile)::iterator) {
+				if(failure.get() != null) {
+					break;
+				}
+				if(cipher == CipherKind.ONE_TIME_PAD && decrypt && input.toString().endsWith(KEY_SUFFIX)) {
+					continue; // Key files are read together with their text file
+				}
+				Path output = outputRoot.resolve(base.relativize(input).toString());
+				Files.createDirectories(output.getParent());
+				readFile(input, output);
+			}
+		}
+		catch(Throwable ex) {
+			failure.compareAndSet(null, ex);
+		}
+		finally {
+			for(int i = 0; i < threads; i++) {
+				putQuietly(work, Chunk.END);
+			}
+		}
+	}
+	
+	/**
+	 * Cuts one file into chunks, lower casing and removing non-letters the same way as the cipher classes.
+	 */
+	private void readFile(Path input, Path output) throws IOException, InterruptedException {
+		boolean generateKey = (cipher == CipherKind.ONE_TIME_PAD && !decrypt);
+		boolean readKey = (cipher == CipherKind.ONE_TIME_PAD && decrypt);
+		FileTask file = new FileTask(input, output,
+				generateKey ? output.resolveSibling(output.getFileName() + KEY_SUFFIX) : null);
+		try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+				FileChannel keyIn = readKey ? FileChannel.open(input.resolveSibling(input.getFileName() + KEY_SUFFIX)) : null) {
+			long size = in.size();
+			long read = 0;
+			long position = 0;
+			int index = 0;
+			do {
+				byte[] buf = new byte[chunkSize];
+				int n = readFully(in, buf, read);
+				read += n;
+				int count = ShiftKernel.prepare(buf, 0, n);
+				Chunk chunk = new Chunk(file, position, buf, count);
+				if(readKey) {
+					chunk.key = new byte[count];
+					if(readFully(keyIn, chunk.key, position) < count) {
+						throw new IOException("The One-Time Pad key of " + input + " is shorter than the text");
+					}
+				}
+				position += count;
+				index++;
+				if(read >= size) {
+					file.setChunks(index); // Known before the last chunk is queued, so the writer can close the file
+				}
+				work.put(chunk);
+			} while(read < size);
+			files.incrementAndGet();
+			bytesRead.addAndGet(size);
+		}
+	}
+	
+	/**
+	 * Worker stage: shifts chunks until the END marker, then passes the marker on to the writer.
+	 */
+	private void shift(VectorEngine engine) {
+		try {
+			Chunk chunk;
+			while((chunk = work.take()) != Chunk.END) {
+				if(failure.get() != null) {
+					continue; // Drains the queue after a failure
+				}
+				try {
+					if(engine != null) {
+						engine.shift(chunk.letters, 0, chunk.length, chunk.position, decrypt);
+					}
+					else {
+						shiftOneTimePad(chunk);
+					}
+					done.put(chunk);
+				}
+				catch(RuntimeException ex) {
+					failure.compareAndSet(null, ex);
+				}
+			}
+		}
+		catch(InterruptedException ex) {
+			failure.compareAndSet(null, ex);
+		}
+		finally {
+			putQuietly(done, Chunk.END);
+		}
+	}
+	
+	/**
+	 * Shifts a chunk with its own One-Time Pad key letters, generating them when encrypting.
+	 */
+	private void shiftOneTimePad(Chunk chunk) {
+		if(chunk.key == null) {
+			chunk.key = new byte[chunk.length];
+			PooledKeySource.shared().nextKey(chunk.key, 0, chunk.length);
+		}
+		byte[] shifts = new byte[Math.max(chunk.length, 1)];
+		for(int i = 0; i < chunk.length; i++) {
+			shifts[i] = (byte) ((chunk.key[i] | 0x20) - 'a');
+		}
+		ShiftKernel.shift(chunk.letters, 0, chunk.length, shifts, 0, decrypt);
+	}
+	
+	/**
+	 * Writer stage: writes chunks at their positions until every worker has sent its END marker.
+	 */
+	private void write() {
+		int finished = 0;
+		Set<FileTask> open = new HashSet<>(); // Files with chunks still to come
+		try {
+			while(finished < threads) {
+				Chunk chunk = done.take();
+				if(chunk == Chunk.END) {
+					finished++;
+					continue;
+				}
+				if(failure.get() != null) {
+					continue;
+				}
+				try {
+					open.add(chunk.file);
+					if(chunk.file.write(chunk)) {
+						open.remove(chunk.file);
+					}
+					letters.addAndGet(chunk.length);
+				}
+				catch(IOException ex) {
+					failure.compareAndSet(null, ex);
+				}
+			}
+		}
+		catch(InterruptedException ex) {
+			failure.compareAndSet(null, ex);
+		}
+		finally {
+			for(FileTask file : open) {
+				try {
+					file.close(); // Only files left incomplete by a failure
+				}
+				catch(IOException ex) {
+					failure.compareAndSet(null, ex);
+				}
+			}
+		}
+	}
+	
+	private static int readFully(FileChannel channel, byte[] buf, long position) throws IOException {
+		ByteBuffer target = ByteBuffer.wrap(buf);
+		while(target.hasRemaining()) {
+			if(channel.read(target, position + target.position()) == -1) {
+				break;
+			}
+		}
+		return target.position();
+	}
+	
+	private static void putQuietly(BlockingQueue<Chunk> queue, Chunk chunk) {
+		try {
+			queue.put(chunk);
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	long files() {
+		return files.get();
+	}
+	
+	long bytesRead() {
+		return bytesRead.get();
+	}
+	
+	long letters() {
+		return letters.get();
+	}
+}
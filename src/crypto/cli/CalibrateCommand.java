@@ -0,0 +1,65 @@
+package crypto.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import crypto.engine.AdaptiveEngine;
+import crypto.engine.EngineProfile;
+
+/**
+ * The CalibrateCommand class measures the engine crossovers of this machine in the foreground, prints them and saves
+ * them where AdaptiveEngine loads them at the next start, so the routing can be checked and tuned by hand.
+ * 
+ * Usage: calibrate [--profile FILE]
+ */
+public final class CalibrateCommand {
+	static final String USAGE = "Usage: MultiCipherEncryptor calibrate [--profile FILE]";
+	
+	private CalibrateCommand() {
+	}
+	
+	/**
+	 * Runs a calibrate command.
+	 * 
+	 * @param args The command line arguments, starting with "calibrate".
+	 * @param out The stream receiving the crossovers.
+	 * @param err The stream receiving usage and error messages.
+	 * @return The process exit status: 0 on success, 1 on failure, 2 on invalid arguments.
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		Path file = AdaptiveEngine.profileFile();
+		if(args.length == 3 && args[1].equals("--profile")) {
+			file = Paths.get(args[2]);
+		}
+		else if(args.length != 1) {
+			err.println(USAGE);
+			return 2;
+		}
+		long start = System.nanoTime();
+		EngineProfile profile = EngineProfile.calibrate();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		out.println(profile);
+		try {
+			profile.save(file);
+		}
+		catch(IOException ex) {
+			err.println("Cannot save " + file + ": " + ex.getMessage());
+			return 1;
+		}
+		err.println(String.format(Locale.ROOT, "Calibrated in %.3f s, saved to %s", seconds, file));
+		return 0;
+	}
+	
+	/**
+	 * Returns whether the arguments ask for a calibrate command.
+	 * 
+	 * @param args The command line arguments.
+	 * @return True for "calibrate".
+	 */
+	public static boolean accepts(String[] args) {
+		return args.length > 0 && args[0].equals("calibrate");
+	}
+}
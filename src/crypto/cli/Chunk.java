@@ -0,0 +1,22 @@
+package crypto.cli;
+
+/**
+ * The Chunk class carries one piece of a file through the batch pipeline.
+ * The reader stage fills it with prepared letters and their position in the file, a worker shifts it in place and
+ * the writer stage writes it at its position, so chunks of the same file can be processed in any order.
+ */
+final class Chunk {
+	static final Chunk END = new Chunk(null, 0, null, 0); // Tells the next stage that no chunks follow
+	final FileTask file; // The file this chunk belongs to
+	final long position; // Position of the first letter in the prepared file
+	final byte[] letters; // Prepared letters, shifted in place by a worker
+	final int length; // Number of letters used in the buffer
+	byte[] key; // One-Time Pad key letters for this chunk, read or generated
+	
+	Chunk(FileTask file, long position, byte[] letters, int length) {
+		this.file = file;
+		this.position = position;
+		this.letters = letters;
+		this.length = length;
+	}
+}
@@ -0,0 +1,105 @@
+package crypto.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import crypto.analysis.Cryptanalyzer;
+import crypto.analysis.RecoveredKey;
+import crypto.engine.CipherKind;
+import crypto.engine.ShiftKernel;
+
+/**
+ * The CrackCommand class recovers the key of a Caesar or Vigenere cipher text file from the command line, so
+ * auditors do not have to try every key by hand. Like the batch mode it never touches AWT or Swing.
+ * 
+ * Usage: crack --cipher caesar|vigenere --in FILE [--max-key N]
+ */
+public final class CrackCommand {
+	static final String USAGE = "Usage: MultiCipherEncryptor crack --cipher caesar|vigenere --in FILE [--max-key N]";
+	
+	private CrackCommand() {
+	}
+	
+	/**
+	 * Runs a crack command.
+	 * 
+	 * @param args The command line arguments, starting with "crack".
+	 * @param out The stream receiving the recovered key.
+	 * @param err The stream receiving usage and error messages.
+	 * @return The process exit status: 0 on success, 1 on failure, 2 on invalid arguments.
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		CipherKind cipher = null;
+		Path in = null;
+		int maxKeyLength = Cryptanalyzer.DEFAULT_MAX_KEY_LENGTH;
+		try {
+			for(int i = 1; i < args.length; i += 2) {
+				if(i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + args[i]);
+				}
+				String value = args[i + 1];
+				switch(args[i]) {
+				case "--cipher":
+					cipher = BatchCommand.parseCipher(value);
+					break;
+				case "--in":
+					in = Paths.get(value);
+					break;
+				case "--max-key":
+					maxKeyLength = BatchCommand.positive(args[i], value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+			}
+			if(cipher == null || in == null) {
+				throw new IllegalArgumentException("--cipher and --in are required");
+			}
+			if(cipher == CipherKind.ONE_TIME_PAD) {
+				throw new IllegalArgumentException("One-Time Pad keys cannot be recovered from the cipher text");
+			}
+			if(!Files.isRegularFile(in)) {
+				throw new IllegalArgumentException("Input not found: " + in);
+			}
+		}
+		catch(IllegalArgumentException ex) {
+			err.println(ex.getMessage());
+			err.println(USAGE);
+			return 2;
+		}
+		
+		byte[] text;
+		try {
+			text = Files.readAllBytes(in);
+		}
+		catch(IOException ex) {
+			err.println("Cannot read " + in + ": " + ex.getMessage());
+			return 1;
+		}
+		long start = System.nanoTime();
+		int len = ShiftKernel.prepare(text, 0, text.length);
+		Cryptanalyzer analyzer = new Cryptanalyzer(ForkJoinPool.commonPool(), maxKeyLength,
+				Cryptanalyzer.DEFAULT_THRESHOLD);
+		RecoveredKey key = (cipher == CipherKind.CAESAR) ? analyzer.crackCaesar(text, 0, len)
+				: analyzer.crackVigenere(text, 0, len);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		out.println(key.keyText());
+		err.println(String.format(Locale.ROOT, "%s (%d letters in %.3f s)", key, len, seconds));
+		return 0;
+	}
+	
+	/**
+	 * Returns whether the arguments ask for a crack command.
+	 * 
+	 * @param args The command line arguments.
+	 * @return True for "crack".
+	 */
+	public static boolean accepts(String[] args) {
+		return args.length > 0 && args[0].equals("crack");
+	}
+}
@@ -0,0 +1,190 @@
+package crypto.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+import crypto.engine.MappedFileEngine;
+import crypto.engine.SegmentEngine;
+
+/**
+ * The FileCommand class encrypts or decrypts one large ASCII file from the command line without reading it onto
+ * the heap. The "mapped" engine (MappedFileEngine, the default) maps the input in windows of at most 2 GB; the
+ * "segment" engine (SegmentEngine) maps each file whole as a memory segment. One-Time Pad keys are written to, or
+ * read from, the file given with --key-file.
+ * 
+ * The segment engine runs on the Foreign Memory API, so the application must then be started with
+ * --add-modules jdk.incubator.foreign.
+ * 
+ * Usage: file encrypt|decrypt --cipher caesar|vigenere|otp [--key KEY] [--key-file FILE] --in FILE --out FILE
+ * [--engine mapped|segment]
+ */
+public final class FileCommand {
+	static final String USAGE = "Usage: MultiCipherEncryptor file encrypt|decrypt --cipher caesar|vigenere|otp [--key KEY]"
+			+ " [--key-file FILE] --in FILE --out FILE [--engine mapped|segment]";
+	
+	private FileCommand() {
+	}
+	
+	/**
+	 * Runs a file command.
+	 * 
+	 * @param args The command line arguments, starting with "file".
+	 * @param out The stream receiving the summary.
+	 * @param err The stream receiving usage and error messages.
+	 * @return The process exit status: 0 on success, 1 on failure, 2 on invalid arguments.
+	 */
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		boolean decrypt;
+		CipherKind cipher = null;
+		String keyText = null;
+		Path keyFile = null;
+		Path in = null;
+		Path outFile = null;
+		boolean segment = false;
+		KeySchedule key;
+		try {
+			if(args[1].equals("encrypt") || args[1].equals("decrypt")) {
+				decrypt = args[1].equals("decrypt");
+			}
+			else {
+				throw new IllegalArgumentException("Unknown command: file " + args[1]);
+			}
+			for(int i = 2; i < args.length; i += 2) {
+				if(i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + args[i]);
+				}
+				String value = args[i + 1];
+				switch(args[i]) {
+				case "--cipher":
+					cipher = BatchCommand.parseCipher(value);
+					break;
+				case "--key":
+					keyText = value;
+					break;
+				case "--key-file":
+					keyFile = Paths.get(value);
+					break;
+				case "--in":
+					in = Paths.get(value);
+					break;
+				case "--out":
+					outFile = Paths.get(value);
+					break;
+				case "--engine":
+					segment = parseEngine(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+			}
+			if(cipher == null || in == null || outFile == null) {
+				throw new IllegalArgumentException("--cipher, --in and --out are required");
+			}
+			if(cipher == CipherKind.ONE_TIME_PAD && keyFile == null) {
+				throw new IllegalArgumentException("--key-file is required for otp");
+			}
+			if(!Files.isRegularFile(in)) {
+				throw new IllegalArgumentException("Input not found: " + in);
+			}
+			// The engines truncate their outputs before reading, so an output that is also an input would be lost
+			if(isSameFile(in, outFile)) {
+				throw new IllegalArgumentException("--out must not be the input file");
+			}
+			if(cipher == CipherKind.ONE_TIME_PAD && (isSameFile(keyFile, outFile) || (!decrypt && isSameFile(keyFile, in)))) {
+				throw new IllegalArgumentException("--key-file must not be the input or the output file");
+			}
+			key = BatchCommand.parseKey(cipher, keyText);
+		}
+		catch(IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+			err.println(ex.getMessage() == null ? "Missing command" : ex.getMessage());
+			err.println(USAGE);
+			return 2;
+		}
+		
+		long start = System.nanoTime();
+		try {
+			long bytes = Files.size(in);
+			long letters = segment ? runSegment(key, decrypt, in, outFile, keyFile) : runMapped(key, decrypt, in, outFile, keyFile);
+			double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+			out.println(String.format(Locale.ROOT, "%s %d bytes into %d letters in %.3f s (%.1f MB/s, %s engine)",
+					decrypt ? "Decrypted" : "Encrypted", bytes, letters, seconds, bytes / seconds / 1e6,
+					segment ? "segment" : "mapped"));
+		}
+		catch(IOException | IllegalArgumentException ex) {
+			err.println("File failed: " + ex.getMessage());
+			return 1;
+		}
+		catch(NoClassDefFoundError ex) {
+			err.println("The segment engine needs the JVM option --add-modules jdk.incubator.foreign");
+			return 1;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Returns whether the arguments ask for a file command.
+	 * 
+	 * @param args The command line arguments.
+	 * @return True for "file".
+	 */
+	public static boolean accepts(String[] args) {
+		return args.length > 0 && args[0].equals("file");
+	}
+	
+	/**
+	 * Returns whether two paths name the same file, whether or not it exists yet.
+	 */
+	private static boolean isSameFile(Path a, Path b) {
+		if(a.toAbsolutePath().normalize().equals(b.toAbsolutePath().normalize())) {
+			return true;
+		}
+		try {
+			return Files.exists(a) && Files.exists(b) && Files.isSameFile(a, b); // Links and other names of one file
+		}
+		catch(IOException ex) {
+			return false; // Reported when the file is opened
+		}
+	}
+	
+	/**
+	 * Returns true for the segment engine and false for the mapped engine.
+	 */
+	private static boolean parseEngine(String value) {
+		switch(value.toLowerCase(Locale.ROOT)) {
+		case "mapped":
+			return false;
+		case "segment":
+			return true;
+		default:
+			throw new IllegalArgumentException("Unknown engine: " + value);
+		}
+	}
+	
+	private static long runMapped(KeySchedule key, boolean decrypt, Path in, Path out, Path keyFile) throws IOException {
+		if(key == null) {
+			return decrypt ? MappedFileEngine.decryptOneTimePad(in, keyFile, out)
+					: MappedFileEngine.encryptOneTimePad(in, out, keyFile);
+		}
+		MappedFileEngine engine = new MappedFileEngine(key);
+		return decrypt ? engine.decrypt(in, out) : engine.encrypt(in, out);
+	}
+	
+	/**
+	 * Kept apart from runMapped so that SegmentEngine, and the incubator module behind it, is only loaded when the
+	 * segment engine is chosen.
+	 */
+	private static long runSegment(KeySchedule key, boolean decrypt, Path in, Path out, Path keyFile) throws IOException {
+		if(key == null) {
+			return decrypt ? SegmentEngine.decryptOneTimePad(in, keyFile, out)
+					: SegmentEngine.encryptOneTimePad(in, out, keyFile);
+		}
+		SegmentEngine engine = new SegmentEngine(key);
+		return decrypt ? engine.decrypt(in, out) : engine.encrypt(in, out);
+	}
+}
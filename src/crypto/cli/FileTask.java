@@ -0,0 +1,82 @@
+package crypto.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The FileTask class tracks one output file in the writer stage: its channels and how many of its chunks have been
+ * written. The file is closed once the reader has announced the chunk count and every chunk has been written.
+ */
+final class FileTask {
+	final Path input; // The file being read
+	final Path output; // The file being written
+	final Path keyOutput; // The generated One-Time Pad key file, or null
+	private FileChannel channel; // Output channel, opened by the writer on the first chunk
+	private FileChannel keyChannel; // Key output channel, opened by the writer on the first chunk
+	private int written; // Chunks written so far
+	private volatile int chunks = -1; // Total number of chunks, set by the reader after the last one
+	
+	FileTask(Path input, Path output, Path keyOutput) {
+		this.input = input;
+		this.output = output;
+		this.keyOutput = keyOutput;
+	}
+	
+	/**
+	 * Records the number of chunks of the file. The reader calls it before queuing the last chunk.
+	 */
+	void setChunks(int chunks) {
+		this.chunks = chunks;
+	}
+	
+	/**
+	 * Writes a chunk at its position and closes the file when it was the last one. Only called by the writer.
+	 * 
+	 * @return True if the file is complete.
+	 */
+	boolean write(Chunk chunk) throws IOException {
+		if(channel == null) {
+			channel = open(output);
+			if(keyOutput != null) {
+				keyChannel = open(keyOutput);
+			}
+		}
+		writeFully(channel, chunk.letters, chunk.length, chunk.position);
+		if(keyChannel != null) {
+			writeFully(keyChannel, chunk.key, chunk.length, chunk.position);
+		}
+		written++;
+		if(written == chunks) {
+			close();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Closes the channels opened so far.
+	 */
+	void close() throws IOException {
+		if(channel != null) {
+			channel.close();
+		}
+		if(keyChannel != null) {
+			keyChannel.close();
+		}
+	}
+	
+	private static FileChannel open(Path path) throws IOException {
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+	
+	private static void writeFully(FileChannel channel, byte[] bytes, int length, long position) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(bytes, 0, length);
+		while(buf.hasRemaining()) {
+			channel.write(buf, position + buf.position());
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package crypto.cli;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+import crypto.engine.StreamingEngine;
+
+/**
+ * The TextCommand class encrypts or decrypts one text from the command line, for scripts that start the application
+ * many times a day. The text is read from standard input, or given with --text, and the result is written to
+ * standard output. Only the cipher core is loaded, and with --timing the time from main to the first output byte
+ * and to the end are reported on standard error. The time from the launch of the process is measured from
+ * outside, by crypto.benchmarks.StartupBenchmark.
+ * 
+ * Startup is dominated by class loading, which a class data sharing archive of the classes loaded by a training
+ * run removes. Building the encryptor module with -Pcds writes multicipherencryptor.jsa next to the jar. The JVM
+ * only accepts it with the same class path, so it is used from the directory holding both files:
+ * java -XX:SharedArchiveFile=multicipherencryptor.jsa -XX:TieredStopAtLevel=1 -jar multicipherencryptor-1.0-SNAPSHOT.jar
+ * 
+ * Usage: text encrypt|decrypt --cipher caesar|vigenere --key KEY [--text TEXT] [--timing]
+ */
+public final class TextCommand {
+	static final String USAGE = "Usage: MultiCipherEncryptor text encrypt|decrypt --cipher caesar|vigenere --key KEY"
+			+ " [--text TEXT] [--timing]";
+	
+	private TextCommand() {
+	}
+	
+	/**
+	 * Runs a text command.
+	 * 
+	 * @param args The command line arguments, starting with "text".
+	 * @param in The stream the text is read from when --text is not given.
+	 * @param out The stream receiving the result.
+	 * @param err The stream receiving the timings, usage and error messages.
+	 * @return The process exit status: 0 on success, 1 on failure, 2 on invalid arguments.
+	 */
+	public static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+		long mainNanos = System.nanoTime();
+		boolean decrypt;
+		CipherKind cipher = null;
+		String keyText = null;
+		String text = null;
+		boolean timing = false;
+		KeySchedule key;
+		try {
+			if(args[1].equals("encrypt") || args[1].equals("decrypt")) {
+				decrypt = args[1].equals("decrypt");
+			}
+			else {
+				throw new IllegalArgumentException("Unknown command: text " + args[1]);
+			}
+			for(int i = 2; i < args.length; i += 2) {
+				if(args[i].equals("--timing")) {
+					timing = true;
+					i--; // A flag without a value
+					continue;
+				}
+				if(i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + args[i]);
+				}
+				String value = args[i + 1];
+				switch(args[i]) {
+				case "--cipher":
+					cipher = BatchCommand.parseCipher(value);
+					break;
+				case "--key":
+					keyText = value;
+					break;
+				case "--text":
+					text = value;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+			}
+			if(cipher == null) {
+				throw new IllegalArgumentException("--cipher is required");
+			}
+			if(cipher == CipherKind.ONE_TIME_PAD) {
+				throw new IllegalArgumentException("One-Time Pad keys come from key files: use the encrypt and decrypt commands");
+			}
+			key = BatchCommand.parseKey(cipher, keyText);
+		}
+		catch(IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+			err.println(ex.getMessage() == null ? "Missing command" : ex.getMessage());
+			err.println(USAGE);
+			return 2;
+		}
+		
+		InputStream source = (text != null) ? new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)) : in;
+		FirstByteStream result = new FirstByteStream(out);
+		StreamingEngine engine = new StreamingEngine(key);
+		try {
+			if(decrypt) {
+				engine.decrypt(source, result);
+			}
+			else {
+				engine.encrypt(source, result);
+			}
+			out.println();
+			out.flush();
+		}
+		catch(IOException ex) {
+			err.println("Text failed: " + ex.getMessage());
+			return 1;
+		}
+		long endNanos = System.nanoTime();
+		if(timing) {
+			err.println(String.format(Locale.ROOT, "First byte %s, total %.3f ms after main",
+					result.firstWrite == 0 ? "none" : String.format(Locale.ROOT, "%.3f ms", (result.firstWrite - mainNanos) / 1e6),
+					(endNanos - mainNanos) / 1e6));
+		}
+		return 0;
+	}
+	
+	/**
+	 * Returns whether the arguments ask for a text command.
+	 * 
+	 * @param args The command line arguments.
+	 * @return True for "text".
+	 */
+	public static boolean accepts(String[] args) {
+		return args.length > 0 && args[0].equals("text");
+	}
+	
+	/**
+	 * Passes the result on and records when its first byte was written.
+	 */
+	private static final class FirstByteStream extends FilterOutputStream {
+		long firstWrite; // System.nanoTime() of the first write, or 0 before it
+		
+		FirstByteStream(OutputStream out) {
+			super(out);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if(firstWrite == 0 && len > 0) {
+				firstWrite = System.nanoTime();
+			}
+			out.write(b, off, len);
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			if(firstWrite == 0) {
+				firstWrite = System.nanoTime();
+			}
+			out.write(b);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package crypto.container;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import crypto.ciphers.Cipher;
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+
+/**
+ * The CipherContainer class reads a seekable container of cipher text, as written by CipherContainerWriter.
+ * Every letter of a Caesar, Vigenere or One-Time Pad cipher text can be decrypted on its own once its position is
+ * known, so any range of the plain text is decrypted by reading only that range of the file: the I/O is
+ * proportional to the range, not to the size of the container.
+ * 
+ * Layout (little-endian): a 56-byte header (magic "MCCF", version, cipher id, letter count, letters per chunk,
+ * chunk count, index offset, 16-byte random salt, salted key fingerprint), the cipher chunks with one ASCII letter
+ * per byte, then the chunk index holding the file offset and CRC-32 of every chunk.
+ */
+public final class CipherContainer implements AutoCloseable {
+	public static final int MAGIC = 0x4643434D; // "MCCF" read as a little-endian int
+	public static final short VERSION = 2; // Version 1 stored an unsalted key fingerprint
+	public static final int HEADER_SIZE = 56;
+	public static final int SALT_SIZE = 16; // Random bytes keying the fingerprint of each file
+	public static final int INDEX_ENTRY_SIZE = 12; // Chunk offset (long) and CRC-32 (int)
+	public static final int DEFAULT_CHUNK_LETTERS = 1024 * 1024;
+	private static final int TRANSFER_SIZE = 64 * 1024; // Letters decrypted at a time by transferTo
+	private final FileChannel channel;
+	private final Cipher cipher; // The cipher of the key the container was written with
+	private final long letters; // Letters in the container
+	private final int chunkLetters; // Letters per chunk
+	private final long[] offsets; // File offset of every chunk
+	private final int[] checksums; // CRC-32 of every chunk
+	
+	private CipherContainer(FileChannel channel, KeySchedule key) throws IOException {
+		this.channel = channel;
+		ByteBuffer header = readFully(0, HEADER_SIZE);
+		if(header.getInt() != MAGIC || header.getShort() != VERSION) {
+			throw new IOException("Not a cipher container file");
+		}
+		int cipherId = header.getShort();
+		letters = header.getLong();
+		chunkLetters = header.getInt();
+		int chunks = header.getInt();
+		long indexOffset = header.getLong();
+		byte[] salt = new byte[SALT_SIZE];
+		header.get(salt);
+		long fingerprint = header.getLong();
+		if(cipherId < 0 || cipherId >= CipherKind.values().length || chunkLetters <= 0
+				|| chunks != (int) ((letters + chunkLetters - 1) / chunkLetters)) {
+			throw new IOException("Corrupt cipher container header");
+		}
+		if(CipherKind.values()[cipherId] != key.kind() || fingerprint != key.fingerprint(salt)) {
+			throw new IllegalArgumentException("The key does not match the key the container was written with");
+		}
+		cipher = Cipher.of(key);
+		ByteBuffer index = readFully(indexOffset, chunks * INDEX_ENTRY_SIZE);
+		offsets = new long[chunks];
+		checksums = new int[chunks];
+		for(int c = 0; c < chunks; c++) {
+			offsets[c] = index.getLong();
+			checksums[c] = index.getInt();
+		}
+	}
+	
+	/**
+	 * Opens a container for decryption.
+	 * 
+	 * @param path The container file.
+	 * @param key The key the container was written with.
+	 * @return The opened container.
+	 * @throws IOException If the file cannot be read or is not a container file.
+	 * @throws IllegalArgumentException If the key is not the one the container was written with.
+	 */
+	public static CipherContainer open(Path path, KeySchedule key) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new CipherContainer(channel, key);
+		}
+		catch(IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+	
+	private ByteBuffer readFully(long position, int size) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		while(buf.hasRemaining()) {
+			if(channel.read(buf, position + buf.position()) == -1) {
+				throw new IOException("Truncated cipher container file");
+			}
+		}
+		return buf.flip();
+	}
+	
+	/**
+	 * Returns the number of letters in the container.
+	 * 
+	 * @return The plain text length, in letters.
+	 */
+	public long length() {
+		return letters;
+	}
+	
+	/**
+	 * Returns the cipher the container was written with.
+	 * 
+	 * @return The cipher kind.
+	 */
+	public CipherKind kind() {
+		return cipher.kind();
+	}
+	
+	/**
+	 * Returns the number of letters per chunk.
+	 * 
+	 * @return The chunk size.
+	 */
+	public int chunkLetters() {
+		return chunkLetters;
+	}
+	
+	/**
+	 * Decrypts the letters of a range into a byte buffer, reading only that range of the file.
+	 * 
+	 * @param position The position of the first letter.
+	 * @param dst The buffer receiving the plain ASCII letters.
+	 * @param off The index receiving the first letter.
+	 * @param len The number of letters.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public void read(long position, byte[] dst, int off, int len) throws IOException {
+		checkRange(position, len);
+		ByteBuffer buf = ByteBuffer.wrap(dst, off, len);
+		int done = 0;
+		while(done < len) {
+			long p = position + done;
+			int chunk = (int) (p / chunkLetters);
+			int inChunk = (int) (p % chunkLetters);
+			int n = Math.min(len - done, chunkLetters - inChunk);
+			buf.limit(off + done + n);
+			long filePos = offsets[chunk] + inChunk;
+			while(buf.hasRemaining()) {
+				if(channel.read(buf, filePos + (buf.position() - off - done)) == -1) {
+					throw new IOException("Truncated cipher container file");
+				}
+			}
+			done += n;
+		}
+		cipher.decrypt(dst, off, len, dst, off, position);
+	}
+	
+	/**
+	 * Decrypts the letters of the range [from, to) and writes them to a stream, a block at a time.
+	 * This is the body of a range request over an encrypted archive.
+	 * 
+	 * @param from The position of the first letter.
+	 * @param to The position after the last letter.
+	 * @param out The stream receiving the plain ASCII letters; it is not closed.
+	 * @return The number of letters written.
+	 * @throws IOException If the file cannot be read or the stream cannot be written.
+	 */
+	public long transferTo(long from, long to, OutputStream out) throws IOException {
+		if(from > to) {
+			throw new IllegalArgumentException("The range ends before it starts");
+		}
+		checkRange(from, to - from);
+		byte[] block = new byte[(int) Math.min(TRANSFER_SIZE, to - from)];
+		for(long p = from; p < to; p += block.length) {
+			int n = (int) Math.min(block.length, to - p);
+			read(p, block, 0, n);
+			out.write(block, 0, n);
+		}
+		return to - from;
+	}
+	
+	private void checkRange(long position, long len) {
+		if(position < 0 || len < 0 || position + len > letters) {
+			throw new IndexOutOfBoundsException("The range is outside the container of " + letters + " letters");
+		}
+	}
+	
+	/**
+	 * Checks the CRC-32 of every chunk against the index.
+	 * 
+	 * @throws IOException If a chunk is corrupt or cannot be read.
+	 */
+	public void verify() throws IOException {
+		CRC32 crc = new CRC32();
+		for(int c = 0; c < offsets.length; c++) {
+			int chunkSize = (int) Math.min(chunkLetters, letters - (long) c * chunkLetters);
+			crc.reset();
+			crc.update(readFully(offsets[c], chunkSize));
+			if((int) crc.getValue() != checksums[c]) {
+				throw new IOException("Cipher container chunk " + c + " is corrupt");
+			}
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
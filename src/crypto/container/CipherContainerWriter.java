@@ -0,0 +1,189 @@
+package crypto.container;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.zip.CRC32;
+
+import crypto.ciphers.Cipher;
+import crypto.engine.KeySchedule;
+
+/**
+ * The CipherContainerWriter class encrypts plain text into a seekable cipher container.
+ * It is a Writer, so any text can be written to it; the text is prepared the same way as in the cipher classes
+ * (lower cased, every non-letter removed) and encrypted one chunk at a time. The chunk index and the final header
+ * are written when the writer is closed. See CipherContainer for the layout.
+ */
+public final class CipherContainerWriter extends Writer {
+	private final FileChannel channel; // The container file
+	private final KeySchedule key; // The key the container is encrypted with
+	private final Cipher cipher; // The cipher of the key
+	private final byte[] salt = new byte[CipherContainer.SALT_SIZE]; // The random salt of the key fingerprint
+	private final byte[] chunk; // Letters of the chunk being filled
+	private final CRC32 crc = new CRC32();
+	private int chunkSize; // Letters in the current chunk
+	private long letters; // Letters written in total
+	private int chunks; // Chunks written to the file
+	private ByteBuffer indexBuffer; // Index entries of the chunks written so far, grown when full
+	private boolean closed;
+	
+	/**
+	 * Creates a container with the default chunk size, replacing any previous file.
+	 * 
+	 * @param path The container file.
+	 * @param key The key to encrypt with.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public CipherContainerWriter(Path path, KeySchedule key) throws IOException {
+		this(path, key, CipherContainer.DEFAULT_CHUNK_LETTERS);
+	}
+	
+	/**
+	 * Creates a container, replacing any previous file.
+	 * 
+	 * @param path The container file.
+	 * @param key The key to encrypt with.
+	 * @param chunkLetters The number of letters per chunk.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public CipherContainerWriter(Path path, KeySchedule key, int chunkLetters) throws IOException {
+		if(chunkLetters <= 0) {
+			throw new IllegalArgumentException("The chunk size must be positive");
+		}
+		this.key = key;
+		cipher = Cipher.of(key);
+		new SecureRandom().nextBytes(salt);
+		chunk = new byte[chunkLetters];
+		indexBuffer = ByteBuffer.allocate(CipherContainer.INDEX_ENTRY_SIZE * 64).order(ByteOrder.LITTLE_ENDIAN);
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		channel.position(CipherContainer.HEADER_SIZE); // The header is written last, once the counts are known
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		for(int i = off; i < off + len; i++) {
+			int lower = cbuf[i] | 0x20;
+			if(lower >= 'a' && lower <= 'z') {
+				put(lower);
+			}
+		}
+	}
+	
+	/**
+	 * Writes plain text given as ASCII bytes.
+	 * 
+	 * @param text The plain text.
+	 * @param off The index of the first byte.
+	 * @param len The number of bytes.
+	 * @throws IOException If writing fails.
+	 */
+	public void write(byte[] text, int off, int len) throws IOException {
+		ensureOpen();
+		for(int i = off; i < off + len; i++) {
+			int lower = text[i] | 0x20;
+			if(lower >= 'a' && lower <= 'z') {
+				put(lower);
+			}
+		}
+	}
+	
+	/**
+	 * Adds one lower case letter to the current chunk, and writes the chunk once it is full.
+	 */
+	private void put(int letter) throws IOException {
+		chunk[chunkSize++] = (byte) letter;
+		if(chunkSize == chunk.length) {
+			flushChunk();
+		}
+	}
+	
+	/**
+	 * Encrypts the chunk at its position in the text, writes it to the file and records its offset and checksum
+	 * in the index.
+	 */
+	private void flushChunk() throws IOException {
+		cipher.encrypt(chunk, 0, chunkSize, chunk, 0, letters);
+		crc.reset();
+		crc.update(chunk, 0, chunkSize);
+		long offset = channel.position();
+		ByteBuffer buf = ByteBuffer.wrap(chunk, 0, chunkSize);
+		while(buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		if(!indexBuffer.hasRemaining()) {
+			ByteBuffer grown = ByteBuffer.allocate(indexBuffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+			indexBuffer.flip();
+			grown.put(indexBuffer);
+			indexBuffer = grown;
+		}
+		indexBuffer.putLong(offset).putInt((int) crc.getValue());
+		letters += chunkSize;
+		chunks++;
+		chunkSize = 0;
+	}
+	
+	/**
+	 * Returns the number of letters written so far.
+	 * 
+	 * @return The letter count.
+	 */
+	public long letters() {
+		return letters + chunkSize;
+	}
+	
+	private void ensureOpen() throws IOException {
+		if(closed) {
+			throw new IOException("The container is closed");
+		}
+	}
+	
+	/**
+	 * A chunk is only encrypted once it is full, so there is nothing to flush before close.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+	}
+	
+	/**
+	 * Writes the last chunk, the chunk index and the header, and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		try(FileChannel file = channel) {
+			if(chunkSize > 0) {
+				flushChunk();
+			}
+			long indexOffset = file.position();
+			indexBuffer.flip();
+			while(indexBuffer.hasRemaining()) {
+				file.write(indexBuffer);
+			}
+			ByteBuffer header = ByteBuffer.allocate(CipherContainer.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(CipherContainer.MAGIC)
+					.putShort(CipherContainer.VERSION)
+					.putShort((short) key.kind().ordinal())
+					.putLong(letters)
+					.putInt(chunk.length)
+					.putInt(chunks)
+					.putLong(indexOffset)
+					.put(salt)
+					.putLong(key.fingerprint(salt))
+					.flip();
+			while(header.hasRemaining()) {
+				file.write(header, header.position());
+			}
+		}
+	}
+}
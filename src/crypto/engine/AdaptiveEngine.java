@@ -0,0 +1,320 @@
+package crypto.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import crypto.metrics.AdaptiveEngineMXBean;
+import crypto.metrics.CipherMetrics;
+
+/**
+ * The AdaptiveEngine class shifts each text with the engine that is the fastest for its size and cipher on this
+ * machine, so callers do not have to choose one: texts shorter than MIN_ROUTED_LENGTH, such as GUI input, stay on
+ * the scalar kernel with no overhead, and large texts go through VectorEngine or ParallelEngine from the crossovers
+ * of the current EngineProfile.
+ * 
+ * The profile is shared by every instance. It is loaded from the file named by the system property
+ * crypto.engine.profile (by default .multicipherencryptor/engine-profile.properties in the user's home) when it was
+ * measured on this machine; otherwise the defaults are used. Encrypting never calibrates: the profile is measured by
+ * the calibrate command, by calibrateInBackground (called when the cipher service starts), or on the first routed
+ * text when the system property crypto.engine.calibrate is true. The crossovers and the number of calls sent to each
+ * engine are exposed through JMX when metrics are enabled.
+ */
+public final class AdaptiveEngine {
+	public static final int MIN_ROUTED_LENGTH = EngineProfile.MIN_SIZE; // Letters below which the scalar kernel is used
+	private static final LongAdder[] ROUTED = new LongAdder[CipherKind.values().length * 2 * EngineRoute.values().length];
+	private final KeySchedule key; // The key used for encryption and decryption
+	private final CompiledKey compiled; // The compiled tables of a Caesar or Vigenere key, or null
+	private final ParallelEngine parallel; // The engine of the parallel route
+	private volatile VectorEngine vector; // The engine of the vector route, created on its first use
+	
+	static {
+		for(int i = 0; i < ROUTED.length; i++) {
+			ROUTED[i] = new LongAdder();
+		}
+	}
+	
+	/**
+	 * Creates an engine whose scalar route uses the shift kernel.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 */
+	public AdaptiveEngine(KeySchedule key) {
+		this(key, null);
+	}
+	
+	/**
+	 * Creates an engine whose scalar route for char text uses compiled tables.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 * @param compiled The compiled tables of the key, or null to use the shift kernel.
+	 */
+	public AdaptiveEngine(KeySchedule key, CompiledKey compiled) {
+		this.key = key;
+		this.compiled = compiled;
+		this.parallel = new ParallelEngine(key);
+	}
+	
+	/**
+	 * Returns the crossovers in use, loading the saved profile on the first call.
+	 * 
+	 * @return The shared profile, or the defaults when none was saved for this machine.
+	 */
+	public static EngineProfile profile() {
+		return Shared.profile;
+	}
+	
+	/**
+	 * Calibrates the crossovers on a background thread and saves them to the profile file, unless a calibrated
+	 * profile is loaded already or a calibration is running. The defaults are used until it ends.
+	 */
+	public static void calibrateInBackground() {
+		Shared.calibrate();
+	}
+	
+	/**
+	 * Returns the number of calls sent to an engine so far.
+	 * 
+	 * @param kind The cipher.
+	 * @param bytes True for ASCII bytes, false for chars.
+	 * @param route The engine.
+	 * @return The call count.
+	 */
+	public static long routedCalls(CipherKind kind, boolean bytes, EngineRoute route) {
+		return ROUTED[counter(kind, bytes, route)].sum();
+	}
+	
+	private static int counter(CipherKind kind, boolean bytes, EngineRoute route) {
+		return (kind.ordinal() * 2 + (bytes ? 1 : 0)) * EngineRoute.values().length + route.ordinal();
+	}
+	
+	/**
+	 * Returns the file the profile is saved to.
+	 * 
+	 * @return The profile file.
+	 */
+	public static Path profileFile() {
+		String file = System.getProperty("crypto.engine.profile");
+		return (file != null) ? Paths.get(file)
+				: Paths.get(System.getProperty("user.home"), ".multicipherencryptor", "engine-profile.properties");
+	}
+	
+	/**
+	 * Shifts letters into a buffer (or the same one) with the fastest engine for their number.
+	 * 
+	 * @param src The buffer holding lower case letters.
+	 * @param srcOff The index of the first letter.
+	 * @param dst The buffer receiving the shifted letters.
+	 * @param dstOff The index receiving the first shifted letter.
+	 * @param len The number of letters to shift.
+	 * @param position The position of the first letter in the whole text, which selects the key letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The engine used.
+	 */
+	public EngineRoute shift(char[] src, int srcOff, char[] dst, int dstOff, int len, long position, boolean decrypt) {
+		EngineRoute route = route(false, len);
+		shift(route, src, srcOff, dst, dstOff, len, position, decrypt);
+		return route;
+	}
+	
+	/**
+	 * Shifts ASCII letters into a buffer (or the same one) with the fastest engine for their number.
+	 * 
+	 * @param src The buffer holding lower case ASCII letters.
+	 * @param srcOff The index of the first letter.
+	 * @param dst The buffer receiving the shifted letters.
+	 * @param dstOff The index receiving the first shifted letter.
+	 * @param len The number of letters to shift.
+	 * @param position The position of the first letter in the whole text, which selects the key letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The engine used.
+	 */
+	public EngineRoute shift(byte[] src, int srcOff, byte[] dst, int dstOff, int len, long position, boolean decrypt) {
+		EngineRoute route = route(true, len);
+		shift(route, src, srcOff, dst, dstOff, len, position, decrypt);
+		return route;
+	}
+	
+	/**
+	 * Encrypts a text, prepared the same way as in the cipher classes.
+	 * 
+	 * @param text The plain text.
+	 * @return The cipher text.
+	 */
+	public String encrypt(String text) {
+		char[] buf = text.toCharArray();
+		int len = ShiftKernel.prepare(buf, 0, buf.length);
+		shift(buf, 0, buf, 0, len, 0, false);
+		return new String(buf, 0, len);
+	}
+	
+	/**
+	 * Decrypts a text, prepared the same way as in the cipher classes.
+	 * 
+	 * @param text The cipher text.
+	 * @return The plain text.
+	 */
+	public String decrypt(String text) {
+		char[] buf = text.toCharArray();
+		int len = ShiftKernel.prepare(buf, 0, buf.length);
+		shift(buf, 0, buf, 0, len, 0, true);
+		return new String(buf, 0, len);
+	}
+	
+	/**
+	 * Picks the engine for a text and counts the decision. Short texts are not counted, to keep their path free.
+	 */
+	private EngineRoute route(boolean bytes, int len) {
+		if(len < MIN_ROUTED_LENGTH) {
+			return EngineRoute.SCALAR;
+		}
+		EngineRoute route = Shared.profile.route(key.kind(), bytes, len);
+		ROUTED[counter(key.kind(), bytes, route)].increment();
+		return route;
+	}
+	
+	/**
+	 * Shifts chars with a given engine. The vector and parallel engines work in place, so the letters are copied to
+	 * the destination first when it is another range.
+	 */
+	void shift(EngineRoute route, char[] src, int srcOff, char[] dst, int dstOff, int len, long position,
+			boolean decrypt) {
+		if(len == 0) {
+			return;
+		}
+		key.checkRange(position, len);
+		if(route == EngineRoute.PARALLEL) {
+			if(src != dst || srcOff != dstOff) {
+				System.arraycopy(src, srcOff, dst, dstOff, len);
+			}
+			parallel.shift(dst, dstOff, len, position, decrypt);
+		}
+		else if(compiled == null) {
+			key.shift(src, srcOff, dst, dstOff, len, key.keyIndex(position), decrypt);
+		}
+		else if(decrypt) {
+			compiled.decrypt(src, srcOff, dst, dstOff, len, key.keyIndex(position));
+		}
+		else {
+			compiled.encrypt(src, srcOff, dst, dstOff, len, key.keyIndex(position));
+		}
+	}
+	
+	/**
+	 * Shifts ASCII bytes with a given engine, copying them to the destination first for the in-place engines.
+	 */
+	void shift(EngineRoute route, byte[] src, int srcOff, byte[] dst, int dstOff, int len, long position,
+			boolean decrypt) {
+		if(len == 0) {
+			return;
+		}
+		key.checkRange(position, len);
+		if(route == EngineRoute.SCALAR) {
+			key.shift(src, srcOff, dst, dstOff, len, key.keyIndex(position), decrypt);
+			return;
+		}
+		if(src != dst || srcOff != dstOff) {
+			System.arraycopy(src, srcOff, dst, dstOff, len);
+		}
+		if(route == EngineRoute.VECTOR) {
+			vector().shift(dst, dstOff, len, position, decrypt);
+		}
+		else {
+			parallel.shift(dst, dstOff, len, position, decrypt);
+		}
+	}
+	
+	/**
+	 * Returns the vector engine, creating it on first use: its key stripe is only worth building for large texts. The
+	 * field is volatile so that another thread never sees a partly built engine.
+	 */
+	private VectorEngine vector() {
+		VectorEngine engine = vector;
+		if(engine == null) {
+			engine = new VectorEngine(key); // Immutable, so two threads creating one each is harmless
+			vector = engine;
+		}
+		return engine;
+	}
+	
+	/**
+	 * Holds the shared profile, so that it is only loaded once a text is routed. Engines created by the calibration
+	 * itself never touch it.
+	 */
+	private static final class Shared {
+		static volatile EngineProfile profile = initialProfile(); // The crossovers in use
+		private static final AtomicBoolean calibrating = new AtomicBoolean(); // Whether a calibration was started
+		
+		static {
+			CipherMetrics.registerAdaptiveEngine(new Routing());
+			if(Boolean.getBoolean("crypto.engine.calibrate")) {
+				calibrate();
+			}
+		}
+		
+		/**
+		 * Loads the saved profile, or returns the defaults.
+		 */
+		private static EngineProfile initialProfile() {
+			EngineProfile saved = EngineProfile.load(profileFile());
+			return (saved != null) ? saved : EngineProfile.defaults();
+		}
+		
+		/**
+		 * Starts a background calibration, unless the profile is calibrated or one was started already.
+		 */
+		static void calibrate() {
+			if(profile.isCalibrated() || !calibrating.compareAndSet(false, true)) {
+				return;
+			}
+			Thread calibration = new Thread(() -> {
+				EngineProfile calibrated = EngineProfile.calibrate();
+				profile = calibrated;
+				try {
+					calibrated.save(profileFile());
+				}
+				catch(IOException ex) {
+					// Calibrated again at the next start
+				}
+			}, "engine-calibration");
+			calibration.setDaemon(true);
+			calibration.setPriority(Thread.MIN_PRIORITY);
+			calibration.start();
+		}
+	}
+	
+	/**
+	 * The JMX view of the shared profile and of the decision counters.
+	 */
+	private static final class Routing implements AdaptiveEngineMXBean {
+		
+		@Override
+		public boolean isCalibrated() {
+			return Shared.profile.isCalibrated();
+		}
+		
+		@Override
+		public String[] getProfile() {
+			return Shared.profile.toString().split("\n");
+		}
+		
+		@Override
+		public Map<String, Long> getRoutedCalls() {
+			Map<String, Long> calls = new LinkedHashMap<>();
+			for(CipherKind kind : CipherKind.values()) {
+				for(int b = 0; b < 2; b++) {
+					for(EngineRoute route : EngineRoute.values()) {
+						calls.put((kind.name() + (b == 1 ? " bytes " : " chars ") + route.name()).toLowerCase(Locale.ROOT),
+								routedCalls(kind, b == 1, route));
+					}
+				}
+			}
+			return calls;
+		}
+	}
+}
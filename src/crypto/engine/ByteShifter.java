@@ -0,0 +1,45 @@
+package crypto.engine;
+
+/**
+ * The ByteShifter interface is implemented by the byte kernels behind VectorEngine.
+ * The key is passed as a stripe: the shift values of the key followed by enough repeated values that a full vector
+ * of shifts can be loaded from any key index below keyLength.
+ */
+interface ByteShifter {
+	
+	/**
+	 * Shifts a range of lower case ASCII letters in place.
+	 * 
+	 * @param buf The buffer holding the letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @param stripe The key shift values, extended past keyLength for vector loads.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param keyLength The number of positions after which the key repeats.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	int shift(byte[] buf, int off, int len, byte[] stripe, int keyIndex, int keyLength, boolean decrypt);
+	
+	/**
+	 * Returns a short name of the kernel, to report which one was selected.
+	 * 
+	 * @return The kernel name.
+	 */
+	String name();
+	
+	/**
+	 * Shifts a range one byte at a time. Used for the tail of a range and for words holding anything but
+	 * lower case letters, so every kernel gives the same result as ShiftKernel.
+	 */
+	static int scalar(byte[] buf, int off, int len, byte[] stripe, int keyIndex, int keyLength, boolean decrypt) {
+		for(int i = off; i < off + len; i++) {
+			int s = decrypt ? 26 - stripe[keyIndex] : stripe[keyIndex];
+			buf[i] = (byte) ('a' + (buf[i] - 'a' + s) % 26);
+			if(++keyIndex == keyLength) {
+				keyIndex = 0;
+			}
+		}
+		return keyIndex;
+	}
+}
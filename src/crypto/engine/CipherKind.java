@@ -0,0 +1,11 @@
+package crypto.engine;
+
+/**
+ * The CipherKind enum identifies the three shift ciphers supported by the application.
+ * Every engine works on the same letter shift, so the kind only decides how the key repeats over the text.
+ */
+public enum CipherKind {
+	CAESAR, // One shift value applied to every letter
+	VIGENERE, // A repeating key, one shift value per key letter
+	ONE_TIME_PAD; // A key as long as the message, never repeated
+}
@@ -0,0 +1,160 @@
+package crypto.engine;
+
+/**
+ * The CompiledKey class holds precomputed substitution tables for a Caesar or Vigenere key.
+ * Each key letter gets a 26-entry row for encryption and one for decryption (one row in total for Caesar), so
+ * shifting a letter is a single table lookup instead of an addition and a modulo. Compiled keys are immutable and
+ * are meant to be built once and shared, usually through CompiledKeyCache.
+ */
+public final class CompiledKey {
+	public static final int MAX_COMPILED_LENGTH = 1024; // Longest key worth compiling: its tables take 104 KB
+	private final KeySchedule schedule; // The key this table was compiled from
+	private final char[] encryptTable; // Row for each key letter: plain letter index to cipher letter
+	private final char[] decryptTable; // Row for each key letter: cipher letter index to plain letter
+	
+	/**
+	 * Compiles the tables for a key schedule.
+	 * 
+	 * @param schedule A Caesar or Vigenere key schedule. One-Time Pad keys are as long as the message and are
+	 * never reused, so they are not compiled.
+	 */
+	public CompiledKey(KeySchedule schedule) {
+		if(schedule.kind() == CipherKind.ONE_TIME_PAD) {
+			throw new IllegalArgumentException("One-Time Pad keys cannot be compiled");
+		}
+		this.schedule = schedule;
+		int keyLength = schedule.length();
+		encryptTable = new char[keyLength * 26];
+		decryptTable = new char[keyLength * 26];
+		for(int k = 0; k < keyLength; k++) {
+			int shift = schedule.shiftAt(k);
+			for(int c = 0; c < 26; c++) {
+				encryptTable[k * 26 + c] = (char) ('a' + (c + shift) % 26);
+				decryptTable[k * 26 + c] = (char) ('a' + (c - shift + 26) % 26);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the key this table was compiled from.
+	 * 
+	 * @return The key schedule.
+	 */
+	public KeySchedule schedule() {
+		return schedule;
+	}
+	
+	/**
+	 * Returns the number of key letters (1 for Caesar).
+	 * 
+	 * @return The key length.
+	 */
+	public int length() {
+		return schedule.length();
+	}
+	
+	/**
+	 * Encrypts one letter.
+	 * 
+	 * @param ch The lower case plain letter.
+	 * @param keyIndex The index of the key letter to use.
+	 * @return The cipher letter.
+	 */
+	public char encrypt(char ch, int keyIndex) {
+		int c = ch - 'a';
+		if(c < 0 || c >= 26) {
+			return (char) ('a' + (c + schedule.shiftAt(keyIndex)) % 26); // Not a letter: same result as the plain formula
+		}
+		return encryptTable[keyIndex * 26 + c];
+	}
+	
+	/**
+	 * Decrypts one letter.
+	 * 
+	 * @param ch The lower case cipher letter.
+	 * @param keyIndex The index of the key letter to use.
+	 * @return The plain letter.
+	 */
+	public char decrypt(char ch, int keyIndex) {
+		int c = ch - 'a';
+		if(c < 0 || c >= 26) {
+			return (char) ('a' + (c - schedule.shiftAt(keyIndex) + 26) % 26);
+		}
+		return decryptTable[keyIndex * 26 + c];
+	}
+	
+	/**
+	 * Encrypts a range of letters in place.
+	 * 
+	 * @param buf The buffer holding lower case letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int encrypt(char[] buf, int off, int len, int keyIndex) {
+		return apply(encryptTable, buf, off, buf, off, len, keyIndex, false);
+	}
+	
+	/**
+	 * Encrypts a range of letters into another buffer.
+	 * 
+	 * @param src The buffer holding lower case letters.
+	 * @param srcOff The index of the first letter.
+	 * @param dst The buffer receiving the cipher letters.
+	 * @param dstOff The index receiving the first cipher letter.
+	 * @param len The number of letters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int encrypt(char[] src, int srcOff, char[] dst, int dstOff, int len, int keyIndex) {
+		return apply(encryptTable, src, srcOff, dst, dstOff, len, keyIndex, false);
+	}
+	
+	/**
+	 * Decrypts a range of letters in place.
+	 * 
+	 * @param buf The buffer holding lower case letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int decrypt(char[] buf, int off, int len, int keyIndex) {
+		return apply(decryptTable, buf, off, buf, off, len, keyIndex, true);
+	}
+	
+	/**
+	 * Decrypts a range of letters into another buffer.
+	 * 
+	 * @param src The buffer holding lower case letters.
+	 * @param srcOff The index of the first letter.
+	 * @param dst The buffer receiving the plain letters.
+	 * @param dstOff The index receiving the first plain letter.
+	 * @param len The number of letters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int decrypt(char[] src, int srcOff, char[] dst, int dstOff, int len, int keyIndex) {
+		return apply(decryptTable, src, srcOff, dst, dstOff, len, keyIndex, true);
+	}
+	
+	/**
+	 * Looks every letter up in its key row, walking the rows without a modulo.
+	 */
+	private int apply(char[] table, char[] src, int srcOff, char[] dst, int dstOff, int len, int keyIndex,
+			boolean decrypt) {
+		int keyLength = schedule.length();
+		for(int i = 0; i < len; i++) {
+			char ch = src[srcOff + i];
+			int c = ch - 'a';
+			dst[dstOff + i] = (c >= 0 && c < 26)
+					? table[keyIndex * 26 + c]
+					: (decrypt ? decrypt(ch, keyIndex) : encrypt(ch, keyIndex));
+			if(++keyIndex == keyLength) {
+				keyIndex = 0;
+			}
+		}
+		return keyIndex;
+	}
+}
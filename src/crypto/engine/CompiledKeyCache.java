@@ -0,0 +1,117 @@
+package crypto.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The CompiledKeyCache class keeps the most recently used compiled keys, so that a service encrypting many messages
+ * with the same few keys compiles each key only once. The cache is bounded and evicts the least recently used key.
+ * All methods are thread-safe. Hit and miss counters are exposed to check how well the cache works.
+ */
+public final class CompiledKeyCache {
+	public static final int DEFAULT_CAPACITY = 64; // Default number of compiled keys kept
+	private static final CompiledKeyCache SHARED = new CompiledKeyCache(DEFAULT_CAPACITY);
+	private final Map<KeySchedule, CompiledKey> keys; // Access-ordered map, least recently used first
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
+	/**
+	 * Creates a cache.
+	 * 
+	 * @param capacity The largest number of compiled keys kept.
+	 */
+	@SuppressWarnings("serial")
+	public CompiledKeyCache(int capacity) {
+		if(capacity <= 0) {
+			throw new IllegalArgumentException("The cache capacity must be positive");
+		}
+		keys = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<KeySchedule, CompiledKey> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the cache shared by the cipher classes.
+	 * 
+	 * @return The shared cache.
+	 */
+	public static CompiledKeyCache shared() {
+		return SHARED;
+	}
+	
+	/**
+	 * Returns the compiled Caesar key for a shift value.
+	 * 
+	 * @param key The shift value; it will be reduced to the range 0-25.
+	 * @return The compiled key.
+	 */
+	public CompiledKey caesar(int key) {
+		return get(KeySchedule.caesar(key));
+	}
+	
+	/**
+	 * Returns the compiled Vigenere key for some key letters.
+	 * 
+	 * @param key The key letters.
+	 * @return The compiled key.
+	 */
+	public CompiledKey vigenere(char[] key) {
+		return get(KeySchedule.vigenere(key));
+	}
+	
+	/**
+	 * Returns the compiled key for a key schedule, compiling it on the first use.
+	 * 
+	 * @param schedule A Caesar or Vigenere key schedule.
+	 * @return The compiled key.
+	 */
+	public synchronized CompiledKey get(KeySchedule schedule) {
+		CompiledKey compiled = keys.get(schedule);
+		if(compiled != null) {
+			hits.increment();
+			return compiled;
+		}
+		misses.increment();
+		compiled = new CompiledKey(schedule);
+		keys.put(schedule, compiled);
+		return compiled;
+	}
+	
+	/**
+	 * Returns the number of lookups that found an already compiled key.
+	 * 
+	 * @return The hit count.
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * Returns the number of lookups that had to compile a key.
+	 * 
+	 * @return The miss count.
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * Returns the number of compiled keys currently kept.
+	 * 
+	 * @return The cache size.
+	 */
+	public synchronized int size() {
+		return keys.size();
+	}
+	
+	/**
+	 * Removes every compiled key. The counters are kept.
+	 */
+	public synchronized void clear() {
+		keys.clear();
+	}
+}
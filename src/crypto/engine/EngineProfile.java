@@ -0,0 +1,294 @@
+package crypto.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * The EngineProfile class holds the input sizes from which each engine is the fastest on this machine, per cipher
+ * and for char and byte text. A text shorter than every crossover stays on the scalar kernel; from the vector
+ * crossover on, bytes go through VectorEngine, and from the parallel crossover on, through ParallelEngine.
+ * 
+ * Profiles are measured by calibrate(), which times every engine over sizes from MIN_SIZE to MAX_SIZE letters, and
+ * can be saved to and loaded from a properties file. A saved profile is only loaded on the machine and JVM it was
+ * measured on. Instances are immutable.
+ */
+public final class EngineProfile {
+	public static final int MIN_SIZE = 1024; // Smallest size calibrated; shorter texts always stay scalar
+	public static final int MAX_SIZE = 1024 * 1024; // Largest size calibrated; the last crossovers hold above it
+	static final int NEVER = Integer.MAX_VALUE; // Crossover of an engine that is never the fastest
+	private static final int SAMPLE_LETTERS = 64 * 1024; // Letters shifted per timed sample
+	private static final int SAMPLES = 3; // Samples per engine and size, of which the fastest is kept
+	private static final int DEFAULT_PARALLEL = 4 * ParallelEngine.DEFAULT_THRESHOLD; // Uncalibrated parallel crossover
+	private final int[] crossovers; // Per cipher, char or byte text, then vector and parallel crossovers
+	private final boolean calibrated; // False for the defaults
+	
+	private EngineProfile(int[] crossovers, boolean calibrated) {
+		this.crossovers = crossovers;
+		this.calibrated = calibrated;
+	}
+	
+	/**
+	 * Returns the profile used until a calibrated one is available: bytes go through VectorEngine from MIN_SIZE
+	 * letters, and both char and byte text go parallel from four split thresholds on a machine with several cores.
+	 * 
+	 * @return The default profile.
+	 */
+	public static EngineProfile defaults() {
+		int parallel = (Runtime.getRuntime().availableProcessors() > 1) ? DEFAULT_PARALLEL : NEVER;
+		int[] crossovers = new int[CipherKind.values().length * 4];
+		for(CipherKind kind : CipherKind.values()) {
+			crossovers[index(kind, false, EngineRoute.VECTOR)] = NEVER;
+			crossovers[index(kind, false, EngineRoute.PARALLEL)] = parallel;
+			crossovers[index(kind, true, EngineRoute.VECTOR)] = MIN_SIZE;
+			crossovers[index(kind, true, EngineRoute.PARALLEL)] = parallel;
+		}
+		return new EngineProfile(crossovers, false);
+	}
+	
+	/**
+	 * Returns the engine to use for a text.
+	 * 
+	 * @param kind The cipher.
+	 * @param bytes True for ASCII bytes, false for chars.
+	 * @param len The number of letters.
+	 * @return The fastest engine for that size.
+	 */
+	public EngineRoute route(CipherKind kind, boolean bytes, int len) {
+		if(len >= crossovers[index(kind, bytes, EngineRoute.PARALLEL)]) {
+			return EngineRoute.PARALLEL;
+		}
+		if(len >= crossovers[index(kind, bytes, EngineRoute.VECTOR)]) {
+			return EngineRoute.VECTOR;
+		}
+		return EngineRoute.SCALAR;
+	}
+	
+	/**
+	 * Returns the size from which an engine is used.
+	 * 
+	 * @param kind The cipher.
+	 * @param bytes True for ASCII bytes, false for chars.
+	 * @param route VECTOR or PARALLEL.
+	 * @return The crossover in letters, or Integer.MAX_VALUE when the engine is never used.
+	 */
+	public int crossover(CipherKind kind, boolean bytes, EngineRoute route) {
+		if(route == EngineRoute.SCALAR) {
+			throw new IllegalArgumentException("The scalar kernel has no crossover");
+		}
+		return crossovers[index(kind, bytes, route)];
+	}
+	
+	/**
+	 * Returns whether the profile was measured rather than the defaults.
+	 * 
+	 * @return True for a calibrated profile.
+	 */
+	public boolean isCalibrated() {
+		return calibrated;
+	}
+	
+	private static int index(CipherKind kind, boolean bytes, EngineRoute route) {
+		return kind.ordinal() * 4 + (bytes ? 2 : 0) + (route == EngineRoute.PARALLEL ? 1 : 0);
+	}
+	
+	/**
+	 * Measures the crossovers of this machine. Every engine shifts sizes from MIN_SIZE to MAX_SIZE letters, growing
+	 * by four, and the fastest engine of each size is noted. An engine only takes over from a size where it stays
+	 * the fastest, or is overtaken by a faster one, at every larger size, so that timing noise at one size does not
+	 * send a range of sizes to the wrong engine. It takes a few hundred milliseconds.
+	 * 
+	 * @return The calibrated profile.
+	 */
+	public static EngineProfile calibrate() {
+		SplittableRandom random = new SplittableRandom(42);
+		char[] keyLetters = new char[MAX_SIZE];
+		for(int i = 0; i < keyLetters.length; i++) {
+			keyLetters[i] = (char) ('a' + random.nextInt(26));
+		}
+		char[] chars = new char[MAX_SIZE];
+		byte[] bytes = new byte[MAX_SIZE];
+		for(int i = 0; i < MAX_SIZE; i++) {
+			chars[i] = (char) ('a' + random.nextInt(26));
+			bytes[i] = (byte) chars[i];
+		}
+		boolean parallel = Runtime.getRuntime().availableProcessors() > 1;
+		int[] crossovers = new int[CipherKind.values().length * 4];
+		for(CipherKind kind : CipherKind.values()) {
+			KeySchedule key = (kind == CipherKind.CAESAR) ? KeySchedule.caesar(3)
+					: (kind == CipherKind.VIGENERE) ? KeySchedule.vigenere("lemon".toCharArray())
+					: KeySchedule.oneTimePad(keyLetters);
+			AdaptiveEngine engine = new AdaptiveEngine(key);
+			for(int b = 0; b < 2; b++) {
+				boolean onBytes = b == 1;
+				EngineRoute[] candidates = candidates(onBytes, parallel);
+				for(EngineRoute route : candidates) {
+					time(engine, route, chars, bytes, onBytes, 64 * 1024, 16); // Compiles the engine before timing it
+				}
+				int sizes = 0;
+				for(int n = MIN_SIZE; n <= MAX_SIZE; n *= 4) {
+					sizes++;
+				}
+				EngineRoute[] fastest = new EngineRoute[sizes];
+				int s = sizes - 1;
+				for(int n = MAX_SIZE; n >= MIN_SIZE; n /= 4, s--) { // Largest first, which also finishes the warm-up
+					long best = Long.MAX_VALUE;
+					for(EngineRoute route : candidates) {
+						long nanos = Long.MAX_VALUE;
+						for(int sample = 0; sample < SAMPLES; sample++) {
+							nanos = Math.min(nanos, time(engine, route, chars, bytes, onBytes, n, Math.max(1, SAMPLE_LETTERS / n)));
+						}
+						if(nanos < best) {
+							best = nanos;
+							fastest[s] = route;
+						}
+					}
+				}
+				crossovers[index(kind, onBytes, EngineRoute.VECTOR)] = onBytes ? crossover(fastest, EngineRoute.VECTOR) : NEVER;
+				crossovers[index(kind, onBytes, EngineRoute.PARALLEL)] = crossover(fastest, EngineRoute.PARALLEL);
+			}
+		}
+		return new EngineProfile(crossovers, true);
+	}
+	
+	/**
+	 * Returns the smallest size from which the fastest engine is this one or a later one at every size.
+	 */
+	private static int crossover(EngineRoute[] fastest, EngineRoute route) {
+		int from = NEVER;
+		int n = MIN_SIZE << (2 * (fastest.length - 1));
+		for(int s = fastest.length - 1; s >= 0 && fastest[s].compareTo(route) >= 0; s--, n >>= 2) {
+			from = n;
+		}
+		return from;
+	}
+	
+	/**
+	 * Returns the engines that can shift a text type: VectorEngine only takes bytes, and a single core gains nothing
+	 * from ParallelEngine.
+	 */
+	private static EngineRoute[] candidates(boolean bytes, boolean parallel) {
+		if(bytes) {
+			return parallel ? EngineRoute.values() : new EngineRoute[] { EngineRoute.SCALAR, EngineRoute.VECTOR };
+		}
+		return parallel ? new EngineRoute[] { EngineRoute.SCALAR, EngineRoute.PARALLEL }
+				: new EngineRoute[] { EngineRoute.SCALAR };
+	}
+	
+	/**
+	 * Shifts a range repeatedly with one engine and returns the time taken.
+	 */
+	private static long time(AdaptiveEngine engine, EngineRoute route, char[] chars, byte[] bytes, boolean onBytes,
+			int len, int repeats) {
+		long start = System.nanoTime();
+		for(int r = 0; r < repeats; r++) {
+			if(onBytes) {
+				engine.shift(route, bytes, 0, bytes, 0, len, 0, false);
+			}
+			else {
+				engine.shift(route, chars, 0, chars, 0, len, 0, false);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+	
+	/**
+	 * Loads a saved profile, if it was measured on this machine and JVM.
+	 * 
+	 * @param file The properties file.
+	 * @return The profile, or null when the file is missing, unreadable or from another machine or JVM.
+	 */
+	public static EngineProfile load(Path file) {
+		Properties properties = new Properties();
+		try(InputStream in = Files.newInputStream(file)) {
+			properties.load(in);
+		}
+		catch(IOException ex) {
+			return null;
+		}
+		if(!machine().equals(properties.getProperty("machine"))) {
+			return null; // Measured on other hardware or another JVM
+		}
+		int[] crossovers = new int[CipherKind.values().length * 4];
+		try {
+			for(CipherKind kind : CipherKind.values()) {
+				for(int b = 0; b < 2; b++) {
+					for(EngineRoute route : new EngineRoute[] { EngineRoute.VECTOR, EngineRoute.PARALLEL }) {
+						String value = properties.getProperty(property(kind, b == 1, route));
+						crossovers[index(kind, b == 1, route)] = (value == null || value.equals("never")) ? NEVER
+								: Integer.parseInt(value);
+					}
+				}
+			}
+		}
+		catch(NumberFormatException ex) {
+			return null;
+		}
+		return new EngineProfile(crossovers, true);
+	}
+	
+	/**
+	 * Saves the profile, with the machine and JVM it was measured on.
+	 * 
+	 * @param file The properties file; its directory is created if needed.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void save(Path file) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("machine", machine());
+		for(CipherKind kind : CipherKind.values()) {
+			for(int b = 0; b < 2; b++) {
+				for(EngineRoute route : new EngineRoute[] { EngineRoute.VECTOR, EngineRoute.PARALLEL }) {
+					int n = crossovers[index(kind, b == 1, route)];
+					properties.setProperty(property(kind, b == 1, route), (n == NEVER) ? "never" : Integer.toString(n));
+				}
+			}
+		}
+		if(file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		try(OutputStream out = Files.newOutputStream(file)) {
+			properties.store(out, "MultiCipherEncryptor engine crossovers, in letters");
+		}
+	}
+	
+	private static String property(CipherKind kind, boolean bytes, EngineRoute route) {
+		return (kind.name() + (bytes ? ".bytes." : ".chars.") + route.name()).toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * Describes what a profile was measured on: processor architecture and count, JVM and byte kernel.
+	 */
+	static String machine() {
+		return System.getProperty("os.arch") + "/" + Runtime.getRuntime().availableProcessors() + "/"
+				+ System.getProperty("java.vm.version") + "/" + VectorEngine.kernel();
+	}
+	
+	/**
+	 * Describes the crossovers, one line per cipher and text type, for example
+	 * "vigenere bytes: vector from 1024, parallel from 262144".
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(calibrated ? "Calibrated" : "Default").append(" engine profile");
+		for(CipherKind kind : CipherKind.values()) {
+			for(int b = 0; b < 2; b++) {
+				text.append('\n').append(kind.name().toLowerCase(Locale.ROOT)).append(b == 1 ? " bytes: " : " chars: ");
+				if(b == 1) {
+					text.append("vector ").append(describe(crossovers[index(kind, true, EngineRoute.VECTOR)])).append(", ");
+				}
+				text.append("parallel ").append(describe(crossovers[index(kind, b == 1, EngineRoute.PARALLEL)]));
+			}
+		}
+		return text.toString();
+	}
+	
+	private static String describe(int crossover) {
+		return (crossover == NEVER) ? "never" : "from " + crossover;
+	}
+}
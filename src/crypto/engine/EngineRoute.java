@@ -0,0 +1,11 @@
+package crypto.engine;
+
+/**
+ * The EngineRoute enum identifies the engines AdaptiveEngine chooses from, from the cheapest to start to the one
+ * with the most throughput.
+ */
+public enum EngineRoute {
+	SCALAR, // ShiftKernel, or the compiled tables for char text: no setup at all
+	VECTOR, // VectorEngine, several letters per instruction; ASCII bytes only
+	PARALLEL; // ParallelEngine, ranges shifted on every core of the common pool
+}
@@ -0,0 +1,116 @@
+package crypto.engine;
+
+/**
+ * The InputPolicy enum selects how raw text is normalized before it reaches the shift kernels.
+ * Every policy makes a single pass over the buffer in place and builds no intermediate string: letters 'A' to 'Z'
+ * are lower cased with a bit operation, and everything outside 'a' to 'z' is handled according to the policy.
+ */
+public enum InputPolicy {
+	STRIP, // Removes every character that is not a letter 'a' to 'z' or 'A' to 'Z'
+	PRESERVE, // Leaves the text unchanged; the preserving kernels shift letters in their case and pass the rest through
+	REJECT; // Removes whitespace and throws on any other character that is not a letter
+	
+	/**
+	 * Normalizes a char buffer in place according to this policy.
+	 * 
+	 * @param buf The buffer to normalize.
+	 * @param off The index of the first character.
+	 * @param len The number of characters to normalize.
+	 * @return The number of characters left, starting at off.
+	 * @throws IllegalArgumentException If the policy is REJECT and the text holds a character other than a letter
+	 * or whitespace.
+	 */
+	public int normalize(char[] buf, int off, int len) {
+		if(this == PRESERVE) {
+			return len;
+		}
+		int out = off;
+		for(int i = off; i < off + len; i++) {
+			char ch = buf[i];
+			int lower = ch | 0x20;
+			if(lower >= 'a' && lower <= 'z') {
+				buf[out++] = (char) lower;
+			}
+			else if(this == REJECT && !isWhitespace(ch)) {
+				throw invalid(ch, i - off);
+			}
+		}
+		return out - off;
+	}
+	
+	/**
+	 * Normalizes an ASCII byte buffer in place according to this policy.
+	 * 
+	 * @param buf The buffer to normalize.
+	 * @param off The index of the first byte.
+	 * @param len The number of bytes to normalize.
+	 * @return The number of bytes left, starting at off.
+	 * @throws IllegalArgumentException If the policy is REJECT and the text holds a byte other than a letter
+	 * or whitespace.
+	 */
+	public int normalize(byte[] buf, int off, int len) {
+		if(this == PRESERVE) {
+			return len;
+		}
+		int out = off;
+		for(int i = off; i < off + len; i++) {
+			byte b = buf[i];
+			int lower = b | 0x20;
+			if(lower >= 'a' && lower <= 'z') {
+				buf[out++] = (byte) lower;
+			}
+			else if(this == REJECT && !isWhitespace((char) b)) {
+				throw invalid((char) (b & 0xFF), i - off);
+			}
+		}
+		return out - off;
+	}
+	
+	/**
+	 * Counts the letters 'a' to 'z' and 'A' to 'Z' of a char buffer: the number of key positions a preserved text
+	 * uses.
+	 * 
+	 * @param buf The buffer holding the text.
+	 * @param off The index of the first character.
+	 * @param len The number of characters.
+	 * @return The number of letters.
+	 */
+	public static int countLetters(char[] buf, int off, int len) {
+		int letters = 0;
+		for(int i = off; i < off + len; i++) {
+			int lower = buf[i] | 0x20;
+			if(lower >= 'a' && lower <= 'z') {
+				letters++;
+			}
+		}
+		return letters;
+	}
+	
+	/**
+	 * Counts the letters 'a' to 'z' and 'A' to 'Z' of an ASCII byte buffer.
+	 * 
+	 * @param buf The buffer holding the text.
+	 * @param off The index of the first byte.
+	 * @param len The number of bytes.
+	 * @return The number of letters.
+	 */
+	public static int countLetters(byte[] buf, int off, int len) {
+		int letters = 0;
+		for(int i = off; i < off + len; i++) {
+			int lower = buf[i] | 0x20;
+			if(lower >= 'a' && lower <= 'z') {
+				letters++;
+			}
+		}
+		return letters;
+	}
+	
+	private static boolean isWhitespace(char ch) {
+		return ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t';
+	}
+	
+	private static IllegalArgumentException invalid(char ch, int index) {
+		return new IllegalArgumentException("The text contains the invalid character U+"
+				+ String.format("%04X", (int) ch) + " at index " + index);
+	}
+}
@@ -0,0 +1,356 @@
+package crypto.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The KeySchedule class holds the shift value (0-25) that a cipher applies at each position of the text.
+ * Caesar keys are a schedule of length one, Vigenere keys repeat every key length and One-Time Pad keys
+ * cover the whole message. Instances are immutable and can be shared between threads and engines.
+ */
+public final class KeySchedule {
+	private final CipherKind kind; // The cipher this schedule belongs to
+	private final byte[] shifts; // Shift value for each key position, in the range 0-25
+	
+	private KeySchedule(CipherKind kind, byte[] shifts) {
+		this.kind = kind;
+		this.shifts = shifts;
+	}
+	
+	/**
+	 * Creates the schedule for a Caesar key.
+	 * 
+	 * @param key The shift value; it will be reduced to the range 0-25.
+	 * @return The Caesar key schedule.
+	 */
+	public static KeySchedule caesar(int key) {
+		return new KeySchedule(CipherKind.CAESAR, new byte[] { (byte) Math.floorMod(key, 26) });
+	}
+	
+	/**
+	 * Creates the schedule for a Vigenere key.
+	 * 
+	 * @param key The key letters; upper case letters are treated as lower case.
+	 * @return The Vigenere key schedule.
+	 */
+	public static KeySchedule vigenere(char[] key) {
+		return new KeySchedule(CipherKind.VIGENERE, toShifts(key, 0, key.length));
+	}
+	
+	/**
+	 * Creates the schedule for a One-Time Pad key.
+	 * 
+	 * @param key The key letters, one per letter of the message.
+	 * @return The One-Time Pad key schedule.
+	 */
+	public static KeySchedule oneTimePad(char[] key) {
+		return new KeySchedule(CipherKind.ONE_TIME_PAD, toShifts(key, 0, key.length));
+	}
+	
+	/**
+	 * Converts key letters to shift values.
+	 * 
+	 * @param key The key letters.
+	 * @param off The index of the first letter to convert.
+	 * @param len The number of letters to convert.
+	 * @return The shift values, in the range 0-25.
+	 */
+	static byte[] toShifts(char[] key, int off, int len) {
+		if(len == 0) {
+			throw new IllegalArgumentException("The key must contain at least one letter");
+		}
+		return toShifts(key, off, len, new byte[len]);
+	}
+	
+	/**
+	 * Converts key letters to shift values into an existing buffer.
+	 * 
+	 * @param key The key letters.
+	 * @param off The index of the first letter to convert.
+	 * @param len The number of letters to convert.
+	 * @param shifts The buffer receiving the shift values, starting at index 0.
+	 * @return The shifts buffer.
+	 */
+	static byte[] toShifts(char[] key, int off, int len, byte[] shifts) {
+		for(int i = 0; i < len; i++) {
+			char ch = Character.toLowerCase(key[off + i]);
+			if(ch < 'a' || ch > 'z') {
+				throw new IllegalArgumentException("The key must contain only letters");
+			}
+			shifts[i] = (byte) (ch - 'a');
+		}
+		return shifts;
+	}
+	
+	/**
+	 * Returns the cipher this schedule belongs to.
+	 * 
+	 * @return The cipher kind.
+	 */
+	public CipherKind kind() {
+		return kind;
+	}
+	
+	/**
+	 * Returns the number of positions after which the key repeats (or, for a One-Time Pad, runs out).
+	 * 
+	 * @return The key length.
+	 */
+	public int length() {
+		return shifts.length;
+	}
+	
+	/**
+	 * Returns the shift value applied at a given position of the text.
+	 * 
+	 * @param position The position of the letter in the text.
+	 * @return The shift value, in the range 0-25.
+	 */
+	public int shiftAt(long position) {
+		return shifts[keyIndex(position)];
+	}
+	
+	/**
+	 * Returns the index into the key used at a given position of the text.
+	 * 
+	 * @param position The position of the letter in the text.
+	 * @return The key index for that position.
+	 */
+	public int keyIndex(long position) {
+		if(kind == CipherKind.ONE_TIME_PAD) {
+			if(position >= shifts.length) {
+				throw new IllegalArgumentException("The One-Time Pad key is shorter than the text");
+			}
+			return (int) position;
+		}
+		return (int) (position % shifts.length);
+	}
+	
+	/**
+	 * Returns the schedule that undoes this one: encrypting with it decrypts with this schedule.
+	 * 
+	 * @return The inverse schedule, of the same cipher and length.
+	 */
+	public KeySchedule inverse() {
+		byte[] inverse = new byte[shifts.length];
+		for(int i = 0; i < shifts.length; i++) {
+			inverse[i] = (byte) ((26 - shifts[i]) % 26);
+		}
+		return new KeySchedule(kind, inverse);
+	}
+	
+	/**
+	 * Returns the schedule equivalent to encrypting with this schedule and then with another one. Shifts add up,
+	 * so two Caesar keys fuse into one Caesar key, and periodic keys of lengths m and n fuse into a Vigenere key
+	 * of length lcm(m, n). With a One-Time Pad the result is a One-Time Pad as long as the shorter pad.
+	 * The fused schedule is exact for the letters 'a' to 'z'.
+	 * 
+	 * @param next The schedule applied second.
+	 * @return The fused schedule.
+	 */
+	public KeySchedule then(KeySchedule next) {
+		CipherKind fusedKind;
+		long length;
+		if(kind == CipherKind.ONE_TIME_PAD || next.kind == CipherKind.ONE_TIME_PAD) {
+			fusedKind = CipherKind.ONE_TIME_PAD;
+			length = (kind != CipherKind.ONE_TIME_PAD) ? next.shifts.length
+					: (next.kind != CipherKind.ONE_TIME_PAD) ? shifts.length
+					: Math.min(shifts.length, next.shifts.length);
+		}
+		else {
+			fusedKind = (kind == CipherKind.CAESAR && next.kind == CipherKind.CAESAR) ? CipherKind.CAESAR
+					: CipherKind.VIGENERE;
+			length = fusedLength(this, next);
+			if(length > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("The fused key would be too long");
+			}
+		}
+		byte[] fused = new byte[(int) length];
+		for(int i = 0; i < fused.length; i++) {
+			fused[i] = (byte) ((shifts[i % shifts.length] + next.shifts[i % next.shifts.length]) % 26);
+		}
+		return new KeySchedule(fusedKind, fused);
+	}
+	
+	/**
+	 * Returns the length of the key fusing two periodic keys: the least common multiple of their lengths.
+	 * 
+	 * @param first The schedule applied first.
+	 * @param second The schedule applied second.
+	 * @return The length of the fused key.
+	 */
+	public static long fusedLength(KeySchedule first, KeySchedule second) {
+		long a = first.shifts.length;
+		long b = second.shifts.length;
+		while(b != 0) {
+			long r = a % b;
+			a = b;
+			b = r;
+		}
+		return (long) first.shifts.length / a * second.shifts.length;
+	}
+	
+	/**
+	 * Checks that the key covers a range of the text. Only One-Time Pad keys can run out.
+	 * 
+	 * @param position The position of the first letter in the range.
+	 * @param length The number of letters in the range.
+	 */
+	public void checkRange(long position, long length) {
+		if(kind == CipherKind.ONE_TIME_PAD && position + length > shifts.length) {
+			throw new IllegalArgumentException("The One-Time Pad key is shorter than the text");
+		}
+	}
+	
+	/**
+	 * Shifts a range of lower case letters in place with this key.
+	 * 
+	 * @param buf The buffer holding the letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int shift(char[] buf, int off, int len, int keyIndex, boolean decrypt) {
+		return ShiftKernel.shift(buf, off, len, shifts, keyIndex, decrypt);
+	}
+	
+	/**
+	 * Shifts a range of lower case ASCII letters in place with this key.
+	 * 
+	 * @param buf The buffer holding the letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int shift(byte[] buf, int off, int len, int keyIndex, boolean decrypt) {
+		return ShiftKernel.shift(buf, off, len, shifts, keyIndex, decrypt);
+	}
+	
+	/**
+	 * Shifts a range of lower case letters into another buffer with this key.
+	 * 
+	 * @param src The buffer holding the letters.
+	 * @param srcOff The index of the first letter.
+	 * @param dst The buffer receiving the shifted letters.
+	 * @param dstOff The index receiving the first shifted letter.
+	 * @param len The number of letters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int shift(char[] src, int srcOff, char[] dst, int dstOff, int len, int keyIndex, boolean decrypt) {
+		return ShiftKernel.shift(src, srcOff, dst, dstOff, len, shifts, keyIndex, decrypt);
+	}
+	
+	/**
+	 * Shifts a range of lower case ASCII letters into another buffer with this key.
+	 * 
+	 * @param src The buffer holding the letters.
+	 * @param srcOff The index of the first letter.
+	 * @param dst The buffer receiving the shifted letters.
+	 * @param dstOff The index receiving the first shifted letter.
+	 * @param len The number of letters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int shift(byte[] src, int srcOff, byte[] dst, int dstOff, int len, int keyIndex, boolean decrypt) {
+		return ShiftKernel.shift(src, srcOff, dst, dstOff, len, shifts, keyIndex, decrypt);
+	}
+	
+	/**
+	 * Shifts the letters of a text into another buffer with this key, keeping their case and passing every other
+	 * character through without using a key letter.
+	 * 
+	 * @param src The buffer holding the text.
+	 * @param srcOff The index of the first character.
+	 * @param dst The buffer receiving the shifted text.
+	 * @param dstOff The index receiving the first character.
+	 * @param len The number of characters.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int shiftPreserving(char[] src, int srcOff, char[] dst, int dstOff, int len, int keyIndex,
+			boolean decrypt) {
+		return ShiftKernel.shiftPreserving(src, srcOff, dst, dstOff, len, shifts, keyIndex, decrypt);
+	}
+	
+	/**
+	 * Shifts the letters of an ASCII text into another buffer with this key, keeping their case and passing every
+	 * other byte through without using a key letter.
+	 * 
+	 * @param src The buffer holding the text.
+	 * @param srcOff The index of the first byte.
+	 * @param dst The buffer receiving the shifted text.
+	 * @param dstOff The index receiving the first byte.
+	 * @param len The number of bytes.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public int shiftPreserving(byte[] src, int srcOff, byte[] dst, int dstOff, int len, int keyIndex,
+			boolean decrypt) {
+		return ShiftKernel.shiftPreserving(src, srcOff, dst, dstOff, len, shifts, keyIndex, decrypt);
+	}
+	
+	/**
+	 * Returns a 64-bit fingerprint of this key: the first 8 bytes of the HMAC-SHA256 of the cipher and the shift
+	 * values, keyed with a salt. It lets a file record which key it was written with, so that a wrong key is detected
+	 * before decrypting. A random salt stored next to it makes every file's fingerprint different, so the key cannot
+	 * be looked up in a table precomputed from common keys.
+	 * 
+	 * @param salt The random salt of the file, at least one byte.
+	 * @return The key fingerprint.
+	 */
+	public long fingerprint(byte[] salt) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+			mac.update((byte) kind.ordinal());
+			mac.update(shifts);
+			return ByteBuffer.wrap(mac.doFinal()).order(ByteOrder.LITTLE_ENDIAN).getLong();
+		}
+		catch(GeneralSecurityException ex) {
+			throw new IllegalStateException("HmacSHA256 is not available", ex); // Every Java platform must support it
+		}
+	}
+	
+	/**
+	 * Two schedules are equal when they belong to the same cipher and shift by the same values.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if(this == other) {
+			return true;
+		}
+		if(!(other instanceof KeySchedule)) {
+			return false;
+		}
+		KeySchedule schedule = (KeySchedule) other;
+		return kind == schedule.kind && Arrays.equals(shifts, schedule.shifts);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * kind.hashCode() + Arrays.hashCode(shifts);
+	}
+	
+	/**
+	 * Returns the shift values backing this schedule. The array is shared and must not be modified.
+	 * 
+	 * @return The shift values.
+	 */
+	byte[] shifts() {
+		return shifts;
+	}
+}
@@ -0,0 +1,262 @@
+package crypto.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import crypto.keys.KeySource;
+import crypto.keys.PooledKeySource;
+
+/**
+ * The MappedFileEngine class encrypts and decrypts ASCII files from one file to another by mapping the input with
+ * FileChannel.map and shifting the mapped bytes into a small direct buffer that is written to the output channel.
+ * No text is decoded into chars and no copy of the file is held on the heap; the operating system page cache does
+ * the I/O. Files larger than 2 GB are processed as a series of mapped windows. Input is prepared the same way as in
+ * the cipher classes (lower cased, every non-letter removed), so the output file can be shorter than the input file.
+ * The output is written with exactly the letters kept rather than mapped and cut afterwards, since a file that is
+ * still mapped cannot be truncated on Windows.
+ */
+public final class MappedFileEngine {
+	public static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024; // Default number of bytes mapped at a time
+	private static final int BUFFER_SIZE = 64 * 1024; // Number of output bytes written at a time
+	private final KeySchedule key; // The key used for encryption and decryption
+	private final long windowSize; // The number of input bytes mapped at a time
+	
+	/**
+	 * Creates an engine with the default window size.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 */
+	public MappedFileEngine(KeySchedule key) {
+		this(key, DEFAULT_WINDOW_SIZE);
+	}
+	
+	/**
+	 * Creates an engine.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 * @param windowSize The number of input bytes mapped at a time, at most Integer.MAX_VALUE.
+	 */
+	public MappedFileEngine(KeySchedule key, long windowSize) {
+		this.key = key;
+		this.windowSize = checkWindowSize(windowSize);
+	}
+	
+	/**
+	 * Encrypts a plain text file into a cipher text file.
+	 * 
+	 * @param in The plain text file.
+	 * @param out The cipher text file; it is created or replaced.
+	 * @return The number of letters encrypted.
+	 * @throws IOException If a file cannot be mapped, read or written.
+	 */
+	public long encrypt(Path in, Path out) throws IOException {
+		return process(in, out, false);
+	}
+	
+	/**
+	 * Decrypts a cipher text file into a plain text file.
+	 * 
+	 * @param in The cipher text file.
+	 * @param out The plain text file; it is created or replaced.
+	 * @return The number of letters decrypted.
+	 * @throws IOException If a file cannot be mapped, read or written.
+	 */
+	public long decrypt(Path in, Path out) throws IOException {
+		return process(in, out, true);
+	}
+	
+	/**
+	 * Maps the input window by window and shifts each window with the key schedule.
+	 */
+	private long process(Path in, Path out, boolean decrypt) throws IOException {
+		byte[] shifts = key.shifts();
+		long maxLetters = key.kind() == CipherKind.ONE_TIME_PAD ? shifts.length : Long.MAX_VALUE; // A pad never repeats
+		ByteBuffer dst = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		try(FileChannel inChannel = FileChannel.open(in, StandardOpenOption.READ);
+				FileChannel outChannel = openOutput(out)) {
+			long size = inChannel.size();
+			long outPos = 0; // Number of letters written so far
+			int keyIndex = 0; // Key position carried over between windows
+			for(long inPos = 0; inPos < size; inPos += windowSize) {
+				int window = (int) Math.min(windowSize, size - inPos);
+				MappedByteBuffer src = inChannel.map(MapMode.READ_ONLY, inPos, window);
+				for(int i = 0; i < window; i++) {
+					int b = src.get(i) | 0x20; // Lower cases letters
+					if(b < 'a' || b > 'z') {
+						continue; // Skips non-letters the same way InputPolicy.STRIP does
+					}
+					if(outPos >= maxLetters) {
+						throw new IllegalArgumentException("The One-Time Pad key is shorter than the text");
+					}
+					int s = decrypt ? 26 - shifts[keyIndex] : shifts[keyIndex];
+					dst.put((byte) ('a' + (b - 'a' + s) % 26)); // Applies the shift of the current key letter
+					outPos++;
+					if(!dst.hasRemaining()) {
+						write(dst, outChannel);
+					}
+					if(++keyIndex == shifts.length) {
+						keyIndex = 0;
+					}
+				}
+			}
+			write(dst, outChannel);
+			return outPos;
+		}
+	}
+	
+	/**
+	 * Encrypts a plain text file with a One-Time Pad. The generated key letters are collected in a direct buffer and
+	 * written to the key file through its channel, the same way as the cipher text.
+	 * 
+	 * @param in The plain text file.
+	 * @param out The cipher text file; it is created or replaced.
+	 * @param keyOut The key file; it is created or replaced and holds one letter per letter of the cipher text.
+	 * @return The number of letters encrypted.
+	 * @throws IOException If a file cannot be mapped, read or written.
+	 */
+	public static long encryptOneTimePad(Path in, Path out, Path keyOut) throws IOException {
+		return processOneTimePad(in, out, keyOut, false, DEFAULT_WINDOW_SIZE);
+	}
+	
+	/**
+	 * Decrypts a cipher text file with a One-Time Pad key read from a mapped key file.
+	 * 
+	 * @param in The cipher text file.
+	 * @param keyIn The key file, one letter per letter of the cipher text; other characters are skipped.
+	 * @param out The plain text file; it is created or replaced.
+	 * @return The number of letters decrypted.
+	 * @throws IOException If a file cannot be mapped, read or written.
+	 */
+	public static long decryptOneTimePad(Path in, Path keyIn, Path out) throws IOException {
+		return processOneTimePad(in, out, keyIn, true, DEFAULT_WINDOW_SIZE);
+	}
+	
+	/**
+	 * Maps the text and key files window by window. A decryption reads the key letters through a KeyReader; an
+	 * encryption writes the generated key letters to the key file the same way as the cipher text.
+	 */
+	private static long processOneTimePad(Path in, Path out, Path keyPath, boolean decrypt, long windowSize) throws IOException {
+		checkWindowSize(windowSize);
+		KeySource keySource = PooledKeySource.shared();
+		byte[] keyLetters = new byte[4096]; // Generated key letters not yet used
+		int keyUsed = keyLetters.length;
+		ByteBuffer dst = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		ByteBuffer keyOut = decrypt ? null : ByteBuffer.allocateDirect(BUFFER_SIZE);
+		try(FileChannel inChannel = FileChannel.open(in, StandardOpenOption.READ);
+				FileChannel outChannel = openOutput(out);
+				FileChannel keyChannel = decrypt ? FileChannel.open(keyPath, StandardOpenOption.READ) : openOutput(keyPath)) {
+			long size = inChannel.size();
+			KeyReader keyIn = decrypt ? new KeyReader(keyChannel, windowSize) : null;
+			long outPos = 0;
+			for(long inPos = 0; inPos < size; inPos += windowSize) {
+				int window = (int) Math.min(windowSize, size - inPos);
+				MappedByteBuffer src = inChannel.map(MapMode.READ_ONLY, inPos, window);
+				int count = 0;
+				for(int i = 0; i < window; i++) {
+					int b = src.get(i) | 0x20;
+					if(b < 'a' || b > 'z') {
+						continue;
+					}
+					int k;
+					if(decrypt) {
+						k = 26 - keyIn.next();
+					}
+					else {
+						if(keyUsed == keyLetters.length) {
+							keySource.nextKey(keyLetters, 0, keyLetters.length); // Generates the next batch of key letters
+							keyUsed = 0;
+						}
+						k = keyLetters[keyUsed++] - 'a';
+						keyOut.put((byte) ('a' + k));
+						if(!keyOut.hasRemaining()) {
+							write(keyOut, keyChannel);
+						}
+					}
+					count++;
+					dst.put((byte) ('a' + (b - 'a' + k) % 26)); // Applies the One-Time Pad shift
+					if(!dst.hasRemaining()) {
+						write(dst, outChannel);
+					}
+				}
+				outPos += count;
+			}
+			write(dst, outChannel);
+			if(!decrypt) {
+				write(keyOut, keyChannel);
+			}
+			return outPos;
+		}
+	}
+	
+	/**
+	 * Writes the bytes put into a buffer to the end of a channel and empties the buffer.
+	 */
+	private static void write(ByteBuffer buf, FileChannel channel) throws IOException {
+		buf.flip();
+		while(buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+	
+	/**
+	 * The KeyReader class reads the letters of a One-Time Pad key file through mapped windows, skipping the spaces,
+	 * newlines and other non-letters a key file may contain, the same way StreamingEngine does.
+	 */
+	private static final class KeyReader {
+		private final FileChannel channel; // The key file
+		private final long size; // The size of the key file
+		private final long windowSize; // The number of key bytes mapped at a time
+		private MappedByteBuffer window; // The mapped window being read, or null before the first one
+		private long base; // The file offset of the window
+		
+		KeyReader(FileChannel channel, long windowSize) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			this.windowSize = windowSize;
+		}
+		
+		/**
+		 * Returns the shift of the next key letter, mapping the next window when the current one is used up.
+		 */
+		int next() throws IOException {
+			while(true) {
+				if(window == null || !window.hasRemaining()) {
+					long next = (window == null) ? 0 : base + window.limit();
+					if(next >= size) {
+						throw new IllegalArgumentException("The One-Time Pad key is shorter than the text");
+					}
+					base = next;
+					window = channel.map(MapMode.READ_ONLY, base, Math.min(windowSize, size - base));
+				}
+				int k = window.get() | 0x20;
+				if(k >= 'a' && k <= 'z') {
+					return k - 'a';
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Opens a file for writing, replacing any previous content.
+	 */
+	private static FileChannel openOutput(Path path) throws IOException {
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+	
+	/**
+	 * Checks that a window can be mapped as a single buffer.
+	 */
+	private static long checkWindowSize(long windowSize) {
+		if(windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The window size must be between 1 and " + Integer.MAX_VALUE);
+		}
+		return windowSize;
+	}
+}
@@ -0,0 +1,157 @@
+package crypto.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The ParallelEngine class encrypts and decrypts large buffers by splitting them into ranges that are shifted in
+ * parallel on a ForkJoinPool. Every position only depends on its own letter and on the key letter at that position,
+ * so each task computes its own starting key index and the output is identical to the single-threaded kernel.
+ */
+public final class ParallelEngine {
+	public static final int DEFAULT_THRESHOLD = 64 * 1024; // Letters below which a range is shifted by one task
+	private final KeySchedule key; // The key used for encryption and decryption
+	private final ForkJoinPool pool; // The pool running the shift tasks
+	private final int threshold; // The largest range shifted without splitting
+	
+	/**
+	 * Creates an engine running on the common pool with the default split threshold.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 */
+	public ParallelEngine(KeySchedule key) {
+		this(key, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+	
+	/**
+	 * Creates an engine.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 * @param pool The pool running the shift tasks.
+	 * @param threshold The largest range shifted without splitting.
+	 */
+	public ParallelEngine(KeySchedule key, ForkJoinPool pool, int threshold) {
+		if(threshold <= 0) {
+			throw new IllegalArgumentException("The split threshold must be positive");
+		}
+		this.key = key;
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+	
+	/**
+	 * Encrypts a text, prepared the same way as in the cipher classes.
+	 * 
+	 * @param text The plain text.
+	 * @return The cipher text.
+	 */
+	public String encrypt(String text) {
+		char[] buf = text.toCharArray();
+		int len = ShiftKernel.prepare(buf, 0, buf.length);
+		shift(buf, 0, len, 0, false);
+		return new String(buf, 0, len);
+	}
+	
+	/**
+	 * Decrypts a text, prepared the same way as in the cipher classes.
+	 * 
+	 * @param text The cipher text.
+	 * @return The plain text.
+	 */
+	public String decrypt(String text) {
+		char[] buf = text.toCharArray();
+		int len = ShiftKernel.prepare(buf, 0, buf.length);
+		shift(buf, 0, len, 0, true);
+		return new String(buf, 0, len);
+	}
+	
+	/**
+	 * Shifts a range of lower case letters in place.
+	 * 
+	 * @param buf The buffer holding the letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters to shift.
+	 * @param position The position of the first letter in the whole text, which selects the key letter.
+	 * @param decrypt True to apply the reverse shift.
+	 */
+	public void shift(char[] buf, int off, int len, long position, boolean decrypt) {
+		key.checkRange(position, len);
+		pool.invoke(new CharTask(buf, off, len, position, decrypt));
+	}
+	
+	/**
+	 * Shifts a range of lower case ASCII letters in place.
+	 * 
+	 * @param buf The buffer holding the letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters to shift.
+	 * @param position The position of the first letter in the whole text, which selects the key letter.
+	 * @param decrypt True to apply the reverse shift.
+	 */
+	public void shift(byte[] buf, int off, int len, long position, boolean decrypt) {
+		key.checkRange(position, len);
+		pool.invoke(new ByteTask(buf, off, len, position, decrypt));
+	}
+	
+	/**
+	 * Splits a char range in halves until it is small enough to shift directly.
+	 */
+	@SuppressWarnings("serial")
+	private final class CharTask extends RecursiveAction {
+		private final char[] buf;
+		private final int off;
+		private final int len;
+		private final long position;
+		private final boolean decrypt;
+		
+		CharTask(char[] buf, int off, int len, long position, boolean decrypt) {
+			this.buf = buf;
+			this.off = off;
+			this.len = len;
+			this.position = position;
+			this.decrypt = decrypt;
+		}
+		
+		@Override
+		protected void compute() {
+			if(len <= threshold) {
+				ShiftKernel.shift(buf, off, len, key.shifts(), key.keyIndex(position), decrypt);
+				return;
+			}
+			int half = len >>> 1;
+			invokeAll(new CharTask(buf, off, half, position, decrypt),
+					new CharTask(buf, off + half, len - half, position + half, decrypt));
+		}
+	}
+	
+	/**
+	 * Splits a byte range in halves until it is small enough to shift directly.
+	 */
+	@SuppressWarnings("serial")
+	private final class ByteTask extends RecursiveAction {
+		private final byte[] buf;
+		private final int off;
+		private final int len;
+		private final long position;
+		private final boolean decrypt;
+		
+		ByteTask(byte[] buf, int off, int len, long position, boolean decrypt) {
+			this.buf = buf;
+			this.off = off;
+			this.len = len;
+			this.position = position;
+			this.decrypt = decrypt;
+		}
+		
+		@Override
+		protected void compute() {
+			if(len <= threshold) {
+				ShiftKernel.shift(buf, off, len, key.shifts(), key.keyIndex(position), decrypt);
+				return;
+			}
+			int half = len >>> 1;
+			invokeAll(new ByteTask(buf, off, half, position, decrypt),
+					new ByteTask(buf, off + half, len - half, position + half, decrypt));
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package crypto.engine;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import crypto.keys.KeySource;
+import crypto.keys.PooledKeySource;
+
+/**
+ * The SegmentEngine class encrypts and decrypts ASCII text held in memory segments: off-heap memory or whole
+ * mapped files, addressed with long offsets. Unlike the char[] and byte[] paths it has no 2^31 limit and makes no
+ * copy of the text on the heap, so inputs of many gigabytes are processed with a small heap and no GC pressure.
+ * Whole files are mapped as single segments, without the windows MappedFileEngine needs for ByteBuffers.
+ * 
+ * Caesar and Vigenere keys are taken from a KeySchedule. One-Time Pad keys longer than an array are given as a
+ * segment of key letters, usually a mapped key file. Input is prepared the same way as in the cipher classes
+ * (lower cased, every non-letter removed), so the output can be shorter than the input.
+ * 
+ * The engine runs on the Foreign Memory API, which Java 17 ships as an incubator module: the application must be
+ * run with --add-modules jdk.incubator.foreign to load this class.
+ */
+public final class SegmentEngine {
+	private static final int BLOCK_SIZE = 64 * 1024; // Bytes of a file prepared and shifted at a time
+	private final KeySchedule key; // The key used for encryption and decryption
+	
+	/**
+	 * Creates an engine.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 */
+	public SegmentEngine(KeySchedule key) {
+		this.key = key;
+	}
+	
+	/**
+	 * Lower cases a segment of ASCII text and removes every byte that is not a letter in place.
+	 * 
+	 * @param buf The segment to prepare.
+	 * @return The number of letters left at the start of the segment.
+	 */
+	public static long prepare(MemorySegment buf) {
+		long size = buf.byteSize();
+		long out = 0;
+		for(long i = 0; i < size; i++) {
+			int b = MemoryAccess.getByteAtOffset(buf, i) | 0x20;
+			if(b >= 'a' && b <= 'z') {
+				MemoryAccess.setByteAtOffset(buf, out++, (byte) b);
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Shifts the lower case ASCII letters of a segment into another segment (or the same one).
+	 * 
+	 * @param src The segment holding the letters; all of it is shifted.
+	 * @param dst The segment receiving the shifted letters, at least as large as src.
+	 * @param position The position of the first letter in the whole text, which selects the key letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The number of letters shifted.
+	 */
+	public long shift(MemorySegment src, MemorySegment dst, long position, boolean decrypt) {
+		long len = src.byteSize();
+		if(len == 0) {
+			return 0;
+		}
+		key.checkRange(position, len);
+		shift(src, 0, dst, 0, len, key.shifts(), key.keyIndex(position), decrypt);
+		return len;
+	}
+	
+	/**
+	 * Encrypts the lower case ASCII letters of a segment in place, from the start of the text.
+	 * 
+	 * @param buf The segment holding the letters.
+	 * @return The number of letters encrypted.
+	 */
+	public long encrypt(MemorySegment buf) {
+		return shift(buf, buf, 0, false);
+	}
+	
+	/**
+	 * Decrypts the lower case ASCII letters of a segment in place, from the start of the text.
+	 * 
+	 * @param buf The segment holding the letters.
+	 * @return The number of letters decrypted.
+	 */
+	public long decrypt(MemorySegment buf) {
+		return shift(buf, buf, 0, true);
+	}
+	
+	/**
+	 * Shifts the lower case ASCII letters of a segment with a One-Time Pad key held in another segment.
+	 * 
+	 * @param src The segment holding the letters; all of it is shifted.
+	 * @param keyLetters The key letters, one per letter of src, as ASCII letters.
+	 * @param dst The segment receiving the shifted letters, at least as large as src; it may be src itself.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The number of letters shifted.
+	 */
+	public static long shiftOneTimePad(MemorySegment src, MemorySegment keyLetters, MemorySegment dst, boolean decrypt) {
+		long len = src.byteSize();
+		if(keyLetters.byteSize() < len) {
+			throw new IllegalArgumentException("The One-Time Pad key is shorter than the text");
+		}
+		byte[] shifts = new byte[(int) Math.min(len, BLOCK_SIZE)];
+		for(long i = 0; i < len; i += shifts.length) {
+			int n = (int) Math.min(shifts.length, len - i);
+			for(int j = 0; j < n; j++) {
+				shifts[j] = (byte) ((MemoryAccess.getByteAtOffset(keyLetters, i + j) | 0x20) - 'a');
+			}
+			shift(src, i, dst, i, n, shifts, 0, decrypt);
+		}
+		return len;
+	}
+	
+	/**
+	 * Encrypts a plain text file into a cipher text file, both mapped whole.
+	 * 
+	 * @param in The plain text file.
+	 * @param out The cipher text file; it is created or replaced.
+	 * @return The number of letters encrypted.
+	 * @throws IOException If a file cannot be mapped, read or written.
+	 */
+	public long encrypt(Path in, Path out) throws IOException {
+		return process(in, out, false);
+	}
+	
+	/**
+	 * Decrypts a cipher text file into a plain text file, both mapped whole.
+	 * 
+	 * @param in The cipher text file.
+	 * @param out The plain text file; it is created or replaced.
+	 * @return The number of letters decrypted.
+	 * @throws IOException If a file cannot be mapped, read or written.
+	 */
+	public long decrypt(Path in, Path out) throws IOException {
+		return process(in, out, true);
+	}
+	
+	/**
+	 * Maps both files as single segments and prepares and shifts the text one block at a time, so that each block
+	 * is shifted while it is still in the cache.
+	 */
+	private long process(Path in, Path out, boolean decrypt) throws IOException {
+		byte[] shifts = key.shifts();
+		long size = sizeOf(in);
+		createOutput(out);
+		long count = 0;
+		try(ResourceScope scope = ResourceScope.newConfinedScope()) {
+			if(size > 0) {
+				MemorySegment src = MemorySegment.mapFile(in, 0, size, MapMode.READ_ONLY, scope);
+				MemorySegment dst = MemorySegment.mapFile(out, 0, size, MapMode.READ_WRITE, scope);
+				int keyIndex = 0;
+				for(long i = 0; i < size; i += BLOCK_SIZE) {
+					int n = prepare(src, i, Math.min(BLOCK_SIZE, size - i), dst, count);
+					if(key.kind() == CipherKind.ONE_TIME_PAD && count + n > shifts.length) {
+						throw new IllegalArgumentException("The One-Time Pad key is shorter than the text");
+					}
+					keyIndex = shift(dst, count, dst, count, n, shifts, keyIndex, decrypt);
+					count += n;
+				}
+			}
+		}
+		truncate(out, count); // Drops the mapped space left unused by removed non-letters
+		return count;
+	}
+	
+	/**
+	 * Encrypts a plain text file with a One-Time Pad, generating the key into its own mapped file.
+	 * 
+	 * @param in The plain text file.
+	 * @param out The cipher text file; it is created or replaced.
+	 * @param keyOut The key file; it is created or replaced and holds one letter per letter of the cipher text.
+	 * @return The number of letters encrypted.
+	 * @throws IOException If a file cannot be mapped, read or written.
+	 */
+	public static long encryptOneTimePad(Path in, Path out, Path keyOut) throws IOException {
+		return processOneTimePad(in, out, keyOut, false);
+	}
+	
+	/**
+	 * Decrypts a cipher text file with a One-Time Pad key read from a mapped key file.
+	 * 
+	 * @param in The cipher text file.
+	 * @param keyIn The key file, one letter per letter of the cipher text; other characters are skipped.
+	 * @param out The plain text file; it is created or replaced.
+	 * @return The number of letters decrypted.
+	 * @throws IOException If a file cannot be mapped, read or written.
+	 */
+	public static long decryptOneTimePad(Path in, Path keyIn, Path out) throws IOException {
+		return processOneTimePad(in, out, keyIn, true);
+	}
+	
+	/**
+	 * Maps the text, output and key files as single segments. A generated key has exactly one letter per letter
+	 * written; a key read for decryption may also hold spaces, newlines and other non-letters, which are skipped.
+	 */
+	private static long processOneTimePad(Path in, Path out, Path keyPath, boolean decrypt) throws IOException {
+		long size = sizeOf(in);
+		long keySize = decrypt ? sizeOf(keyPath) : size;
+		createOutput(out);
+		if(!decrypt) {
+			createOutput(keyPath);
+		}
+		KeySource keySource = PooledKeySource.shared();
+		byte[] shifts = new byte[BLOCK_SIZE]; // Key shifts of the block being shifted
+		long count = 0;
+		long keyPos = 0; // Number of key file bytes read
+		try(ResourceScope scope = ResourceScope.newConfinedScope()) {
+			if(size > 0) {
+				MemorySegment src = MemorySegment.mapFile(in, 0, size, MapMode.READ_ONLY, scope);
+				MemorySegment dst = MemorySegment.mapFile(out, 0, size, MapMode.READ_WRITE, scope);
+				MemorySegment keyLetters = MemorySegment.mapFile(keyPath, 0, keySize,
+						decrypt ? MapMode.READ_ONLY : MapMode.READ_WRITE, scope);
+				for(long i = 0; i < size; i += BLOCK_SIZE) {
+					int n = prepare(src, i, Math.min(BLOCK_SIZE, size - i), dst, count);
+					if(decrypt) {
+						for(int j = 0; j < n; j++) {
+							int k;
+							do {
+								if(keyPos >= keySize) {
+									throw new IllegalArgumentException("The One-Time Pad key is shorter than the text");
+								}
+								k = MemoryAccess.getByteAtOffset(keyLetters, keyPos++) | 0x20;
+							} while(k < 'a' || k > 'z');
+							shifts[j] = (byte) (k - 'a');
+						}
+					}
+					else {
+						keySource.nextKey(shifts, 0, n); // Generates the key letters of the block
+						for(int j = 0; j < n; j++) {
+							MemoryAccess.setByteAtOffset(keyLetters, count + j, shifts[j]);
+							shifts[j] -= 'a';
+						}
+					}
+					shift(dst, count, dst, count, n, shifts, 0, decrypt);
+					count += n;
+				}
+			}
+		}
+		truncate(out, count);
+		if(!decrypt) {
+			truncate(keyPath, count);
+		}
+		return count;
+	}
+	
+	/**
+	 * Lower cases a range of ASCII text and copies its letters to another segment, skipping every non-letter the
+	 * same way InputPolicy.STRIP does.
+	 */
+	private static int prepare(MemorySegment src, long srcOff, long len, MemorySegment dst, long dstOff) {
+		int out = 0;
+		for(long i = srcOff; i < srcOff + len; i++) {
+			int b = MemoryAccess.getByteAtOffset(src, i) | 0x20;
+			if(b >= 'a' && b <= 'z') {
+				MemoryAccess.setByteAtOffset(dst, dstOff + out++, (byte) b);
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * Shifts a range of lower case letters with shift values that repeat from a key index. Every path of the engine
+	 * goes through this loop.
+	 * 
+	 * @return The key index to use for the letter following the range.
+	 */
+	private static int shift(MemorySegment src, long srcOff, MemorySegment dst, long dstOff, long len, byte[] shifts,
+			int keyIndex, boolean decrypt) {
+		for(long i = 0; i < len; i++) {
+			int s = decrypt ? 26 - shifts[keyIndex] : shifts[keyIndex];
+			int b = MemoryAccess.getByteAtOffset(src, srcOff + i);
+			MemoryAccess.setByteAtOffset(dst, dstOff + i, (byte) ('a' + (b - 'a' + s) % 26)); // Applies the shift of the current key letter
+			if(++keyIndex == shifts.length) {
+				keyIndex = 0;
+			}
+		}
+		return keyIndex;
+	}
+	
+	private static long sizeOf(Path path) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return channel.size();
+		}
+	}
+	
+	/**
+	 * Creates an empty file, replacing any previous content. Mapping it read-write then grows it to the mapped size.
+	 */
+	private static void createOutput(Path path) throws IOException {
+		FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING).close();
+	}
+	
+	/**
+	 * Cuts a file to the letters written, once its segment is unmapped.
+	 */
+	private static void truncate(Path path, long size) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(size);
+		}
+	}
+}
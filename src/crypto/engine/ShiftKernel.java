@@ -0,0 +1,189 @@
+package crypto.engine;
+
+/**
+ * The ShiftKernel class contains the letter shift loop shared by every engine.
+ * Caesar, Vigenere and One-Time Pad only differ in the shift values they use, so all three are run by the same
+ * kernel over a schedule of shifts, starting at a given key index. The key index reached at the end is returned so
+ * that the next chunk of the text can continue from it.
+ */
+public final class ShiftKernel {
+	
+	private ShiftKernel() {
+	}
+	
+	/**
+	 * Shifts the letters of a char buffer in place.
+	 * 
+	 * @param buf The buffer holding lower case letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters to shift.
+	 * @param shifts The shift values of the key, in the range 0-25.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public static int shift(char[] buf, int off, int len, byte[] shifts, int keyIndex, boolean decrypt) {
+		return shift(buf, off, buf, off, len, shifts, keyIndex, decrypt);
+	}
+	
+	/**
+	 * Shifts the letters of a char buffer into another buffer (or the same one).
+	 * 
+	 * @param src The buffer holding lower case letters.
+	 * @param srcOff The index of the first letter.
+	 * @param dst The buffer receiving the shifted letters.
+	 * @param dstOff The index receiving the first shifted letter.
+	 * @param len The number of letters to shift.
+	 * @param shifts The shift values of the key, in the range 0-25.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public static int shift(char[] src, int srcOff, char[] dst, int dstOff, int len, byte[] shifts, int keyIndex,
+			boolean decrypt) {
+		int keyLength = shifts.length;
+		for(int i = 0; i < len; i++) {
+			int s = decrypt ? 26 - shifts[keyIndex] : shifts[keyIndex];
+			dst[dstOff + i] = (char) ('a' + (src[srcOff + i] - 'a' + s) % 26); // Applies the shift of the current key letter
+			if(++keyIndex == keyLength) {
+				keyIndex = 0; // Wraps around to the start of a repeating key
+			}
+		}
+		return keyIndex;
+	}
+	
+	/**
+	 * Shifts the letters of an ASCII byte buffer in place.
+	 * 
+	 * @param buf The buffer holding lower case ASCII letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters to shift.
+	 * @param shifts The shift values of the key, in the range 0-25.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public static int shift(byte[] buf, int off, int len, byte[] shifts, int keyIndex, boolean decrypt) {
+		return shift(buf, off, buf, off, len, shifts, keyIndex, decrypt);
+	}
+	
+	/**
+	 * Shifts the letters of an ASCII byte buffer into another buffer (or the same one).
+	 * 
+	 * @param src The buffer holding lower case ASCII letters.
+	 * @param srcOff The index of the first letter.
+	 * @param dst The buffer receiving the shifted letters.
+	 * @param dstOff The index receiving the first shifted letter.
+	 * @param len The number of letters to shift.
+	 * @param shifts The shift values of the key, in the range 0-25.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public static int shift(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte[] shifts, int keyIndex,
+			boolean decrypt) {
+		int keyLength = shifts.length;
+		for(int i = 0; i < len; i++) {
+			int s = decrypt ? 26 - shifts[keyIndex] : shifts[keyIndex];
+			dst[dstOff + i] = (byte) ('a' + (src[srcOff + i] - 'a' + s) % 26); // Applies the shift of the current key letter
+			if(++keyIndex == keyLength) {
+				keyIndex = 0; // Wraps around to the start of a repeating key
+			}
+		}
+		return keyIndex;
+	}
+	
+	/**
+	 * Shifts the letters of a char buffer into another buffer (or the same one), keeping everything else as it is.
+	 * Letters 'a' to 'z' and 'A' to 'Z' are shifted in their own case and each uses the next key index; any other
+	 * character is copied unchanged and uses no key index. This is the kernel behind InputPolicy.PRESERVE.
+	 * 
+	 * @param src The buffer holding the text.
+	 * @param srcOff The index of the first character.
+	 * @param dst The buffer receiving the shifted text.
+	 * @param dstOff The index receiving the first character.
+	 * @param len The number of characters.
+	 * @param shifts The shift values of the key, in the range 0-25.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public static int shiftPreserving(char[] src, int srcOff, char[] dst, int dstOff, int len, byte[] shifts,
+			int keyIndex, boolean decrypt) {
+		int keyLength = shifts.length;
+		for(int i = 0; i < len; i++) {
+			char ch = src[srcOff + i];
+			int lower = ch | 0x20;
+			if(lower < 'a' || lower > 'z') {
+				dst[dstOff + i] = ch; // Not a letter: passed through without using a key letter
+				continue;
+			}
+			int s = decrypt ? 26 - shifts[keyIndex] : shifts[keyIndex];
+			int base = (ch == lower) ? 'a' : 'A'; // Keeps the case of the letter
+			dst[dstOff + i] = (char) (base + (lower - 'a' + s) % 26);
+			if(++keyIndex == keyLength) {
+				keyIndex = 0;
+			}
+		}
+		return keyIndex;
+	}
+	
+	/**
+	 * Shifts the letters of an ASCII byte buffer into another buffer (or the same one), keeping everything else as
+	 * it is, like the char version.
+	 * 
+	 * @param src The buffer holding the text.
+	 * @param srcOff The index of the first byte.
+	 * @param dst The buffer receiving the shifted text.
+	 * @param dstOff The index receiving the first byte.
+	 * @param len The number of bytes.
+	 * @param shifts The shift values of the key, in the range 0-25.
+	 * @param keyIndex The key index used for the first letter.
+	 * @param decrypt True to apply the reverse shift.
+	 * @return The key index to use for the letter following the range.
+	 */
+	public static int shiftPreserving(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte[] shifts,
+			int keyIndex, boolean decrypt) {
+		int keyLength = shifts.length;
+		for(int i = 0; i < len; i++) {
+			byte b = src[srcOff + i];
+			int lower = b | 0x20;
+			if(lower < 'a' || lower > 'z') {
+				dst[dstOff + i] = b;
+				continue;
+			}
+			int s = decrypt ? 26 - shifts[keyIndex] : shifts[keyIndex];
+			int base = (b == lower) ? 'a' : 'A';
+			dst[dstOff + i] = (byte) (base + (lower - 'a' + s) % 26);
+			if(++keyIndex == keyLength) {
+				keyIndex = 0;
+			}
+		}
+		return keyIndex;
+	}
+	
+	/**
+	 * Lower cases a char buffer and removes every character that is not a letter in place, the same way the cipher
+	 * classes prepare their input text by default (InputPolicy.STRIP).
+	 * 
+	 * @param buf The buffer to prepare.
+	 * @param off The index of the first character.
+	 * @param len The number of characters to prepare.
+	 * @return The number of characters left, starting at off.
+	 */
+	public static int prepare(char[] buf, int off, int len) {
+		return InputPolicy.STRIP.normalize(buf, off, len);
+	}
+	
+	/**
+	 * Lower cases an ASCII byte buffer and removes every byte that is not a letter in place.
+	 * 
+	 * @param buf The buffer to prepare.
+	 * @param off The index of the first byte.
+	 * @param len The number of bytes to prepare.
+	 * @return The number of bytes left, starting at off.
+	 */
+	public static int prepare(byte[] buf, int off, int len) {
+		return InputPolicy.STRIP.normalize(buf, off, len);
+	}
+}
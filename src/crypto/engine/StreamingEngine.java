@@ -0,0 +1,227 @@
+package crypto.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+import crypto.keys.KeySource;
+import crypto.keys.PooledKeySource;
+
+/**
+ * The StreamingEngine class encrypts and decrypts text from a Reader or InputStream to a Writer or OutputStream.
+ * The text is processed in fixed-size chunks, so the heap used stays the same however large the input is.
+ * Input is prepared the same way as in the cipher classes (lower cased, every non-letter removed) and the key
+ * position is carried over from one chunk to the next. Byte streams are read and written as US-ASCII.
+ */
+public final class StreamingEngine {
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024; // Default number of characters processed per chunk
+	private final KeySchedule key; // The key used for encryption and decryption
+	private final int chunkSize; // The number of characters read per chunk
+	
+	/**
+	 * Creates an engine with the default chunk size.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 */
+	public StreamingEngine(KeySchedule key) {
+		this(key, DEFAULT_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Creates an engine.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 * @param chunkSize The number of characters read per chunk.
+	 */
+	public StreamingEngine(KeySchedule key, int chunkSize) {
+		if(chunkSize <= 0) {
+			throw new IllegalArgumentException("The chunk size must be positive");
+		}
+		this.key = key;
+		this.chunkSize = chunkSize;
+	}
+	
+	/**
+	 * Encrypts all text from a reader to a writer.
+	 * 
+	 * @param in The plain text source.
+	 * @param out The cipher text destination.
+	 * @return The number of letters encrypted.
+	 * @throws IOException If reading or writing fails.
+	 */
+	public long encrypt(Reader in, Writer out) throws IOException {
+		return process(in, out, false);
+	}
+	
+	/**
+	 * Decrypts all text from a reader to a writer.
+	 * 
+	 * @param in The cipher text source.
+	 * @param out The plain text destination.
+	 * @return The number of letters decrypted.
+	 * @throws IOException If reading or writing fails.
+	 */
+	public long decrypt(Reader in, Writer out) throws IOException {
+		return process(in, out, true);
+	}
+	
+	/**
+	 * Encrypts all ASCII text from an input stream to an output stream.
+	 * 
+	 * @param in The plain text source.
+	 * @param out The cipher text destination.
+	 * @return The number of letters encrypted.
+	 * @throws IOException If reading or writing fails.
+	 */
+	public long encrypt(InputStream in, OutputStream out) throws IOException {
+		return process(in, out, false);
+	}
+	
+	/**
+	 * Decrypts all ASCII text from an input stream to an output stream.
+	 * 
+	 * @param in The cipher text source.
+	 * @param out The plain text destination.
+	 * @return The number of letters decrypted.
+	 * @throws IOException If reading or writing fails.
+	 */
+	public long decrypt(InputStream in, OutputStream out) throws IOException {
+		return process(in, out, true);
+	}
+	
+	/**
+	 * Runs the cipher over a character stream, one chunk at a time.
+	 */
+	private long process(Reader in, Writer out, boolean decrypt) throws IOException {
+		char[] buf = new char[chunkSize];
+		byte[] shifts = key.shifts();
+		long position = 0; // Number of letters processed so far
+		int keyIndex = 0; // Key position carried over between chunks
+		int read;
+		while((read = in.read(buf, 0, chunkSize)) != -1) {
+			int count = ShiftKernel.prepare(buf, 0, read);
+			key.checkRange(position, count);
+			keyIndex = ShiftKernel.shift(buf, 0, count, shifts, keyIndex, decrypt);
+			out.write(buf, 0, count);
+			position += count;
+		}
+		out.flush();
+		return position;
+	}
+	
+	/**
+	 * Runs the cipher over a byte stream, one chunk at a time.
+	 */
+	private long process(InputStream in, OutputStream out, boolean decrypt) throws IOException {
+		byte[] buf = new byte[chunkSize];
+		byte[] shifts = key.shifts();
+		long position = 0; // Number of letters processed so far
+		int keyIndex = 0; // Key position carried over between chunks
+		int read;
+		while((read = in.read(buf, 0, chunkSize)) != -1) {
+			int count = ShiftKernel.prepare(buf, 0, read);
+			key.checkRange(position, count);
+			keyIndex = ShiftKernel.shift(buf, 0, count, shifts, keyIndex, decrypt);
+			out.write(buf, 0, count);
+			position += count;
+		}
+		out.flush();
+		return position;
+	}
+	
+	/**
+	 * Encrypts all text from a reader with a One-Time Pad whose key is generated while streaming.
+	 * The key is written to its own writer, chunk by chunk, so that it never has to be held in memory.
+	 * Key letters are taken from the shared pool of secure random key letters.
+	 * 
+	 * @param in The plain text source.
+	 * @param out The cipher text destination.
+	 * @param keyOut The destination of the generated key.
+	 * @param chunkSize The number of characters read per chunk.
+	 * @return The number of letters encrypted.
+	 * @throws IOException If reading or writing fails.
+	 */
+	public static long encryptOneTimePad(Reader in, Writer out, Writer keyOut, int chunkSize) throws IOException {
+		return encryptOneTimePad(in, out, keyOut, chunkSize, PooledKeySource.shared());
+	}
+	
+	/**
+	 * Encrypts all text from a reader with a One-Time Pad whose key is generated while streaming.
+	 * 
+	 * @param in The plain text source.
+	 * @param out The cipher text destination.
+	 * @param keyOut The destination of the generated key.
+	 * @param chunkSize The number of characters read per chunk.
+	 * @param keySource The source of random key letters.
+	 * @return The number of letters encrypted.
+	 * @throws IOException If reading or writing fails.
+	 */
+	public static long encryptOneTimePad(Reader in, Writer out, Writer keyOut, int chunkSize, KeySource keySource)
+			throws IOException {
+		char[] buf = new char[chunkSize];
+		char[] keyBuf = new char[chunkSize];
+		byte[] shifts = new byte[chunkSize];
+		long position = 0;
+		int read;
+		while((read = in.read(buf, 0, chunkSize)) != -1) {
+			int count = ShiftKernel.prepare(buf, 0, read);
+			if(count == 0) {
+				continue;
+			}
+			keySource.nextKey(keyBuf, 0, count); // Generates the key for this chunk
+			ShiftKernel.shift(buf, 0, count, KeySchedule.toShifts(keyBuf, 0, count, shifts), 0, false);
+			out.write(buf, 0, count);
+			keyOut.write(keyBuf, 0, count);
+			position += count;
+		}
+		out.flush();
+		keyOut.flush();
+		return position;
+	}
+	
+	/**
+	 * Decrypts all text from a reader with a One-Time Pad key read from its own reader, chunk by chunk.
+	 * 
+	 * @param in The cipher text source.
+	 * @param keyIn The key source, one letter per letter of the cipher text.
+	 * @param out The plain text destination.
+	 * @param chunkSize The number of characters read per chunk.
+	 * @return The number of letters decrypted.
+	 * @throws IOException If reading or writing fails, or if the key is shorter than the cipher text.
+	 */
+	public static long decryptOneTimePad(Reader in, Reader keyIn, Writer out, int chunkSize) throws IOException {
+		char[] buf = new char[chunkSize];
+		char[] keyBuf = new char[chunkSize];
+		byte[] shifts = new byte[chunkSize];
+		long position = 0;
+		int read;
+		while((read = in.read(buf, 0, chunkSize)) != -1) {
+			int count = ShiftKernel.prepare(buf, 0, read);
+			if(count == 0) {
+				continue;
+			}
+			readKey(keyIn, keyBuf, count);
+			ShiftKernel.shift(buf, 0, count, KeySchedule.toShifts(keyBuf, 0, count, shifts), 0, true);
+			out.write(buf, 0, count);
+			position += count;
+		}
+		out.flush();
+		return position;
+	}
+	
+	/**
+	 * Reads exactly count key letters, skipping the spaces, newlines and other non-letters a key file may contain.
+	 */
+	private static void readKey(Reader keyIn, char[] keyBuf, int count) throws IOException {
+		int filled = 0;
+		while(filled < count) {
+			int read = keyIn.read(keyBuf, filled, count - filled);
+			if(read == -1) {
+				throw new IOException("The One-Time Pad key is shorter than the text");
+			}
+			filled += ShiftKernel.prepare(keyBuf, filled, read);
+		}
+	}
+}
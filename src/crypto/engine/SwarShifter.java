@@ -0,0 +1,59 @@
+package crypto.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * The SwarShifter class shifts eight letters at a time inside a long word (SIMD within a register).
+ * Letters minus 'a' and shift values both fit in five bits, so they can be added byte by byte without carries
+ * reaching the neighbouring byte. It is used when the Vector API is not available.
+ */
+final class SwarShifter implements ByteShifter {
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final long ONES = 0x0101010101010101L; // 1 in every byte
+	private static final long HIGH_BITS = 0x8080808080808080L; // The top bit of every byte
+	
+	@Override
+	public int shift(byte[] buf, int off, int len, byte[] stripe, int keyIndex, int keyLength, boolean decrypt) {
+		int i = off;
+		int end = off + len;
+		for(; i + 8 <= end; i += 8) {
+			long x = (long) LONGS.get(buf, i);
+			if(!allLetters(x)) {
+				keyIndex = ByteShifter.scalar(buf, i, 8, stripe, keyIndex, keyLength, decrypt);
+				continue;
+			}
+			long s = (long) LONGS.get(stripe, keyIndex);
+			if(decrypt) {
+				s = 26 * ONES - s; // Reverse shift, 1-26 in every byte
+			}
+			long t = x - 'a' * ONES + s; // Letter index plus shift, at most 51 in every byte
+			long wrap = ((t + (128 - 26) * ONES) & HIGH_BITS) >>> 7; // 1 in every byte holding 26 or more
+			t = t - wrap * 26 + 'a' * ONES;
+			LONGS.set(buf, i, t);
+			keyIndex += 8;
+			while(keyIndex >= keyLength) {
+				keyIndex -= keyLength;
+			}
+		}
+		return ByteShifter.scalar(buf, i, end - i, stripe, keyIndex, keyLength, decrypt);
+	}
+	
+	/**
+	 * Checks that every byte of a word is a lower case ASCII letter.
+	 */
+	private static boolean allLetters(long x) {
+		if((x & HIGH_BITS) != 0) {
+			return false;
+		}
+		long belowA = ~(x + (0x80 - 'a') * ONES) & HIGH_BITS; // Top bit left clear by bytes below 'a'
+		long aboveZ = (x + (0x7F - 'z') * ONES) & HIGH_BITS; // Top bit set by bytes above 'z'
+		return (belowA | aboveZ) == 0;
+	}
+	
+	@Override
+	public String name() {
+		return "swar";
+	}
+}
@@ -0,0 +1,105 @@
+package crypto.engine;
+
+/**
+ * The VectorEngine class shifts lower case ASCII bytes several letters at a time.
+ * When the jdk.incubator.vector module is available (run with --add-modules jdk.incubator.vector) a Vector API
+ * kernel is selected automatically; otherwise a SWAR kernel working on long words is used. Setting the system
+ * property crypto.vector to false forces the SWAR kernel. Both give the same output as ShiftKernel.
+ */
+public final class VectorEngine {
+	private static final int MAX_LANES = 64; // Widest vector supported: 512 bits of bytes
+	private static final ByteShifter SHIFTER = selectShifter();
+	private final KeySchedule key; // The key used for encryption and decryption
+	private final byte[] stripe; // Key shifts, repeated past the key length for full-width loads
+	
+	/**
+	 * Creates an engine.
+	 * 
+	 * @param key The key schedule of the cipher to apply.
+	 */
+	public VectorEngine(KeySchedule key) {
+		this.key = key;
+		byte[] shifts = key.shifts();
+		if(key.kind() == CipherKind.ONE_TIME_PAD) {
+			stripe = shifts; // Never repeats, and a load never runs past the letters covered by the key
+		}
+		else {
+			stripe = new byte[shifts.length + MAX_LANES];
+			for(int i = 0; i < stripe.length; i++) {
+				stripe[i] = shifts[i % shifts.length];
+			}
+		}
+	}
+	
+	/**
+	 * Picks the Vector API kernel when its module can be loaded, or the SWAR kernel otherwise.
+	 */
+	private static ByteShifter selectShifter() {
+		if(!Boolean.parseBoolean(System.getProperty("crypto.vector", "true"))) {
+			return new SwarShifter();
+		}
+		try {
+			return (ByteShifter) Class.forName("crypto.engine.VectorShifter").getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException | LinkageError ex) {
+			return new SwarShifter(); // The incubator module is not present
+		}
+	}
+	
+	/**
+	 * Returns the name of the kernel in use, for example "vector-256" or "swar".
+	 * 
+	 * @return The kernel name.
+	 */
+	public static String kernel() {
+		return SHIFTER.name();
+	}
+	
+	/**
+	 * Returns whether the Vector API kernel is in use.
+	 * 
+	 * @return True when running on the Vector API.
+	 */
+	public static boolean isVectorized() {
+		return SHIFTER instanceof VectorShifter;
+	}
+	
+	/**
+	 * Shifts a range of lower case ASCII letters in place.
+	 * 
+	 * @param buf The buffer holding the letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters to shift.
+	 * @param position The position of the first letter in the whole text, which selects the key letter.
+	 * @param decrypt True to apply the reverse shift.
+	 */
+	public void shift(byte[] buf, int off, int len, long position, boolean decrypt) {
+		if(len == 0) {
+			return;
+		}
+		key.checkRange(position, len);
+		SHIFTER.shift(buf, off, len, stripe, key.keyIndex(position), key.length(), decrypt);
+	}
+	
+	/**
+	 * Encrypts a range of lower case ASCII letters in place.
+	 * 
+	 * @param buf The buffer holding the letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 */
+	public void encrypt(byte[] buf, int off, int len) {
+		shift(buf, off, len, 0, false);
+	}
+	
+	/**
+	 * Decrypts a range of lower case ASCII letters in place.
+	 * 
+	 * @param buf The buffer holding the letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 */
+	public void decrypt(byte[] buf, int off, int len) {
+		shift(buf, off, len, 0, true);
+	}
+}
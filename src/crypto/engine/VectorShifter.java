@@ -0,0 +1,47 @@
+package crypto.engine;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorShifter class shifts a full vector of letters per iteration with the incubating Vector API.
+ * It is only loaded when the jdk.incubator.vector module is present at run time.
+ */
+final class VectorShifter implements ByteShifter {
+	private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+	
+	@Override
+	public int shift(byte[] buf, int off, int len, byte[] stripe, int keyIndex, int keyLength, boolean decrypt) {
+		int lanes = SPECIES.length();
+		int i = off;
+		int bound = off + SPECIES.loopBound(len);
+		for(; i < bound; i += lanes) {
+			ByteVector v = ByteVector.fromArray(SPECIES, buf, i);
+			VectorMask<Byte> letters = v.compare(VectorOperators.GE, (byte) 'a')
+					.and(v.compare(VectorOperators.LE, (byte) 'z'));
+			if(!letters.allTrue()) {
+				keyIndex = ByteShifter.scalar(buf, i, lanes, stripe, keyIndex, keyLength, decrypt);
+				continue;
+			}
+			ByteVector s = ByteVector.fromArray(SPECIES, stripe, keyIndex);
+			if(decrypt) {
+				s = ByteVector.broadcast(SPECIES, (byte) 26).sub(s); // Reverse shift, 1-26 in every lane
+			}
+			ByteVector t = v.sub((byte) 'a').add(s); // Letter index plus shift, at most 51 in every lane
+			t = t.sub((byte) 26, t.compare(VectorOperators.GE, (byte) 26));
+			t.add((byte) 'a').intoArray(buf, i);
+			keyIndex += lanes;
+			while(keyIndex >= keyLength) {
+				keyIndex -= keyLength;
+			}
+		}
+		return ByteShifter.scalar(buf, i, off + len - i, stripe, keyIndex, keyLength, decrypt);
+	}
+	
+	@Override
+	public String name() {
+		return "vector-" + SPECIES.vectorBitSize();
+	}
+}
@@ -0,0 +1,172 @@
+package crypto.gui;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.SwingWorker;
+
+import crypto.ciphers.LineWrappingWriter;
+import crypto.engine.KeySchedule;
+import crypto.engine.ShiftKernel;
+import crypto.keys.PooledKeySource;
+
+/**
+ * The CipherWorker class runs an encryption or decryption in the background, off the event dispatch thread.
+ * The text is processed in chunks: after each chunk the result is appended to the output text area, the progress
+ * is updated and a cancel request is checked, so the window stays responsive even for very large documents.
+ */
+final class CipherWorker extends SwingWorker<String, String> {
+	static final int CHUNK_SIZE = 16 * 1024; // Letters processed between two output batches
+	private final String inputText; // The text to encrypt or decrypt
+	private final KeySchedule key; // The key, or null to generate a One-Time Pad key while encrypting
+	private final boolean decrypt; // True to decrypt
+	private final JTextArea outputTextBox; // The text area receiving the result
+	private final JTextField keyField; // The key text field, filled with a generated One-Time Pad key
+	private final JButton[] cipherButtons; // Buttons disabled while the worker runs
+	private final JButton cancelButton; // Button enabled while the worker runs
+	private final StringWriter wrapped = new StringWriter(); // The wrapped text of the current decrypted batch
+	private final Writer lines = new LineWrappingWriter(wrapped); // Breaks decrypted text into display lines
+	private boolean detached; // Set on the event dispatch thread once the output text area belongs to someone else
+	
+	/**
+	 * Creates a worker. It does nothing until execute() is called.
+	 * 
+	 * @param inputText The text to encrypt or decrypt.
+	 * @param key The key, or null to generate a One-Time Pad key while encrypting.
+	 * @param decrypt True to decrypt.
+	 * @param outputTextBox The text area receiving the result.
+	 * @param keyField The key text field, filled with a generated One-Time Pad key.
+	 * @param cancelButton The button cancelling the worker.
+	 * @param cipherButtons The buttons disabled while the worker runs.
+	 */
+	CipherWorker(String inputText, KeySchedule key, boolean decrypt, JTextArea outputTextBox, JTextField keyField,
+			JButton cancelButton, JButton... cipherButtons) {
+		this.inputText = inputText;
+		this.key = key;
+		this.decrypt = decrypt;
+		this.outputTextBox = outputTextBox;
+		this.keyField = keyField;
+		this.cancelButton = cancelButton;
+		this.cipherButtons = cipherButtons;
+		outputTextBox.setText("");
+		setRunning(true);
+	}
+	
+	/**
+	 * Encrypts or decrypts the text chunk by chunk and publishes each chunk for the output text area.
+	 * 
+	 * @return The generated One-Time Pad key, or null when the key was given.
+	 */
+	@Override
+	protected String doInBackground() {
+		char[] text = inputText.toCharArray();
+		int length = ShiftKernel.prepare(text, 0, text.length); // Lower cases and removes every non-letter
+		if(key != null) {
+			key.checkRange(0, length);
+		}
+		StringBuilder generatedKey = (key == null) ? new StringBuilder(length) : null;
+		char[] keyBuf = (key == null) ? new char[CHUNK_SIZE] : null;
+		int keyIndex = 0;
+		for(int off = 0; off < length && !isCancelled(); off += CHUNK_SIZE) {
+			int count = Math.min(CHUNK_SIZE, length - off);
+			if(key == null) {
+				PooledKeySource.shared().nextKey(keyBuf, 0, count);
+				KeySchedule chunkKey = KeySchedule.oneTimePad(Arrays.copyOf(keyBuf, count));
+				chunkKey.shift(text, off, count, 0, false);
+				generatedKey.append(keyBuf, 0, count);
+			}
+			else {
+				keyIndex = key.shift(text, off, count, keyIndex, decrypt);
+			}
+			publish(batch(text, off, count));
+			setProgress((int) ((off + count) * 100L / length));
+		}
+		return generatedKey == null ? null : generatedKey.toString();
+	}
+	
+	/**
+	 * Builds the text of one output batch. Decrypted text is broken into lines for display as it is published; the
+	 * wrapping writer keeps its column between batches, so the lines run on across them.
+	 */
+	private String batch(char[] text, int off, int count) {
+		if(!decrypt) {
+			return new String(text, off, count);
+		}
+		try {
+			lines.write(text, off, count);
+		}
+		catch(IOException ex) {
+			throw new UncheckedIOException(ex); // A StringWriter does not fail
+		}
+		String batch = wrapped.toString();
+		wrapped.getBuffer().setLength(0);
+		return batch;
+	}
+	
+	/**
+	 * Cancels the worker and leaves the output text area alone from now on: no further batch, key or cancel marker
+	 * is written to it. Used when live mode takes over the output. Must be called on the event dispatch thread.
+	 */
+	void cancelDetached() {
+		detached = true;
+		cancel(false);
+	}
+	
+	/**
+	 * Appends the finished batches to the output text area, on the event dispatch thread.
+	 */
+	@Override
+	protected void process(List<String> batches) {
+		if(detached) {
+			return;
+		}
+		for(String batch : batches) {
+			outputTextBox.append(batch);
+		}
+	}
+	
+	/**
+	 * Shows the generated key or the error, and re-enables the buttons.
+	 */
+	@Override
+	protected void done() {
+		setRunning(false);
+		if(detached) {
+			return; // The output shows something else now
+		}
+		try {
+			String generatedKey = get();
+			if(generatedKey != null) {
+				keyField.setText(generatedKey); // Displays the randomly generated key for One-Time Pad
+			}
+		}
+		catch(CancellationException ex) {
+			outputTextBox.append("\n[Cancelled]");
+		}
+		catch(ExecutionException ex) {
+			outputTextBox.setText(ex.getCause().getMessage());
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Enables the cancel button and disables the cipher buttons while the worker runs, and the other way round.
+	 */
+	private void setRunning(boolean running) {
+		for(JButton button : cipherButtons) {
+			button.setEnabled(!running);
+		}
+		cancelButton.setEnabled(running);
+	}
+}
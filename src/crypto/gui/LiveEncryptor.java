@@ -0,0 +1,187 @@
+package crypto.gui;
+
+import javax.swing.JTextArea;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+import crypto.ciphers.Cipher;
+import crypto.engine.InputPolicy;
+import crypto.engine.KeySchedule;
+
+/**
+ * The LiveEncryptor class keeps the output text area encrypted while the user types in the input text area.
+ * The text is encrypted with InputPolicy.PRESERVE, so every character of the output sits at the same offset as in
+ * the input and an edit is patched into the output at the offset of the edit. Only the edited characters are
+ * encrypted, except when a Vigenere edit adds or removes a number of letters that is not a multiple of the key
+ * length: the key offset of every following letter then shifts, and the rest of the text is encrypted again.
+ * 
+ * The key position of an edit is the number of letters before it. Instead of counting them from the start of the
+ * text on every edit, the count at the last edit is kept and moved to the new edit, which is usually nearby. A key
+ * of one letter, such as any Caesar key, needs no position at all.
+ * 
+ * All methods run on the event dispatch thread, where Swing calls document listeners.
+ */
+final class LiveEncryptor implements DocumentListener {
+	private final Cipher cipher; // The Caesar or Vigenere cipher of the key
+	private final int keyLength; // Number of letters after which the key repeats
+	private final JTextArea inputBox; // The text area the user types in
+	private final JTextArea outputTextBox; // The text area showing the cipher text
+	private final Segment segment = new Segment(); // Reused view of the document text, usually without a copy
+	private int markOffset; // Offset of the last edit in the output, which mirrors the input
+	private long markLetters; // Number of letters before markOffset
+	
+	/**
+	 * Creates a live encryptor. It does nothing until start() is called.
+	 * 
+	 * @param key A Caesar or Vigenere key.
+	 * @param inputBox The text area the user types in.
+	 * @param outputTextBox The text area showing the cipher text.
+	 */
+	LiveEncryptor(KeySchedule key, JTextArea inputBox, JTextArea outputTextBox) {
+		this.cipher = Cipher.of(key);
+		this.keyLength = key.length();
+		this.inputBox = inputBox;
+		this.outputTextBox = outputTextBox;
+		segment.setPartialReturn(true);
+	}
+	
+	/**
+	 * Encrypts the whole input once and starts following the edits.
+	 */
+	void start() {
+		markOffset = 0;
+		markLetters = 0;
+		char[] text = inputBox.getText().toCharArray();
+		cipher.encryptPreserving(text, 0, text.length, text, 0, 0);
+		outputTextBox.setText(new String(text));
+		inputBox.getDocument().addDocumentListener(this);
+	}
+	
+	/**
+	 * Stops following the edits. The output is left as it is.
+	 */
+	void stop() {
+		inputBox.getDocument().removeDocumentListener(this);
+	}
+	
+	/**
+	 * Encrypts the inserted text and inserts it into the output at the same offset.
+	 */
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		try {
+			Document input = e.getDocument();
+			int off = e.getOffset();
+			long position = lettersBefore(off); // Counted in the output, which does not hold the insertion yet
+			int letters = countLetters(input, off, e.getLength());
+			if(letters % keyLength == 0) {
+				outputTextBox.getDocument().insertString(off, encrypt(input, off, e.getLength(), position), null);
+			}
+			else {
+				reencryptFrom(off, position); // The key offset of every letter after the insertion has shifted
+			}
+		}
+		catch(BadLocationException ex) {
+			restart();
+		}
+	}
+	
+	/**
+	 * Removes the same range from the output. Cipher letters sit where plain letters were, so the number of
+	 * letters removed is counted in the output.
+	 */
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		try {
+			Document output = outputTextBox.getDocument();
+			int off = e.getOffset();
+			long position = lettersBefore(off); // Counted in the output, which still holds the removed range
+			int letters = countLetters(output, off, e.getLength());
+			output.remove(off, e.getLength());
+			if(letters % keyLength != 0) {
+				reencryptFrom(off, position);
+			}
+		}
+		catch(BadLocationException ex) {
+			restart();
+		}
+	}
+	
+	/**
+	 * Attribute changes do not change the text.
+	 */
+	@Override
+	public void changedUpdate(DocumentEvent e) {
+	}
+	
+	/**
+	 * Returns the number of letters before an offset, counted from the last edit in the output before the output
+	 * is changed, and makes the offset the new mark. Text before an edit is never changed by it, so the count stays
+	 * valid from one edit to the next.
+	 */
+	private long lettersBefore(int off) throws BadLocationException {
+		if(keyLength == 1) {
+			return 0; // Every letter is shifted the same way
+		}
+		Document output = outputTextBox.getDocument();
+		if(off >= markOffset) {
+			markLetters += countLetters(output, markOffset, off - markOffset);
+		}
+		else {
+			markLetters -= countLetters(output, off, markOffset - off);
+		}
+		markOffset = off;
+		return markLetters;
+	}
+	
+	/**
+	 * Encrypts the input from an offset to its end and replaces the output from that offset.
+	 */
+	private void reencryptFrom(int off, long position) throws BadLocationException {
+		Document input = inputBox.getDocument();
+		Document output = outputTextBox.getDocument();
+		String tail = encrypt(input, off, input.getLength() - off, position);
+		if(output instanceof AbstractDocument) {
+			((AbstractDocument) output).replace(off, output.getLength() - off, tail, null);
+		}
+		else {
+			output.remove(off, output.getLength() - off);
+			output.insertString(off, tail, null);
+		}
+	}
+	
+	/**
+	 * Encrypts a range of the input, at the key position given by the letters before it.
+	 */
+	private String encrypt(Document input, int off, int len, long position) throws BadLocationException {
+		char[] text = input.getText(off, len).toCharArray();
+		cipher.encryptPreserving(text, 0, text.length, text, 0, position);
+		return new String(text);
+	}
+	
+	/**
+	 * Counts the letters of a range of a document, reading it through the reused segment.
+	 */
+	private int countLetters(Document doc, int off, int len) throws BadLocationException {
+		int letters = 0;
+		int end = off + len;
+		while(off < end) {
+			doc.getText(off, end - off, segment); // With partial returns, the segment may only cover part of the range
+			letters += InputPolicy.countLetters(segment.array, segment.offset, segment.count);
+			off += segment.count;
+		}
+		return letters;
+	}
+	
+	/**
+	 * Encrypts the whole input again, should the output have gone out of step with it.
+	 */
+	private void restart() {
+		stop();
+		start();
+	}
+}
@@ -3,13 +3,15 @@ package crypto.gui;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
-import crypto.ciphers.Caesar;
-import crypto.ciphers.OneTimePad;
-import crypto.ciphers.Vigenere;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import crypto.engine.KeySchedule;
 
 /**
  * MainWindow class provides the graphical user interface (GUI) for the cryptography application.
  * It allows users to select a cipher (Caesar, Vigenere, One-Time Pad), to input text to encrypt or decrypt, and to display the result.
+ * In live mode, Caesar and Vigenere cipher text is kept up to date while the user types, one edit at a time, and is
+ * encrypted again whenever the key is edited.
  */
 @SuppressWarnings("serial")
 public final class MainWindow extends JFrame implements ActionListener{
@@ -25,6 +27,13 @@ public final class MainWindow extends JFrame implements ActionListener{
 	private JTextArea outputTextBox;
 	private JButton encryptButton;
 	private JButton decryptButton;
+	private JButton cancelButton;
+	private JPanel progressPane;
+	private JProgressBar progressBar;
+	private CipherWorker worker; // The background encryption or decryption in progress, if any
+	private JCheckBox liveBox;
+	private LiveEncryptor live; // Encrypts the edits of the input box while live mode is on, or null
+	private boolean liveRestartPending; // Whether a key edit has scheduled a restart of live mode
 	private ButtonGroup ciphers;
 	private JRadioButton caesarRB;
 	private JRadioButton vigenereRB;
@@ -40,7 +49,7 @@ public final class MainWindow extends JFrame implements ActionListener{
 	public MainWindow(String title) {
 		super(title); // Sets the window title
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Ensures the app closes when the window is closed
-		setSize(500, 350); // Sets the window size
+		setSize(500, 390); // Sets the window size
 		Container mainContainer = getContentPane();  // Gets the content pane to add components
 		setLocationRelativeTo(null);  // Centers the window on the screen
 		mainContainer.setLayout(new FlowLayout()); // Sets the layout for the main container
@@ -58,6 +67,12 @@ public final class MainWindow extends JFrame implements ActionListener{
 		key = new JTextField(20);
 		encryptButton = new JButton("Encrypt");
 		decryptButton = new JButton("Decrypt");
+		cancelButton = new JButton("Cancel");
+		cancelButton.setEnabled(false); // Only enabled while an encryption or decryption runs
+		liveBox = new JCheckBox("Live");
+		progressPane = new JPanel();
+		progressBar = new JProgressBar(0, 100);
+		progressBar.setStringPainted(true);
 		ciphers = new ButtonGroup();
 		caesarRB = new JRadioButton("Caesar");
 		vigenereRB = new JRadioButton("Vigenere");
@@ -78,11 +93,15 @@ public final class MainWindow extends JFrame implements ActionListener{
 		keyButtonsPane.add(key);
 		keyButtonsPane.add(encryptButton);
 		keyButtonsPane.add(decryptButton);
+		keyButtonsPane.add(liveBox);
 		mainContainer.add(cipherOptionsPane);
 		cipherOptionsPane.add(cipherLabel);
 		cipherOptionsPane.add(caesarRB);
 		cipherOptionsPane.add(vigenereRB);
 		cipherOptionsPane.add(oneTimePadRB);
+		mainContainer.add(progressPane);
+		progressPane.add(progressBar);
+		progressPane.add(cancelButton);
 		
 		// Register action listeners for the buttons and radio buttons
 		caesarRB.addActionListener(this);
@@ -90,17 +109,40 @@ public final class MainWindow extends JFrame implements ActionListener{
 		oneTimePadRB.addActionListener(this);
 		encryptButton.addActionListener(this);
 		decryptButton.addActionListener(this);
+		cancelButton.addActionListener(this);
+		liveBox.addActionListener(this);
+		key.getDocument().addDocumentListener(new LiveKeyListener());
 		
 		setVisible(true); // Makes the window visible
 	}
 	
 	/**
      * This method is called when an action event occurs (button press, radio button selection).
-     * It handles encryption and decryption based on the selected cipher.
+     * It validates the key and starts the encryption or decryption of the selected cipher in the background.
      * 
      * @param e The action event triggered by the user interaction.
      */
 	public void actionPerformed(ActionEvent e) {
+		// Cancels the encryption or decryption in progress
+		if(e.getSource() == cancelButton) {
+			if(worker != null) {
+				worker.cancel(false); // The worker stops after the chunk it is processing
+			}
+			return;
+		}
+		
+		// Turns live encryption on or off; any other action turns it off
+		if(e.getSource() == liveBox) {
+			if(liveBox.isSelected()) {
+				startLive();
+			}
+			else {
+				stopLive();
+			}
+			return;
+		}
+		stopLive();
+		
 		// Handles logic for One-Time Pad cipher selection
 		if (oneTimePadRB.isSelected()) {
             key.setEditable(false); // Disables key editing for One-Time Pad
@@ -121,144 +163,166 @@ public final class MainWindow extends JFrame implements ActionListener{
 	        key.setEditable(true); // Makes key editable again
 	    }
 		
-		 // Handles encryption for Caesar cipher
-		if(e.getSource() == encryptButton && caesarRB.isSelected()) {
-			int userEncryptionKey;
-			String userInputText;
-			
-			Caesar caesar = new Caesar();
-			
-			userInputText = inputBox.getText(); // Get text input for encryption
-			caesar.getPlainText(userInputText); // Set the plaintext to Caesar cipher
-			
-			try {
-				// Ensures the user enters a positive encryption key
-				do {
-				userEncryptionKey = Integer.parseInt(key.getText());
-				if(userEncryptionKey < 0) {
-					key.setText(""); // Resets key if it's negative
-				}
-				}while(userEncryptionKey < 0);
-				caesar.getKey(userEncryptionKey); // Sets the encryption key to Caesar cipher
-			}
-			catch(Exception ex) {
-				key.setText("Input a positive number!"); // Handles non-integer input
-			}
-			outputTextBox.setText(caesar.outputCipherText()); // Displays the encrypted text
+		if(e.getSource() != encryptButton && e.getSource() != decryptButton) {
+			return; // A cipher was selected, there is nothing to run yet
 		}
 		
-		// Handles encryption for Vigenere cipher
-		else if(e.getSource() == encryptButton && vigenereRB.isSelected()) {
-			char[] userEncryptionKey;
-			String userInputText;
-
-			Vigenere vigenere = new Vigenere();
-			
-			userInputText = inputBox.getText(); // Get text input for encryption
-			vigenere.getPlainText(userInputText); // Set the plaintext to Vigenere cipher
-			
-			// Ensures the key contains only alphabetic characters
-			do {
-				userEncryptionKey = key.getText().toCharArray();
-				if(new String(userEncryptionKey).matches(".*[^a-zA-Z].*")) {
-					key.setText(""); // Reset key if it contains non-alphabetic characters
-				}
-			}while(new String(userEncryptionKey).matches(".*[^a-zA-Z].*"));
-			
-			vigenere.getKey(userEncryptionKey); // Sets the encryption key to Vigenere cipher
-			
-			outputTextBox.setText(vigenere.outputCipherText()); // Displays the encrypted text
+		// Displays a message if no cipher is selected to let the user know
+		if(!caesarRB.isSelected()
+				&& !vigenereRB.isSelected()
+				&& !oneTimePadRB.isSelected()) {
+			outputTextBox.setText("Choose a cipher!");
+			return;
 		}
 		
-		// Handles encryption for One-Time Pad cipher
-		else if(e.getSource() == encryptButton && oneTimePadRB.isSelected()) {
-			String userInputText;
-			
-			OneTimePad oneTimePad = new OneTimePad();
-			
-			userInputText = inputBox.getText(); // Gets text input for encryption
-			oneTimePad.getPlainText(userInputText); // Sets the plaintext to One-Time Pad cipher
-			
-			outputTextBox.setText(oneTimePad.outputCipherText()); // Displays the encrypted text
-			key.setText(oneTimePad.outputKey()); // Displays the randomly generated key for One-Time Pad
+		boolean decrypt = (e.getSource() == decryptButton);
+		KeySchedule schedule = null; // Stays null when encrypting with One-Time Pad, whose key is generated
+		if(!(oneTimePadRB.isSelected() && !decrypt)) {
+			schedule = readKey();
+			if(schedule == null) {
+				return; // The key is invalid, a message has been displayed
+			}
 		}
 		
-		// Handles decryption for Caesar cipher
-		else if(e.getSource() == decryptButton && caesarRB.isSelected()) {
-			int userDecryptionKey;
-			String userInputText;
-			
-			Caesar caesar = new Caesar();
-			
-			userInputText = inputBox.getText(); // Gets text input for decryption
-			
+		progressBar.setValue(0);
+		worker = new CipherWorker(inputBox.getText(), schedule, decrypt, outputTextBox, key,
+				cancelButton, encryptButton, decryptButton);
+		worker.addPropertyChangeListener(event -> {
+			if("progress".equals(event.getPropertyName())) {
+				progressBar.setValue((Integer) event.getNewValue()); // Shows how much of the text is done
+			}
+		});
+		worker.execute(); // Runs the cipher off the event dispatch thread
+	}
+	
+	/**
+	 * Starts live encryption of the input box with the Caesar or Vigenere key typed by the user.
+	 */
+	private void startLive() {
+		if(!caesarRB.isSelected() && !vigenereRB.isSelected()) {
+			outputTextBox.setText("Live mode works with Caesar and Vigenere only!");
+			liveBox.setSelected(false);
+			return;
+		}
+		KeySchedule schedule = readKey();
+		if(schedule == null) {
+			liveBox.setSelected(false); // The key is invalid, a message has been displayed
+			return;
+		}
+		if(worker != null) {
+			worker.cancelDetached(); // The live output replaces the result of the worker, with no cancel marker
+		}
+		live = new LiveEncryptor(schedule, inputBox, outputTextBox);
+		live.start();
+	}
+	
+	/**
+	 * Stops live encryption, if it is on.
+	 */
+	private void stopLive() {
+		if(live != null) {
+			live.stop();
+			live = null;
+		}
+		liveBox.setSelected(false);
+	}
+	
+	/**
+	 * Restarts live mode with the edited key once the edit is over, since the key field cannot be changed from its
+	 * own listener. An invalid key, such as an empty field while a new key is typed, stops live mode instead.
+	 */
+	private void restartLive() {
+		liveRestartPending = false;
+		if(live == null) {
+			return; // Live mode was stopped since the edit
+		}
+		live.stop();
+		live = null;
+		KeySchedule schedule = parseKey(key.getText());
+		if(schedule == null) {
+			liveBox.setSelected(false);
+			outputTextBox.setText("Live mode stopped: the key is not valid!");
+			return;
+		}
+		live = new LiveEncryptor(schedule, inputBox, outputTextBox);
+		live.start();
+	}
+	
+	/**
+	 * Reads and validates the key typed by the user for the selected cipher. An invalid key is reported once,
+	 * instead of being checked again in a loop.
+	 * 
+	 * @return The key schedule, or null if the key is invalid.
+	 */
+	private KeySchedule readKey() {
+		KeySchedule schedule = parseKey(key.getText());
+		if(schedule == null) {
+			if(caesarRB.isSelected()) {
+				key.setText("Input a positive number!");
+			}
+			else {
+				key.setText(""); // Resets key if it contains non-alphabetic characters
+				outputTextBox.setText("The key must contain only letters!");
+			}
+		}
+		return schedule;
+	}
+	
+	/**
+	 * Validates a key for the selected cipher without reporting anything: a positive number for Caesar, letters
+	 * only for Vigenere and One-Time Pad.
+	 * 
+	 * @return The key schedule, or null if the key is invalid.
+	 */
+	private KeySchedule parseKey(String text) {
+		if(caesarRB.isSelected()) {
+			// Ensures the user enters a positive key
 			try {
-				// Ensures the user enters a positive decryption key
-				do {
-				userDecryptionKey = Integer.parseInt(key.getText());
-				if(userDecryptionKey < 0) {
-					key.setText(""); // Resets key if it's negative
+				int userKey = Integer.parseInt(text.trim());
+				if(userKey >= 0) {
+					return KeySchedule.caesar(userKey);
 				}
-				}while(userDecryptionKey < 0);
-				caesar.getKey(userDecryptionKey); // Sets the decryption key to Caesar cipher
 			}
-			catch(Exception ex) {
-				key.setText("Input a positive number!"); // Handles non-integer input
+			catch(NumberFormatException ex) {
+				// Handled below, the same way as a negative key
 			}
-
-			caesar.getCipherText(userInputText); // Sets the ciphertext for Caesar cipher
-			outputTextBox.setText(caesar.outputPlainText()); // Displays the decrypted text
+			return null;
 		}
 		
-		// Handles decryption for Vigenere cipher
-		else if(e.getSource() == decryptButton && vigenereRB.isSelected()) {
-			char[] userDecryptionKey;
-			String userInputText;
-			
-			Vigenere vigenere = new Vigenere();
-			
-			userInputText = inputBox.getText(); // Gets text input for decryption
-			vigenere.getCipherText(userInputText); // Sets the ciphertext to Vigenere cipher
+		// Ensures the key contains only alphabetic characters
+		char[] userKey = text.toCharArray();
+		if(userKey.length == 0 || text.matches(".*[^a-zA-Z].*")) {
+			return null;
+		}
+		return vigenereRB.isSelected() ? KeySchedule.vigenere(userKey) : KeySchedule.oneTimePad(userKey);
+	}
 	
-			// Ensures the key contains only alphabetic characters
-			do {
-				userDecryptionKey = key.getText().toCharArray();
-				if(new String(userDecryptionKey).matches(".*[^a-zA-Z].*")) {
-					key.setText(""); // Resets key if it contains non-alphabetic characters
-				}
-			}while(new String(userDecryptionKey).matches(".*[^a-zA-Z].*"));
-			vigenere.getKey(userDecryptionKey); // Sets the decryption key to Vigenere cipher
-			
-			outputTextBox.setText(vigenere.outputPlainText()); // Displays the decrypted text
-			
+	/**
+	 * Schedules a restart of live mode when the key is edited while it is on, so the output never stays encrypted
+	 * with a key that is no longer the one typed.
+	 */
+	private final class LiveKeyListener implements DocumentListener {
+		
+		@Override
+		public void insertUpdate(DocumentEvent e) {
+			keyEdited();
 		}
 		
-		// Handles decryption for One-Time Pad cipher
-		else if(e.getSource() == decryptButton && oneTimePadRB.isSelected()) {
-			char[] userDecryptionKey;
-			String userInputText;
-			
-			OneTimePad oneTimePad = new OneTimePad();
-			
-			userInputText = inputBox.getText(); // Get text input for decryption
-			oneTimePad.getCipherText(userInputText); // Set the ciphertext to One-Time Pad cipher
-			
-			// Ensures the key contains only alphabetic characters
-			do {
-				userDecryptionKey = key.getText().toCharArray();
-				key.setText(""); // Resets key if it contains non-alphabetic characters
-			}while(new String(userDecryptionKey).matches(".*[^a-zA-Z].*"));
-			
-			oneTimePad.getKey(userDecryptionKey); // Sets the decryption key to One-Time Pad cipher
-			
-			outputTextBox.setText(oneTimePad.outputPlainText()); // Displays the decrypted text
+		@Override
+		public void removeUpdate(DocumentEvent e) {
+			keyEdited();
 		}
-
-		// Displays a message if no cipher is selected to let the user know
-		else if(!caesarRB.isSelected()
-				&& !vigenereRB.isSelected()
-				&& !oneTimePadRB.isSelected()) {
-			outputTextBox.setText("Choose a cipher!");
+		
+		@Override
+		public void changedUpdate(DocumentEvent e) {
+			// Attribute changes do not change the key
+		}
+		
+		private void keyEdited() {
+			if(live != null && !liveRestartPending) {
+				liveRestartPending = true; // One restart covers all the edits of a key stroke, such as a replaced selection
+				SwingUtilities.invokeLater(MainWindow.this::restartLive);
+			}
 		}
 	}
 }
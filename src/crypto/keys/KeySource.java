@@ -0,0 +1,26 @@
+package crypto.keys;
+
+/**
+ * The KeySource interface supplies random key letters for the One-Time Pad cipher.
+ * Implementations must be thread-safe and must never hand out the same key material twice.
+ */
+public interface KeySource {
+	
+	/**
+	 * Fills a range of a char buffer with random letters from 'a' to 'z'.
+	 * 
+	 * @param key The buffer receiving the key letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 */
+	void nextKey(char[] key, int off, int len);
+	
+	/**
+	 * Fills a range of a byte buffer with random ASCII letters from 'a' to 'z'.
+	 * 
+	 * @param key The buffer receiving the key letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 */
+	void nextKey(byte[] key, int off, int len);
+}
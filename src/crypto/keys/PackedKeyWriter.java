@@ -0,0 +1,201 @@
+package crypto.keys;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The PackedKeyWriter class writes One-Time Pad key letters to a packed key file, 5 bits per letter.
+ * It is a Writer, so it can be passed anywhere a key is written as text (spaces and newlines are skipped). The
+ * chunk index and the final header are written when the writer is closed. See PackedKeyFile for the layout.
+ */
+public final class PackedKeyWriter extends Writer {
+	private final FileChannel channel; // The key file
+	private final int chunkLetters; // Letters per chunk
+	private final ByteBuffer chunk; // Packed bytes of the chunk being filled
+	private final CRC32 crc = new CRC32();
+	private long group; // Letters of the current group of 8, 5 bits each
+	private int groupSize; // Letters in the current group
+	private int chunkSize; // Letters in the current chunk
+	private long letters; // Letters written in total
+	private int chunks; // Chunks written to the file
+	private ByteBuffer indexBuffer; // Index entries of the chunks written so far, grown when full
+	private boolean closed;
+	
+	/**
+	 * Creates a packed key file with the default chunk size, replacing any previous file.
+	 * 
+	 * @param path The key file.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public PackedKeyWriter(Path path) throws IOException {
+		this(path, PackedKeyFile.DEFAULT_CHUNK_LETTERS);
+	}
+	
+	/**
+	 * Creates a packed key file, replacing any previous file.
+	 * 
+	 * @param path The key file.
+	 * @param chunkLetters The number of letters per chunk, a positive multiple of 8.
+	 * @throws IOException If the file cannot be created.
+	 */
+	public PackedKeyWriter(Path path, int chunkLetters) throws IOException {
+		if(chunkLetters <= 0 || chunkLetters % 8 != 0) {
+			throw new IllegalArgumentException("The chunk size must be a positive multiple of 8 letters");
+		}
+		this.chunkLetters = chunkLetters;
+		chunk = ByteBuffer.allocate(chunkLetters / 8 * 5);
+		indexBuffer = ByteBuffer.allocate(PackedKeyFile.INDEX_ENTRY_SIZE * 64).order(ByteOrder.LITTLE_ENDIAN);
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		channel.position(PackedKeyFile.HEADER_SIZE); // The header is written last, once the counts are known
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+		for(int i = off; i < off + len; i++) {
+			char ch = cbuf[i];
+			if(ch == ' ' || ch == '\n' || ch == '\r') {
+				continue;
+			}
+			int letter = Character.toLowerCase(ch) - 'a';
+			if(letter < 0 || letter >= 26) {
+				throw new IOException("A One-Time Pad key can only contain letters");
+			}
+			put(letter);
+		}
+	}
+	
+	/**
+	 * Writes key letters given as ASCII bytes.
+	 * 
+	 * @param key The key letters.
+	 * @param off The index of the first letter.
+	 * @param len The number of letters.
+	 * @throws IOException If writing fails or a byte is not a letter.
+	 */
+	public void write(byte[] key, int off, int len) throws IOException {
+		ensureOpen();
+		for(int i = off; i < off + len; i++) {
+			int letter = (key[i] | 0x20) - 'a';
+			if(letter < 0 || letter >= 26) {
+				throw new IOException("A One-Time Pad key can only contain letters");
+			}
+			put(letter);
+		}
+	}
+	
+	/**
+	 * Adds one letter (0-25) to the current group, and the group to the chunk once it holds 8 letters.
+	 */
+	private void put(int letter) throws IOException {
+		group |= (long) letter << (5 * groupSize);
+		letters++;
+		chunkSize++;
+		if(++groupSize == 8) {
+			flushGroup();
+		}
+		if(chunkSize == chunkLetters) {
+			flushChunk();
+		}
+	}
+	
+	/**
+	 * Stores the current group as 5 little-endian bytes.
+	 */
+	private void flushGroup() {
+		for(int b = 0; b < 5; b++) {
+			chunk.put((byte) (group >>> (8 * b)));
+		}
+		group = 0;
+		groupSize = 0;
+	}
+	
+	/**
+	 * Writes the packed chunk to the file and records its offset and checksum in the index.
+	 */
+	private void flushChunk() throws IOException {
+		if(groupSize > 0) {
+			flushGroup(); // Pads the last group of the file with zero letters
+		}
+		chunk.flip();
+		crc.reset();
+		crc.update(chunk.duplicate());
+		long offset = channel.position();
+		while(chunk.hasRemaining()) {
+			channel.write(chunk);
+		}
+		chunk.clear();
+		if(!indexBuffer.hasRemaining()) {
+			ByteBuffer grown = ByteBuffer.allocate(indexBuffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+			indexBuffer.flip();
+			grown.put(indexBuffer);
+			indexBuffer = grown;
+		}
+		indexBuffer.putLong(offset).putInt((int) crc.getValue());
+		chunks++;
+		chunkSize = 0;
+	}
+	
+	/**
+	 * Returns the number of letters written so far.
+	 * 
+	 * @return The letter count.
+	 */
+	public long letters() {
+		return letters;
+	}
+	
+	private void ensureOpen() throws IOException {
+		if(closed) {
+			throw new IOException("The key file is closed");
+		}
+	}
+	
+	/**
+	 * Packed chunks go straight to the channel, so there is nothing to flush before close.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+	}
+	
+	/**
+	 * Writes the last chunk, the chunk index and the header, and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		try(FileChannel file = channel) {
+			if(chunkSize > 0) {
+				flushChunk();
+			}
+			long indexOffset = file.position();
+			indexBuffer.flip();
+			while(indexBuffer.hasRemaining()) {
+				file.write(indexBuffer);
+			}
+			ByteBuffer header = ByteBuffer.allocate(PackedKeyFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(PackedKeyFile.MAGIC)
+					.putShort(PackedKeyFile.VERSION)
+					.putShort((short) 0)
+					.putLong(letters)
+					.putInt(chunkLetters)
+					.putInt(chunks)
+					.putLong(indexOffset)
+					.flip();
+			while(header.hasRemaining()) {
+				file.write(header, header.position());
+			}
+		}
+	}
+}
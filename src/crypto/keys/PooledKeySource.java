@@ -0,0 +1,144 @@
+package crypto.keys;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import crypto.metrics.CipherMetrics;
+
+/**
+ * The PooledKeySource class keeps a bounded pool of ready-made key letters, refilled by a background thread from
+ * another key source. Encryption takes its key from the pool without waiting for entropy; only when the pool has
+ * run dry is the missing key material generated on the calling thread. Each block of the pool is handed out once.
+ */
+public final class PooledKeySource implements KeySource, AutoCloseable {
+	public static final int DEFAULT_BLOCK_SIZE = 16 * 1024; // Letters per pooled block
+	public static final int DEFAULT_BLOCKS = 64; // Blocks kept ready by default
+	private final KeySource generator; // The source the pool is filled from
+	private final BlockingQueue<byte[]> pool; // Ready blocks of key letters
+	private final int blockSize; // Letters per block
+	private final Thread filler; // Background thread refilling the pool
+	private byte[] current; // Block being handed out, guarded by this
+	private int used; // Letters of the current block already handed out, guarded by this
+	
+	/**
+	 * Creates a pool with the default sizes.
+	 * 
+	 * @param generator The source the pool is filled from.
+	 */
+	public PooledKeySource(KeySource generator) {
+		this(generator, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCKS);
+	}
+	
+	/**
+	 * Creates a pool and starts its background filler thread.
+	 * 
+	 * @param generator The source the pool is filled from.
+	 * @param blockSize The number of letters per pooled block.
+	 * @param blocks The largest number of blocks kept ready.
+	 */
+	public PooledKeySource(KeySource generator, int blockSize, int blocks) {
+		if(blockSize <= 0 || blocks <= 0) {
+			throw new IllegalArgumentException("The block size and block count must be positive");
+		}
+		this.generator = generator;
+		this.blockSize = blockSize;
+		pool = new ArrayBlockingQueue<>(blocks);
+		filler = new Thread(this::fill, "otp-key-pool");
+		filler.setDaemon(true);
+		filler.start();
+	}
+	
+	/**
+	 * Returns the pool shared by the One-Time Pad cipher, filled from a SecureKeySource.
+	 * 
+	 * @return The shared pool.
+	 */
+	public static PooledKeySource shared() {
+		return Shared.POOL;
+	}
+	
+	/**
+	 * Holds the shared pool, so that its thread is only started on first use. Its depth is exposed as a metric.
+	 */
+	private static final class Shared {
+		static final PooledKeySource POOL = new PooledKeySource(new SecureKeySource());
+		
+		static {
+			CipherMetrics.registerKeyPool("shared", POOL::depth);
+		}
+	}
+	
+	/**
+	 * Generates blocks until the pool is closed, waiting while the pool is full.
+	 */
+	private void fill() {
+		try {
+			while(!Thread.currentThread().isInterrupted()) {
+				byte[] block = new byte[blockSize];
+				generator.nextKey(block, 0, blockSize);
+				pool.put(block);
+			}
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt(); // Closed: lets the thread end
+		}
+	}
+	
+	@Override
+	public synchronized void nextKey(byte[] key, int off, int len) {
+		while(len > 0) {
+			if(current == null || used == current.length) {
+				current = pool.poll();
+				used = 0;
+				if(current == null) {
+					generator.nextKey(key, off, len); // Pool is empty: generate the rest directly
+					return;
+				}
+			}
+			int n = Math.min(len, current.length - used);
+			System.arraycopy(current, used, key, off, n);
+			used += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	@Override
+	public synchronized void nextKey(char[] key, int off, int len) {
+		while(len > 0) {
+			if(current == null || used == current.length) {
+				current = pool.poll();
+				used = 0;
+				if(current == null) {
+					generator.nextKey(key, off, len);
+					return;
+				}
+			}
+			int n = Math.min(len, current.length - used);
+			for(int i = 0; i < n; i++) {
+				key[off + i] = (char) current[used + i];
+			}
+			used += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	/**
+	 * Returns the number of ready key letters, including what is left of the block being handed out.
+	 * 
+	 * @return The pool depth in letters.
+	 */
+	public synchronized long depth() {
+		long depth = (long) pool.size() * blockSize;
+		return current == null ? depth : depth + current.length - used;
+	}
+	
+	/**
+	 * Stops the background filler thread. Letters already in the pool can still be handed out.
+	 */
+	@Override
+	public void close() {
+		filler.interrupt();
+	}
+}
@@ -0,0 +1,72 @@
+package crypto.keys;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * The SecureKeySource class draws key letters from a SecureRandom in bulk.
+ * Random bytes are mapped to letters with rejection sampling: bytes of 234 (9 * 26) or more are dropped, so every
+ * letter is exactly equally likely. Only the bytes actually needed are requested from the generator.
+ */
+public final class SecureKeySource implements KeySource {
+	private static final int LIMIT = 26 * 9; // Largest multiple of 26 that fits in a byte
+	private static final int BATCH = 4096; // Random bytes requested from the generator at a time
+	private final SecureRandom random; // The generator, thread-safe as required by SecureRandom
+	
+	/**
+	 * Creates a key source on the platform's default SecureRandom.
+	 */
+	public SecureKeySource() {
+		this(new SecureRandom());
+	}
+	
+	/**
+	 * Creates a key source on a given generator.
+	 * 
+	 * @param random The generator to draw bytes from.
+	 */
+	public SecureKeySource(SecureRandom random) {
+		this.random = random;
+	}
+	
+	/**
+	 * Creates a key source on a named SecureRandom algorithm, such as "DRBG" or "NativePRNGNonBlocking".
+	 * 
+	 * @param algorithm The SecureRandom algorithm name.
+	 * @return The key source.
+	 * @throws NoSuchAlgorithmException If the algorithm is not available.
+	 */
+	public static SecureKeySource forAlgorithm(String algorithm) throws NoSuchAlgorithmException {
+		return new SecureKeySource(SecureRandom.getInstance(algorithm));
+	}
+	
+	@Override
+	public void nextKey(char[] key, int off, int len) {
+		byte[] bytes = new byte[Math.min(len + (len >> 3) + 16, BATCH)];
+		int filled = 0;
+		while(filled < len) {
+			random.nextBytes(bytes);
+			for(int i = 0; i < bytes.length && filled < len; i++) {
+				int b = bytes[i] & 0xFF;
+				if(b < LIMIT) {
+					key[off + filled++] = (char) ('a' + b % 26); // Accepted byte: uniform letter
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void nextKey(byte[] key, int off, int len) {
+		byte[] bytes = new byte[Math.min(len + (len >> 3) + 16, BATCH)];
+		int filled = 0;
+		while(filled < len) {
+			random.nextBytes(bytes);
+			for(int i = 0; i < bytes.length && filled < len; i++) {
+				int b = bytes[i] & 0xFF;
+				if(b < LIMIT) {
+					key[off + filled++] = (byte) ('a' + b % 26);
+				}
+			}
+		}
+	}
+}
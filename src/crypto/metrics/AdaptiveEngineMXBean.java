@@ -0,0 +1,31 @@
+package crypto.metrics;
+
+import java.util.Map;
+
+/**
+ * The AdaptiveEngineMXBean interface is the JMX view of the engine routing: the crossovers in use and the number
+ * of calls sent to each engine, to check and tune the choices made.
+ */
+public interface AdaptiveEngineMXBean {
+	
+	/**
+	 * Returns whether the crossovers were measured on this machine rather than the defaults.
+	 * 
+	 * @return True once calibrated or loaded from a saved profile.
+	 */
+	boolean isCalibrated();
+	
+	/**
+	 * Returns the crossovers in use, one line per cipher and text type.
+	 * 
+	 * @return The profile description.
+	 */
+	String[] getProfile();
+	
+	/**
+	 * Returns the number of calls sent to each engine, keyed like "vigenere bytes parallel".
+	 * 
+	 * @return The call count per cipher, text type and engine.
+	 */
+	Map<String, Long> getRoutedCalls();
+}
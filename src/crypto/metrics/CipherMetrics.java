@@ -0,0 +1,177 @@
+package crypto.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import crypto.engine.CipherKind;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * The CipherMetrics class is the metrics surface of the ciphers: per cipher and operation it counts calls and
+ * bytes, and keeps histograms of latencies and input sizes, exposed through JMX under "crypto:type=CipherMetrics".
+ * Every call also emits a CipherOperationEvent, and the One-Time Pad key pool a periodic KeyPoolEvent, for
+ * JDK Flight Recorder.
+ * 
+ * The counters are only kept when the system property crypto.metrics is true. The flag is a constant, so when it
+ * is false the JIT removes the timing and counting entirely. The Flight Recorder event of a call is only allocated
+ * while a recording has it enabled, so an unrecorded call allocates nothing.
+ */
+public final class CipherMetrics {
+	public static final boolean ENABLED = Boolean.getBoolean("crypto.metrics"); // Whether counters are kept
+	public static final String DOMAIN = "crypto"; // JMX domain of the metrics
+	private static final OperationStats[] STATS = new OperationStats[CipherKind.values().length * 2]; // By operation
+	private static volatile EventType operationEventType; // The type of CipherOperationEvent, looked up once recording
+	
+	static {
+		for(int i = 0; i < STATS.length; i++) {
+			STATS[i] = new OperationStats();
+		}
+		if(ENABLED) {
+			for(CipherKind kind : CipherKind.values()) {
+				register("type=CipherMetrics,cipher=" + name(kind) + ",operation=encrypt", stats(kind, false),
+						OperationStatsMXBean.class);
+				register("type=CipherMetrics,cipher=" + name(kind) + ",operation=decrypt", stats(kind, true),
+						OperationStatsMXBean.class);
+			}
+		}
+	}
+	
+	private CipherMetrics() {
+	}
+	
+	/**
+	 * Begins the Flight Recorder event of a call to be recorded.
+	 * 
+	 * @return The begun event, or null when Flight Recorder is not running or the event is disabled.
+	 */
+	public static CipherOperationEvent begin() {
+		if(!FlightRecorder.isInitialized()) {
+			return null; // No recording has been started, and looking the event type up would start Flight Recorder
+		}
+		EventType type = operationEventType;
+		if(type == null) {
+			type = EventType.getEventType(CipherOperationEvent.class);
+			operationEventType = type; // The same type every time, so two threads looking it up is harmless
+		}
+		if(!type.isEnabled()) {
+			return null;
+		}
+		CipherOperationEvent event = new CipherOperationEvent();
+		event.begin();
+		return event;
+	}
+	
+	/**
+	 * Returns the start time of a call to be recorded.
+	 * 
+	 * @return The current time in nanoseconds, or 0 when metrics are disabled.
+	 */
+	public static long start() {
+		return ENABLED ? System.nanoTime() : 0L;
+	}
+	
+	/**
+	 * Records one encrypt or decrypt call.
+	 * 
+	 * @param event The Flight Recorder event begun with the call, or null.
+	 * @param kind The cipher.
+	 * @param decrypt True for a decryption.
+	 * @param letters The number of letters processed.
+	 * @param start The start time returned by start().
+	 */
+	public static void record(CipherOperationEvent event, CipherKind kind, boolean decrypt, int letters, long start) {
+		if(ENABLED) {
+			stats(kind, decrypt).record(letters, System.nanoTime() - start);
+		}
+		if(event == null) {
+			return;
+		}
+		event.end();
+		if(event.shouldCommit()) {
+			event.cipher = kind.name();
+			event.operation = decrypt ? "decrypt" : "encrypt";
+			event.letters = letters;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Returns the statistics of a cipher operation. They stay empty while metrics are disabled.
+	 * 
+	 * @param kind The cipher.
+	 * @param decrypt True for decryption, false for encryption.
+	 * @return The statistics.
+	 */
+	public static OperationStats stats(CipherKind kind, boolean decrypt) {
+		return STATS[kind.ordinal() * 2 + (decrypt ? 1 : 0)];
+	}
+	
+	/**
+	 * Exposes the depth of a One-Time Pad key pool through JMX and a periodic Flight Recorder event. The event is
+	 * registered when metrics are enabled or when Flight Recorder was started with the JVM.
+	 * 
+	 * @param name The name of the pool.
+	 * @param depth Returns the number of key letters ready in the pool.
+	 */
+	public static void registerKeyPool(String name, LongSupplier depth) {
+		if(ENABLED) {
+			KeyPoolMXBean bean = depth::getAsLong;
+			register("type=KeyPool,name=" + name, bean, KeyPoolMXBean.class);
+		}
+		if(ENABLED || FlightRecorder.isInitialized()) { // Registering starts Flight Recorder, which takes a while
+			FlightRecorder.addPeriodicEvent(KeyPoolEvent.class, () -> {
+				KeyPoolEvent event = new KeyPoolEvent();
+				event.pool = name;
+				event.depth = depth.getAsLong();
+				event.commit();
+			});
+		}
+	}
+	
+	/**
+	 * Exposes a result cache through JMX when metrics are enabled.
+	 * 
+	 * @param name The name of the cache.
+	 * @param cache The cache.
+	 */
+	public static void registerResultCache(String name, ResultCacheMXBean cache) {
+		if(ENABLED) {
+			register("type=ResultCache,name=" + name, cache, ResultCacheMXBean.class);
+		}
+	}
+	
+	/**
+	 * Exposes the engine routing through JMX when metrics are enabled.
+	 * 
+	 * @param routing The routing view.
+	 */
+	public static void registerAdaptiveEngine(AdaptiveEngineMXBean routing) {
+		if(ENABLED) {
+			register("type=AdaptiveEngine", routing, AdaptiveEngineMXBean.class);
+		}
+	}
+	
+	private static String name(CipherKind kind) {
+		return kind.name().toLowerCase(Locale.ROOT);
+	}
+	
+	private static <T> void register(String properties, T bean, Class<T> type) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+			if(!server.isRegistered(name)) {
+				server.registerMBean(new StandardMBean(bean, type, true), name);
+			}
+		}
+		catch(JMException ex) {
+			throw new IllegalStateException("Cannot register " + properties, ex);
+		}
+	}
+}
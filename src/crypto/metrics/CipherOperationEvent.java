@@ -0,0 +1,30 @@
+package crypto.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The CipherOperationEvent class is the Flight Recorder event of one encrypt or decrypt call. By default only calls
+ * taking at least 1 ms are recorded, so slow calls can be lined up with GC pauses in the same recording.
+ * The event is only allocated while a recording has it enabled; see CipherMetrics.begin().
+ */
+@Name("crypto.CipherOperation")
+@Label("Cipher Operation")
+@Category("MultiCipherEncryptor")
+@Description("An encrypt or decrypt call of a cipher")
+@Threshold("1 ms")
+@StackTrace(true)
+public final class CipherOperationEvent extends jdk.jfr.Event {
+	@Label("Cipher")
+	String cipher; // The cipher kind
+	
+	@Label("Operation")
+	String operation; // "encrypt" or "decrypt"
+	
+	@Label("Letters")
+	long letters; // The number of letters processed
+}
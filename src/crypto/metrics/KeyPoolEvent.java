@@ -0,0 +1,25 @@
+package crypto.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * The KeyPoolEvent class is the periodic Flight Recorder event sampling the depth of the One-Time Pad key pool.
+ */
+@Name("crypto.KeyPool")
+@Label("One-Time Pad Key Pool")
+@Category("MultiCipherEncryptor")
+@Description("Key letters ready in the One-Time Pad key pool")
+@Period("1 s")
+@StackTrace(false)
+public final class KeyPoolEvent extends jdk.jfr.Event {
+	@Label("Pool")
+	String pool; // The name of the pool
+	
+	@Label("Depth")
+	long depth; // Key letters ready to be handed out
+}
@@ -0,0 +1,14 @@
+package crypto.metrics;
+
+/**
+ * The KeyPoolMXBean interface is the JMX view of a pool of ready-made One-Time Pad key letters.
+ */
+public interface KeyPoolMXBean {
+	
+	/**
+	 * Returns the number of key letters ready to be handed out.
+	 * 
+	 * @return The pool depth in letters.
+	 */
+	long getDepth();
+}
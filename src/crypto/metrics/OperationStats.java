@@ -0,0 +1,131 @@
+package crypto.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The OperationStats class collects the statistics of one cipher operation. All counters are LongAdders, so
+ * concurrent callers do not contend on a shared counter; reading them sums the cells.
+ */
+public final class OperationStats implements OperationStatsMXBean {
+	private static final int BUCKETS = 64; // Power of two buckets, enough for any long
+	private final LongAdder messages = new LongAdder(); // Number of calls
+	private final LongAdder bytes = new LongAdder(); // Number of letters processed
+	private final LongAdder nanos = new LongAdder(); // Total time spent in calls
+	private final LongAdder[] latencies = newBuckets(); // Calls per latency bucket
+	private final LongAdder[] sizes = newBuckets(); // Calls per input size bucket
+	
+	OperationStats() {
+	}
+	
+	private static LongAdder[] newBuckets() {
+		LongAdder[] buckets = new LongAdder[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+		return buckets;
+	}
+	
+	/**
+	 * Returns the histogram bucket of a value: 0 for 0, otherwise one more than the index of its highest bit.
+	 */
+	private static int bucket(long value) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, value)));
+	}
+	
+	/**
+	 * Records one call.
+	 * 
+	 * @param letters The number of letters processed.
+	 * @param elapsed The time the call took, in nanoseconds.
+	 */
+	void record(int letters, long elapsed) {
+		messages.increment();
+		bytes.add(letters);
+		nanos.add(elapsed);
+		latencies[bucket(elapsed)].increment();
+		sizes[bucket(letters)].increment();
+	}
+	
+	@Override
+	public long getMessages() {
+		return messages.sum();
+	}
+	
+	@Override
+	public long getBytes() {
+		return bytes.sum();
+	}
+	
+	@Override
+	public long getMeanLatencyNanos() {
+		long count = messages.sum();
+		return (count == 0) ? 0 : nanos.sum() / count;
+	}
+	
+	@Override
+	public long getLatencyP50Nanos() {
+		return percentile(latencies, 0.50);
+	}
+	
+	@Override
+	public long getLatencyP99Nanos() {
+		return percentile(latencies, 0.99);
+	}
+	
+	@Override
+	public long[] getLatencyHistogram() {
+		return snapshot(latencies);
+	}
+	
+	@Override
+	public long[] getSizeHistogram() {
+		return snapshot(sizes);
+	}
+	
+	@Override
+	public void reset() {
+		messages.reset();
+		bytes.reset();
+		nanos.reset();
+		for(int i = 0; i < BUCKETS; i++) {
+			latencies[i].reset();
+			sizes[i].reset();
+		}
+	}
+	
+	/**
+	 * Copies a histogram, dropping the empty buckets at the end.
+	 */
+	private static long[] snapshot(LongAdder[] buckets) {
+		long[] counts = new long[BUCKETS];
+		int used = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			if(counts[i] != 0) {
+				used = i + 1;
+			}
+		}
+		return Arrays.copyOf(counts, used);
+	}
+	
+	/**
+	 * Returns the upper bound of the bucket holding a percentile.
+	 */
+	private static long percentile(LongAdder[] buckets, double fraction) {
+		long[] counts = snapshot(buckets);
+		long total = 0;
+		for(long count : counts) {
+			total += count;
+		}
+		long rank = (long) Math.ceil(total * fraction);
+		long seen = 0;
+		for(int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if(seen >= rank && seen > 0) {
+				return (i == 0) ? 0 : (i >= 63 ? Long.MAX_VALUE : 1L << i);
+			}
+		}
+		return 0;
+	}
+}
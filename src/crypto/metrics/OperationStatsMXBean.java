@@ -0,0 +1,62 @@
+package crypto.metrics;
+
+/**
+ * The OperationStatsMXBean interface is the JMX view of the statistics of one cipher operation, such as Caesar
+ * encryption. Histogram bucket i counts the values from 2^(i-1) inclusive to 2^i exclusive; bucket 0 counts zeros.
+ */
+public interface OperationStatsMXBean {
+	
+	/**
+	 * Returns the number of calls.
+	 * 
+	 * @return The message count.
+	 */
+	long getMessages();
+	
+	/**
+	 * Returns the number of letters processed, one byte each as ASCII.
+	 * 
+	 * @return The byte count.
+	 */
+	long getBytes();
+	
+	/**
+	 * Returns the mean time of a call.
+	 * 
+	 * @return The mean latency in nanoseconds, or 0 before the first call.
+	 */
+	long getMeanLatencyNanos();
+	
+	/**
+	 * Returns the median time of a call, rounded up to a power of two.
+	 * 
+	 * @return The 50th percentile latency in nanoseconds.
+	 */
+	long getLatencyP50Nanos();
+	
+	/**
+	 * Returns the 99th percentile time of a call, rounded up to a power of two.
+	 * 
+	 * @return The 99th percentile latency in nanoseconds.
+	 */
+	long getLatencyP99Nanos();
+	
+	/**
+	 * Returns the call latencies as a power of two histogram.
+	 * 
+	 * @return The number of calls per latency bucket, in nanoseconds.
+	 */
+	long[] getLatencyHistogram();
+	
+	/**
+	 * Returns the input sizes as a power of two histogram.
+	 * 
+	 * @return The number of calls per size bucket, in letters.
+	 */
+	long[] getSizeHistogram();
+	
+	/**
+	 * Clears all counters and histograms.
+	 */
+	void reset();
+}
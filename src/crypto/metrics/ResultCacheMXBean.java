@@ -0,0 +1,68 @@
+package crypto.metrics;
+
+/**
+ * The ResultCacheMXBean interface is the JMX view of a cache of encryption and decryption results.
+ */
+public interface ResultCacheMXBean {
+	
+	/**
+	 * Returns the number of lookups that found a cached result.
+	 * 
+	 * @return The hit count.
+	 */
+	long getHits();
+	
+	/**
+	 * Returns the number of lookups that had to run the cipher.
+	 * 
+	 * @return The miss count.
+	 */
+	long getMisses();
+	
+	/**
+	 * Returns the share of lookups that found a cached result.
+	 * 
+	 * @return The hit rate from 0 to 1, or 0 before the first lookup.
+	 */
+	double getHitRate();
+	
+	/**
+	 * Returns the number of calls that bypassed the cache, such as every One-Time Pad call.
+	 * 
+	 * @return The bypass count.
+	 */
+	long getBypasses();
+	
+	/**
+	 * Returns the number of results removed to stay within the size bound.
+	 * 
+	 * @return The eviction count.
+	 */
+	long getEvictions();
+	
+	/**
+	 * Returns the estimated memory used by the cached results.
+	 * 
+	 * @return The size in bytes.
+	 */
+	long getBytes();
+	
+	/**
+	 * Returns the size bound of the cache.
+	 * 
+	 * @return The largest size in bytes.
+	 */
+	long getMaxBytes();
+	
+	/**
+	 * Returns the number of cached results.
+	 * 
+	 * @return The entry count.
+	 */
+	int getEntries();
+	
+	/**
+	 * Removes every cached result. The counters are kept.
+	 */
+	void clear();
+}
@@ -0,0 +1,387 @@
+package crypto.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import crypto.ciphers.Cipher;
+import crypto.ciphers.MessageBatch;
+import crypto.engine.AdaptiveEngine;
+import crypto.engine.CipherKind;
+import crypto.engine.KeySchedule;
+import crypto.engine.ShiftKernel;
+import crypto.engine.StreamingEngine;
+import crypto.keys.PooledKeySource;
+
+/**
+ * The CipherService class exposes the ciphers over HTTP on the loopback interface only, using the JDK HTTP server.
+ * Each request runs on its own virtual thread when the JDK supports them, or on a pooled thread otherwise.
+ * 
+ * Endpoints (all POST, parameters in the query string: cipher=caesar|vigenere|otp and key=KEY):
+ * /encrypt and /decrypt stream the request body through the cipher into the response body. For the One-Time Pad,
+ * /encrypt answers with the cipher text and the generated key interleaved line by line: each chunk of cipher text
+ * is a line, followed by a line holding the key of that chunk, so the key is streamed like the text and never held
+ * in memory. /decrypt takes the same layout: cipher text lines, each followed by a line holding its key.
+ * /batch?mode=encrypt|decrypt takes one message per line and answers one result per line. For the One-Time Pad,
+ * each encrypted line is followed by a space and its key, and each line to decrypt is given the same way.
+ */
+public final class CipherService implements AutoCloseable {
+	public static final int DEFAULT_PORT = 8437;
+	private static final int CHUNK_SIZE = 8 * 1024; // Characters streamed per chunk
+	private static final int BATCH_LINES = 1024; // Lines of a /batch request packed into one MessageBatch
+	static final String ERROR_MARKER = "\nerror: "; // Starts the line reporting a failure after the 200 status was sent
+	private final HttpServer server;
+	private final ExecutorService executor;
+	
+	static {
+		// Streamed (chunked) responses are written in small pieces; without TCP_NODELAY each one can wait for a
+		// delayed ACK. Must be set before the JDK HTTP server reads its configuration.
+		if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+	
+	/**
+	 * Creates and starts the service on the loopback interface.
+	 * 
+	 * @param port The port to listen on, or 0 for any free port.
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public CipherService(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		executor = newRequestExecutor();
+		server.setExecutor(executor);
+		server.createContext("/encrypt", exchange -> handle(exchange, Endpoint.ENCRYPT));
+		server.createContext("/decrypt", exchange -> handle(exchange, Endpoint.DECRYPT));
+		server.createContext("/batch", exchange -> handle(exchange, Endpoint.BATCH));
+		AdaptiveEngine.calibrateInBackground(); // Measures the engine crossovers unless they were saved for this machine
+		server.start();
+	}
+	
+	/**
+	 * Runs the service until the process is stopped.
+	 * 
+	 * @param args Optional: the port to listen on.
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		CipherService service = new CipherService(port);
+		System.out.println("Cipher service listening on http://localhost:" + service.port());
+	}
+	
+	/**
+	 * Returns the port the service listens on.
+	 * 
+	 * @return The port.
+	 */
+	public int port() {
+		return server.getAddress().getPort();
+	}
+	
+	/**
+	 * Creates a virtual-thread-per-task executor when the JDK provides one (Java 21 and later), or a cached pool of
+	 * daemon threads otherwise.
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		}
+		catch(ReflectiveOperationException | RuntimeException ex) {
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task, "cipher-service");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	private enum Endpoint {
+		ENCRYPT, DECRYPT, BATCH
+	}
+	
+	/**
+	 * Validates the request and dispatches it, answering 400 for invalid parameters.
+	 */
+	private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+		try(exchange) {
+			if(!"POST".equals(exchange.getRequestMethod())) {
+				sendError(exchange, 405, "Use POST");
+				return;
+			}
+			Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+			CipherKind cipher;
+			KeySchedule key;
+			boolean decrypt;
+			try {
+				cipher = parseCipher(params.get("cipher"));
+				key = parseKey(cipher, params.get("key"));
+				decrypt = (endpoint == Endpoint.BATCH) ? parseMode(params.get("mode")) : endpoint == Endpoint.DECRYPT;
+			}
+			catch(IllegalArgumentException ex) {
+				sendError(exchange, 400, ex.getMessage());
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(200, 0); // Chunked: the result is streamed as it is produced
+			try(InputStream body = exchange.getRequestBody();
+					Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+				BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+				try {
+					respond(in, out, endpoint, key, decrypt);
+				}
+				catch(IOException | RuntimeException ex) {
+					// Headers are sent already: the error is reported at the end of the body, while it is still open
+					out.write(ERROR_MARKER + ex.getMessage() + "\n");
+					out.flush();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Streams the request body through the cipher of the endpoint into the response body.
+	 */
+	private static void respond(BufferedReader in, Writer out, Endpoint endpoint, KeySchedule key, boolean decrypt)
+			throws IOException {
+		if(endpoint == Endpoint.BATCH) {
+			batch(in, out, key, decrypt);
+		}
+		else if(key != null) {
+			StreamingEngine engine = new StreamingEngine(key, CHUNK_SIZE);
+			if(decrypt) {
+				engine.decrypt(in, out);
+			}
+			else {
+				engine.encrypt(in, out);
+			}
+		}
+		else if(decrypt) {
+			String text;
+			while((text = in.readLine()) != null) {
+				String otpKey = in.readLine();
+				if(otpKey == null) {
+					throw new IllegalArgumentException("Each cipher text line must be followed by a line holding its key");
+				}
+				StreamingEngine.decryptOneTimePad(new StringReader(text), new StringReader(otpKey), out, CHUNK_SIZE);
+			}
+		}
+		else {
+			StreamingEngine.encryptOneTimePad(in, out, new KeyLineWriter(out), CHUNK_SIZE);
+		}
+	}
+	
+	/**
+	 * Writes each chunk of a generated One-Time Pad key on its own line of the response, right after the line of
+	 * cipher text it belongs to.
+	 */
+	private static final class KeyLineWriter extends FilterWriter {
+		
+		KeyLineWriter(Writer out) {
+			super(out);
+		}
+		
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			out.write('\n'); // Ends the line of cipher text written just before
+			out.write(cbuf, off, len);
+			out.write('\n');
+		}
+	}
+	
+	/**
+	 * Encrypts or decrypts one message per line. Lines sharing a Caesar or Vigenere key are packed into message
+	 * batches of BATCH_LINES lines, each encrypted with one Cipher call.
+	 */
+	private static void batch(BufferedReader in, Writer out, KeySchedule key, boolean decrypt) throws IOException {
+		if(key == null) {
+			batchOneTimePad(in, out, decrypt);
+			return;
+		}
+		Cipher cipher = Cipher.of(key);
+		List<String> lines = new ArrayList<>(BATCH_LINES);
+		String line;
+		do {
+			line = in.readLine();
+			if(line != null) {
+				lines.add(line);
+			}
+			if(lines.size() == BATCH_LINES || (line == null && !lines.isEmpty())) {
+				MessageBatch batch = MessageBatch.of(lines);
+				if(decrypt) {
+					batch.decrypt(cipher);
+				}
+				else {
+					batch.encrypt(cipher);
+				}
+				for(int i = 0; i < batch.size(); i++) {
+					batch.writeTo(i, out);
+					out.write('\n');
+				}
+				lines.clear();
+			}
+		}
+		while(line != null);
+	}
+	
+	/**
+	 * Encrypts or decrypts one One-Time Pad message per line, each with its own key, reusing the same buffers for
+	 * every line.
+	 */
+	private static void batchOneTimePad(BufferedReader in, Writer out, boolean decrypt) throws IOException {
+		char[] buf = new char[256];
+		char[] otpKey = new char[256];
+		byte[] shifts = new byte[256];
+		String line;
+		while((line = in.readLine()) != null) {
+			String text = line;
+			String lineKey = null;
+			if(decrypt) {
+				int space = line.lastIndexOf(' ');
+				if(space < 0) {
+					throw new IllegalArgumentException("Each line must hold the cipher text, a space and the key");
+				}
+				text = line.substring(0, space);
+				lineKey = line.substring(space + 1);
+			}
+			if(buf.length < text.length()) {
+				buf = new char[Math.max(text.length(), buf.length * 2)];
+				otpKey = new char[buf.length];
+				shifts = new byte[buf.length];
+			}
+			text.getChars(0, text.length(), buf, 0);
+			int count = ShiftKernel.prepare(buf, 0, text.length());
+			if(count > 0) {
+				if(lineKey == null) {
+					PooledKeySource.shared().nextKey(otpKey, 0, count);
+				}
+				else if(lineKey.length() < count) {
+					throw new IllegalArgumentException("The One-Time Pad key is shorter than the text");
+				}
+				else {
+					lineKey.getChars(0, count, otpKey, 0);
+				}
+				for(int i = 0; i < count; i++) {
+					int k = (otpKey[i] | 0x20) - 'a';
+					if(k < 0 || k >= 26) {
+						throw new IllegalArgumentException("The One-Time Pad key must contain only letters");
+					}
+					shifts[i] = (byte) k;
+				}
+				ShiftKernel.shift(buf, 0, count, shifts, 0, decrypt);
+			}
+			out.write(buf, 0, count);
+			if(!decrypt) {
+				out.write(' ');
+				out.write(otpKey, 0, count);
+			}
+			out.write('\n');
+		}
+	}
+	
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+	
+	static Map<String, String> parseQuery(String query) {
+		Map<String, String> params = new HashMap<>();
+		if(query == null) {
+			return params;
+		}
+		for(String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			if(eq > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+						URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return params;
+	}
+	
+	private static CipherKind parseCipher(String value) {
+		if(value == null) {
+			throw new IllegalArgumentException("Missing parameter: cipher");
+		}
+		switch(value) {
+		case "caesar":
+			return CipherKind.CAESAR;
+		case "vigenere":
+			return CipherKind.VIGENERE;
+		case "otp":
+			return CipherKind.ONE_TIME_PAD;
+		default:
+			throw new IllegalArgumentException("Unknown cipher: " + value);
+		}
+	}
+	
+	/**
+	 * Returns true for mode=decrypt and false for mode=encrypt.
+	 */
+	private static boolean parseMode(String value) {
+		if(value == null) {
+			throw new IllegalArgumentException("Missing parameter: mode");
+		}
+		switch(value) {
+		case "encrypt":
+			return false;
+		case "decrypt":
+			return true;
+		default:
+			throw new IllegalArgumentException("Unknown mode: " + value);
+		}
+	}
+	
+	private static KeySchedule parseKey(CipherKind cipher, String value) {
+		if(cipher == CipherKind.ONE_TIME_PAD) {
+			return null; // One-Time Pad keys travel with the text
+		}
+		if(value == null) {
+			throw new IllegalArgumentException("Missing parameter: key");
+		}
+		if(cipher == CipherKind.CAESAR) {
+			try {
+				int shift = Integer.parseInt(value);
+				if(shift >= 0) {
+					return KeySchedule.caesar(shift);
+				}
+			}
+			catch(NumberFormatException ex) {
+				// Reported below, the same way as a negative key
+			}
+			throw new IllegalArgumentException("The Caesar key must be a positive number");
+		}
+		return KeySchedule.vigenere(value.toCharArray());
+	}
+	
+	/**
+	 * Stops the service, letting requests in progress finish for up to a second.
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+	}
+}
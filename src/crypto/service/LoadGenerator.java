@@ -0,0 +1,124 @@
+package crypto.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The LoadGenerator class sends requests to a local CipherService and reports the latency percentiles and the
+ * request rate. Without a port it starts its own service on a free loopback port, so it can be run on its own.
+ * A request fails when its status is not 200 or when its body ends with the error line the service writes once the
+ * status has been sent; failed requests are left out of the latencies and of the rate.
+ * 
+ * Usage: LoadGenerator [--port N] [--requests N] [--concurrency N] [--size CHARS] [--path /encrypt?cipher=...]
+ */
+public final class LoadGenerator {
+	
+	private LoadGenerator() {
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = -1;
+		int requests = 10_000;
+		int concurrency = 16;
+		int size = 100;
+		String path = "/encrypt?cipher=vigenere&key=lemon";
+		for(int i = 0; i + 1 < args.length; i += 2) {
+			switch(args[i]) {
+			case "--port":
+				port = Integer.parseInt(args[i + 1]);
+				break;
+			case "--requests":
+				requests = Integer.parseInt(args[i + 1]);
+				break;
+			case "--concurrency":
+				concurrency = Integer.parseInt(args[i + 1]);
+				break;
+			case "--size":
+				size = Integer.parseInt(args[i + 1]);
+				break;
+			case "--path":
+				path = args[i + 1];
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		CipherService ownService = (port < 0) ? new CipherService(0) : null;
+		try {
+			int target = (ownService != null) ? ownService.port() : port;
+			System.out.println(run(URI.create("http://localhost:" + target + path), requests, concurrency, size));
+		}
+		finally {
+			if(ownService != null) {
+				ownService.close();
+			}
+		}
+	}
+	
+	/**
+	 * Sends the requests and returns the summary line.
+	 * 
+	 * @param uri The endpoint to call.
+	 * @param requests The total number of requests.
+	 * @param concurrency The number of requests in flight at a time.
+	 * @param size The number of characters in each request body.
+	 * @return The summary with p50/p99 latency and successful requests per second.
+	 * @throws InterruptedException If interrupted while waiting for the requests.
+	 */
+	static String run(URI uri, int requests, int concurrency, int size) throws InterruptedException {
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		String body = "the quick brown fox jumps over the lazy dog ".repeat(size / 44 + 1).substring(0, size);
+		long[] latencies = new long[requests];
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger failures = new AtomicInteger();
+		ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+		long start = System.nanoTime();
+		for(int c = 0; c < concurrency; c++) {
+			clients.execute(() -> {
+				int i;
+				while((i = next.getAndIncrement()) < requests) {
+					long sent = System.nanoTime();
+					try {
+						HttpResponse<String> response = client.send(
+								HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+								HttpResponse.BodyHandlers.ofString());
+						if(response.statusCode() == 200 && !response.body().contains(CipherService.ERROR_MARKER)) {
+							latencies[i] = System.nanoTime() - sent;
+							continue;
+						}
+					}
+					catch(IOException ex) {
+						// Counted as a failure below
+					}
+					catch(InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					failures.incrementAndGet();
+					latencies[i] = Long.MAX_VALUE; // Sorted after every success, then left out
+				}
+			});
+		}
+		clients.shutdown();
+		clients.awaitTermination(1, TimeUnit.HOURS);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		Arrays.sort(latencies);
+		long[] succeeded = Arrays.copyOf(latencies, requests - failures.get());
+		return String.format(Locale.ROOT, "%d requests (%d failed) of %d chars, concurrency %d: %.0f req/s, p50 %.3f ms, p99 %.3f ms",
+				requests, failures.get(), size, concurrency, succeeded.length / seconds,
+				percentile(succeeded, 0.50) / 1e6, percentile(succeeded, 0.99) / 1e6);
+	}
+	
+	private static long percentile(long[] sorted, double p) {
+		return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+	}
+}